@@ -0,0 +1,66 @@
+package com.hz.benchmarks;
+
+import com.hz.models.envoy.json.DeviceMeter;
+import com.hz.models.envoy.json.Inverter;
+import com.hz.models.envoy.json.PowerMeter;
+import com.hz.models.envoy.json.Production;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson deserialisation of the envoy responses read every collection, for each firmware stub
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EnvoyParsingBenchmark {
+
+	@Param({"D4.2.27", "D4.5.79", "D5.0.55", "R4.10.35", "ThreePhase", "envoy-s"})
+	public String firmware;
+
+	private String production;
+	private String inverters;
+	private String deviceMeters;
+	private String powerMeters;
+
+	@Setup
+	public void setup() throws IOException {
+		production = Stubs.body(firmware, "production.json");
+		inverters = Stubs.body(firmware, "inverters.json");
+		deviceMeters = Stubs.body(firmware, "ivp_meters.json");
+		powerMeters = Stubs.body(firmware, "ivp_meters_readings.json");
+	}
+
+	@Benchmark
+	public Production production() throws IOException {
+		return Stubs.MAPPER.readValue(production, Production.class);
+	}
+
+	@Benchmark
+	public List<Inverter> inverters() throws IOException {
+		return Stubs.readList(inverters, Inverter.class);
+	}
+
+	// Firmware without meters parse nothing, as the collection skips those endpoints
+	@Benchmark
+	public List<PowerMeter> meters() throws IOException {
+		Stubs.readList(deviceMeters, DeviceMeter.class);
+		return Stubs.readList(powerMeters, PowerMeter.class);
+	}
+}
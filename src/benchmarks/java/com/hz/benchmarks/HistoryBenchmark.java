@@ -0,0 +1,75 @@
+package com.hz.benchmarks;
+
+import com.hz.controllers.models.BillAnswer;
+import com.hz.controllers.models.BillQuestion;
+import com.hz.controllers.models.History;
+import com.hz.models.database.ElectricityRate;
+import com.hz.models.database.Summary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The History and BillAnswer aggregation behind the history charts and the bill calculator
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HistoryBenchmark {
+
+	@Param({"7Days", "4Weeks", "3Months", "12Months"})
+	public String duration;
+
+	private final List<Summary> summaries = new ArrayList<>();
+	private final ElectricityRate rate = new ElectricityRate(0.125, 0.32285, 0.93);
+	private final BillQuestion billQuestion = new BillQuestion();
+
+	@Setup
+	public void setup() {
+		int days = switch (duration) {
+			case "7Days" -> 7;
+			case "4Weeks" -> 28;
+			case "3Months" -> 92;
+			default -> 365;
+		};
+		LocalDate date = LocalDate.now().minusDays(days);
+		for (int day = 0; day < days; day++) {
+			summaries.add(new Summary(date.plusDays(day), BigDecimal.valueOf(4.2 + day % 5), BigDecimal.valueOf(12.5 - day % 7),
+					BigDecimal.valueOf(18.3 + day % 3), BigDecimal.valueOf(26.6 - day % 4)));
+		}
+		billQuestion.setChargePerKiloWatt(0.30);
+		billQuestion.setPaymentPerKiloWatt(0.10);
+		billQuestion.setDailySupplyCharge(1.05);
+	}
+
+	@Benchmark
+	public History history() {
+		History result = new History();
+		summaries.forEach(summary -> result.addSummary(summary, rate, duration));
+		return result;
+	}
+
+	@Benchmark
+	public BillAnswer billAnswer() {
+		BillAnswer result = new BillAnswer(summaries.size());
+		summaries.forEach(summary -> result.addSummary(summary, rate, billQuestion));
+		return result;
+	}
+}
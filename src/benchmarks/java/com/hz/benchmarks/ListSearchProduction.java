@@ -0,0 +1,202 @@
+package com.hz.benchmarks;
+
+import com.hz.models.envoy.json.DeviceMeter;
+import com.hz.models.envoy.json.EimType;
+import com.hz.models.envoy.json.InvertersType;
+import com.hz.models.envoy.json.PowerMeter;
+import com.hz.models.envoy.json.Production;
+import com.hz.models.envoy.json.TypeBase;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Production with its accessors as they were before the modules and meters were indexed, searching the lists on every
+ * call, kept so the benchmarks can compare the two
+ */
+public class ListSearchProduction extends Production {
+	private static final String PRODUCTION_TYPE = "production";
+
+	public ListSearchProduction(Production production) {
+		setProductionList(production.getProductionList());
+		setConsumptionList(production.getConsumptionList());
+		setStorageList(production.getStorageList());
+		setPowerMeterList(production.getPowerMeterList());
+		setDeviceMeterList(production.getDeviceMeterList());
+	}
+
+	@Override
+	public Optional<InvertersType> getInverter() {
+		return getProductionList().stream().filter(module -> module.getType().equalsIgnoreCase("inverters")).findFirst().map(InvertersType.class::cast);
+	}
+
+	@Override
+	public Optional<EimType> getProductionEim() {
+		return findByMeasurementType(getProductionList(), PRODUCTION_TYPE);
+	}
+
+	@Override
+	public Optional<EimType> getTotalConsumptionEim() {
+		return findByMeasurementType(getConsumptionList(), "total-consumption");
+	}
+
+	@Override
+	public Optional<EimType> getNetConsumptionEim() {
+		return findByMeasurementType(getConsumptionList(), "net-consumption");
+	}
+
+	private Optional<PowerMeter> getProductionMeter() {
+		return getDevice(PRODUCTION_TYPE).
+				flatMap(device -> getPowerMeter(device.getEid()));
+	}
+
+	private Optional<PowerMeter> getNetConsumptionMeter() {
+		return getDevice("net-consumption").
+				flatMap(device -> getPowerMeter(device.getEid()));
+	}
+
+	private Optional<PowerMeter> getTotalConsumptionMeter() {
+		return getDevice("total-consumption").
+				flatMap(device -> getPowerMeter(device.getEid()));
+	}
+
+	private Optional<PowerMeter> getPowerMeter(String eid) {
+		return getPowerMeterList().stream().filter(power -> power.getEid().compareToIgnoreCase(eid) == 0).findFirst();
+	}
+
+	@Override
+	public Optional<DeviceMeter> getDevice(String measurementType) {
+		return getDeviceMeterList().stream().filter(device -> device.getMeasurementType().compareToIgnoreCase(measurementType) == 0).findFirst();
+	}
+
+	@Override
+	public BigDecimal getProductionVoltage() {
+		return getProductionMeter().orElse(new PowerMeter(BigDecimal.ZERO, getProductionEimVoltage())).getVoltage().divide(getPhaseCount(), 3, RoundingMode.HALF_UP);
+	}
+
+	@Override
+	public BigDecimal getProductionWatts() {
+		return getProductionMeter().orElse(new PowerMeter(getProductionEimWatts(), BigDecimal.ZERO)).getActivePower();
+	}
+
+	@Override
+	public BigDecimal getConsumptionWatts() {
+		return getTotalConsumptionMeter().orElse(new PowerMeter(getConsumptionEimWatts(), BigDecimal.ZERO)).getActivePower();
+	}
+
+	@Override
+	public BigDecimal getNetConsumptionWatts() {
+		return getNetConsumptionMeter().orElse(new PowerMeter(getNetConsumptionEimWatts(), BigDecimal.ZERO)).getActivePower();
+	}
+
+	private Optional<EimType> findByMeasurementType(List<TypeBase> list, String measurementType) {
+		return filterToEimType(list).stream()
+				.filter(eim -> eim.getMeasurementType() == null || eim.getMeasurementType().equalsIgnoreCase(measurementType))
+				.findFirst();
+	}
+
+	@Override
+	public double getProductionWattsValue() {
+		PowerMeter meter = findPowerMeter(PRODUCTION_TYPE);
+		if (meter != null) {
+			return value(meter.getActivePower());
+		}
+		EimType eim = findEim(getProductionList(), PRODUCTION_TYPE);
+		if (eim != null) {
+			return value(eim.getWattsNow());
+		}
+		TypeBase inverter = findInverter();
+		return inverter == null ? 0.0 : value(inverter.getWattsNow());
+	}
+
+	@Override
+	public double getConsumptionWattsValue() {
+		return meterOrEimWatts("total-consumption");
+	}
+
+	@Override
+	public double getNetConsumptionWattsValue() {
+		return meterOrEimWatts("net-consumption");
+	}
+
+	@Override
+	public double getProductionVoltageValue() {
+		PowerMeter meter = findPowerMeter(PRODUCTION_TYPE);
+		double voltage;
+		if (meter != null) {
+			voltage = value(meter.getVoltage());
+		} else {
+			EimType eim = findEim(getProductionList(), PRODUCTION_TYPE);
+			voltage = eim == null ? 0.0 : value(eim.getRmsVoltage());
+		}
+		DeviceMeter device = findDevice(PRODUCTION_TYPE);
+		int phases = device == null ? 1 : device.getPhaseCount();
+		return Math.round(voltage / phases * 1000.0) / 1000.0;
+	}
+
+	private double meterOrEimWatts(String measurementType) {
+		PowerMeter meter = findPowerMeter(measurementType);
+		if (meter != null) {
+			return value(meter.getActivePower());
+		}
+		EimType eim = findEim(getConsumptionList(), measurementType);
+		return eim == null ? 0.0 : value(eim.getWattsNow());
+	}
+
+	private static double value(BigDecimal value) {
+		return value == null ? 0.0 : value.doubleValue();
+	}
+
+	private DeviceMeter findDevice(String measurementType) {
+		if (getDeviceMeterList() != null) {
+			for (DeviceMeter device : getDeviceMeterList()) {
+				if (device.getMeasurementType().equalsIgnoreCase(measurementType)) {
+					return device;
+				}
+			}
+		}
+		return null;
+	}
+
+	private PowerMeter findPowerMeter(String measurementType) {
+		DeviceMeter device = findDevice(measurementType);
+		if (device != null && getPowerMeterList() != null) {
+			for (PowerMeter meter : getPowerMeterList()) {
+				if (meter.getEid().equalsIgnoreCase(device.getEid())) {
+					return meter;
+				}
+			}
+		}
+		return null;
+	}
+
+	private static EimType findEim(List<TypeBase> list, String measurementType) {
+		if (list != null) {
+			for (TypeBase module : list) {
+				if (module instanceof EimType eim && (eim.getMeasurementType() == null || eim.getMeasurementType().equalsIgnoreCase(measurementType))) {
+					return eim;
+				}
+			}
+		}
+		return null;
+	}
+
+	private TypeBase findInverter() {
+		for (TypeBase module : getProductionList()) {
+			if (module instanceof InvertersType) {
+				return module;
+			}
+		}
+		return null;
+	}
+
+	private List<EimType> filterToEimType(List<TypeBase> list) {
+		return list == null ? new ArrayList<>() : list.stream()
+				.filter(module -> module.getType().equalsIgnoreCase("eim"))
+				.map(EimType.class::cast)
+				.toList();
+	}
+}
@@ -0,0 +1,118 @@
+package com.hz.benchmarks;
+
+import com.hz.metrics.Metric;
+import com.hz.metrics.MetricSnapshot;
+import com.hz.models.envoy.json.System;
+import com.hz.utils.MetricCalculatorNegativeConsumption;
+import com.hz.utils.MetricCalculatorStandard;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The metric calculators and the Production accessors they use, for each firmware stub.  The bigDecimal benchmarks
+ * keep the BigDecimal calculators and accessors measured alongside the primitive ones the calculators now use, and the
+ * listSearch benchmarks the accessors as they were before Production indexed its modules and meters
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetricCalculationBenchmark {
+
+	@Param({"D4.2.27", "D4.5.79", "D5.0.55", "R4.10.35", "ThreePhase", "envoy-s"})
+	public String firmware;
+
+	private System system;
+	private System listSearchSystem;
+	private List<Metric> metrics;
+	private final MetricCalculatorStandard standard = new MetricCalculatorStandard();
+	private final MetricCalculatorNegativeConsumption negativeConsumption = new MetricCalculatorNegativeConsumption();
+	private final BigDecimalMetricCalculatorStandard bigDecimalStandard = new BigDecimalMetricCalculatorStandard();
+	private final BigDecimalMetricCalculatorNegativeConsumption bigDecimalNegativeConsumption = new BigDecimalMetricCalculatorNegativeConsumption();
+
+	@Setup
+	public void setup() throws IOException {
+		system = Stubs.system(firmware);
+		metrics = standard.calculateMetrics(system);
+		listSearchSystem = new System();
+		listSearchSystem.setProduction(new ListSearchProduction(system.getProduction()));
+	}
+
+	@Benchmark
+	public List<Metric> standardCalculator() {
+		return standard.calculateMetrics(system);
+	}
+
+	@Benchmark
+	public List<Metric> negativeConsumptionCalculator() {
+		return negativeConsumption.calculateMetrics(system);
+	}
+
+	@Benchmark
+	public List<Metric> bigDecimalStandardCalculator() {
+		return bigDecimalStandard.calculateMetrics(system);
+	}
+
+	@Benchmark
+	public List<Metric> bigDecimalNegativeConsumptionCalculator() {
+		return bigDecimalNegativeConsumption.calculateMetrics(system);
+	}
+
+	@Benchmark
+	public List<Metric> listSearchStandardCalculator() {
+		return standard.calculateMetrics(listSearchSystem);
+	}
+
+	@Benchmark
+	public MetricSnapshot snapshot() {
+		return new MetricSnapshot(metrics);
+	}
+
+	@Benchmark
+	public void primitiveAccessors(Blackhole blackhole) {
+		blackhole.consume(system.getProduction().getProductionWattsValue());
+		blackhole.consume(system.getProduction().getConsumptionWattsValue());
+		blackhole.consume(system.getProduction().getNetConsumptionWattsValue());
+		blackhole.consume(system.getProduction().getProductionVoltageValue());
+	}
+
+	@Benchmark
+	public void bigDecimalAccessors(Blackhole blackhole) {
+		blackhole.consume(system.getProduction().getProductionWatts());
+		blackhole.consume(system.getProduction().getConsumptionWatts());
+		blackhole.consume(system.getProduction().getNetConsumptionWatts());
+		blackhole.consume(system.getProduction().getProductionVoltage());
+	}
+
+	@Benchmark
+	public void listSearchPrimitiveAccessors(Blackhole blackhole) {
+		blackhole.consume(listSearchSystem.getProduction().getProductionWattsValue());
+		blackhole.consume(listSearchSystem.getProduction().getConsumptionWattsValue());
+		blackhole.consume(listSearchSystem.getProduction().getNetConsumptionWattsValue());
+		blackhole.consume(listSearchSystem.getProduction().getProductionVoltageValue());
+	}
+
+	@Benchmark
+	public void listSearchBigDecimalAccessors(Blackhole blackhole) {
+		blackhole.consume(listSearchSystem.getProduction().getProductionWatts());
+		blackhole.consume(listSearchSystem.getProduction().getConsumptionWatts());
+		blackhole.consume(listSearchSystem.getProduction().getNetConsumptionWatts());
+		blackhole.consume(listSearchSystem.getProduction().getProductionVoltage());
+	}
+}
@@ -0,0 +1,76 @@
+package com.hz.benchmarks;
+
+import com.hz.configuration.EnphaseCollectorProperties;
+import com.hz.interfaces.ElectricityRateRepository;
+import com.hz.interfaces.EnvoySystemRepository;
+import com.hz.interfaces.EventRepository;
+import com.hz.interfaces.EventRollupRepository;
+import com.hz.interfaces.PanelRepository;
+import com.hz.interfaces.SummaryRepository;
+import com.hz.metrics.Metric;
+import com.hz.models.events.MetricCollectionEvent;
+import com.hz.services.EnergyReconciliationService;
+import com.hz.services.LocalDBService;
+import com.hz.utils.MetricCalculatorStandard;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building and mapping a collection into the Event entity as LocalDBService.metricListener does.  The repositories are
+ * stub only mocks so the database itself is not measured
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistenceMappingBenchmark {
+
+	@Param({"D4.2.27", "R4.10.35", "ThreePhase"})
+	public String firmware;
+
+	private LocalDBService localDBService;
+	private List<Metric> metrics;
+	private MetricCollectionEvent event;
+
+	private static <T> T stub(Class<T> type) {
+		return Mockito.mock(type, Mockito.withSettings().stubOnly());
+	}
+
+	@Setup
+	public void setup() throws IOException {
+		localDBService = new LocalDBService(new EnphaseCollectorProperties(), stub(EnvoySystemRepository.class), stub(EventRepository.class),
+				stub(PanelRepository.class), stub(SummaryRepository.class), stub(ElectricityRateRepository.class), stub(EnergyReconciliationService.class),
+				stub(EventRollupRepository.class), stub(TransactionTemplate.class), stub(ApplicationEventPublisher.class));
+		metrics = new MetricCalculatorStandard().calculateMetrics(Stubs.system(firmware));
+		event = new MetricCollectionEvent(this, LocalDateTime.now(), metrics);
+	}
+
+	@Benchmark
+	public MetricCollectionEvent collectionEvent() {
+		return new MetricCollectionEvent(this, LocalDateTime.now(), metrics);
+	}
+
+	@Benchmark
+	public void eventMapping() {
+		localDBService.metricListener(event);
+	}
+}
@@ -0,0 +1,59 @@
+package com.hz.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hz.models.envoy.json.DeviceMeter;
+import com.hz.models.envoy.json.Inverter;
+import com.hz.models.envoy.json.PowerMeter;
+import com.hz.models.envoy.json.Production;
+import com.hz.models.envoy.json.System;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the envoy responses out of the WireMock stubs used by the EnphaseServiceRest tests
+ */
+final class Stubs {
+	// Configured as the RestTemplate message converter configures it
+	static final ObjectMapper MAPPER = Jackson2ObjectMapperBuilder.json().build();
+
+	private Stubs() {
+		throw new IllegalStateException("Utility class");
+	}
+
+	/**
+	 * The response body of a stub, or null when the firmware has no stub of that name or it returns no body
+	 */
+	static String body(String firmware, String stub) throws IOException {
+		try (InputStream in = Stubs.class.getResourceAsStream("/stubs/" + firmware + "/" + stub)) {
+			if (in == null) {
+				return null;
+			}
+			JsonNode body = MAPPER.readTree(in).path("response").path("body");
+			return body.isMissingNode() ? null : body.asText();
+		}
+	}
+
+	static <T> List<T> readList(String json, Class<T> type) throws IOException {
+		if (json == null) {
+			return new ArrayList<>();
+		}
+		return MAPPER.readValue(json, MAPPER.getTypeFactory().constructCollectionType(List.class, type));
+	}
+
+	// Put together as EnvoyService does from the individual responses
+	static System system(String firmware) throws IOException {
+		Production production = MAPPER.readValue(body(firmware, "production.json"), Production.class);
+		production.setDeviceMeterList(readList(body(firmware, "ivp_meters.json"), DeviceMeter.class));
+		production.setPowerMeterList(readList(body(firmware, "ivp_meters_readings.json"), PowerMeter.class));
+		production.setInverterList(readList(body(firmware, "inverters.json"), Inverter.class));
+
+		System system = new System();
+		system.setProduction(production);
+		return system;
+	}
+}
@@ -0,0 +1,62 @@
+package com.hz.components;
+
+import io.prometheus.client.CollectorRegistry;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.metrics.export.prometheus.PrometheusScrapeEndpoint;
+import org.springframework.boot.actuate.metrics.export.prometheus.TextOutputFormat;
+import org.springframework.lang.Nullable;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The Prometheus scrape endpoint with each rendered response kept until the next collection arrives, so scrapes between
+ * collections cost a map lookup rather than rendering every meter again.  A response is kept no longer than maxAge so
+ * the collector's own metrics stay current if collection stops
+ */
+public class CachedPrometheusScrapeEndpoint extends PrometheusScrapeEndpoint {
+	private record Key(TextOutputFormat format, Set<String> includedNames) {}
+
+	private record Rendered(WebEndpointResponse<String> response, long generation, long rendered) {}
+
+	private final Map<Key, Rendered> cache = new ConcurrentHashMap<>();
+	private final AtomicLong generation = new AtomicLong();
+	private final long maxAgeNanos;
+
+	public CachedPrometheusScrapeEndpoint(CollectorRegistry collectorRegistry, Duration maxAge) {
+		super(collectorRegistry);
+		this.maxAgeNanos = maxAge.toNanos();
+	}
+
+	@Override
+	@ReadOperation(producesFrom = TextOutputFormat.class)
+	public WebEndpointResponse<String> scrape(TextOutputFormat format, @Nullable Set<String> includedNames) {
+		Key key = new Key(format, includedNames == null ? Set.of() : Set.copyOf(includedNames));
+		long current = generation.get();
+		long now = System.nanoTime();
+
+		Rendered rendered = cache.get(key);
+		if (rendered != null && rendered.generation() == current && now - rendered.rendered() < maxAgeNanos) {
+			return rendered.response();
+		}
+
+		WebEndpointResponse<String> response = super.scrape(format, includedNames);
+		// Rendered before a newer collection arrived would be out of date, so it is only kept if none has
+		if (response.getStatus() == WebEndpointResponse.STATUS_OK && generation.get() == current) {
+			cache.put(key, new Rendered(response, current, now));
+		}
+		return response;
+	}
+
+	/**
+	 * New values have been collected so the next scrape renders again
+	 */
+	public void invalidate() {
+		generation.incrementAndGet();
+		cache.clear();
+	}
+}
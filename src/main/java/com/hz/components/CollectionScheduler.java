@@ -0,0 +1,109 @@
+package com.hz.components;
+
+import com.hz.configuration.EnphaseCollectorProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Learns how often the Envoy updates production.json from the history of readingTime values and picks the next
+ * collection time so that it lands just after an expected update instead of polling until one appears.
+ * The offset between the local clock and the Envoy clock is taken from the freshest reading seen recently and
+ * the safety margin grows each time a collection arrives too early, so both clock drift and jitter are corrected.
+ */
+@Component
+@RequiredArgsConstructor
+@Log4j2
+public class CollectionScheduler {
+	private static final int HISTORY_SIZE = 16;
+	private static final long MIN_MARGIN_MILLIS = 250;
+	private static final long MARGIN_STEP_MILLIS = 100;
+	private static final long RETRY_MILLIS = 1000;
+
+	private final EnphaseCollectorProperties properties;
+
+	private final Deque<Long> readingTimes = new ArrayDeque<>();    // Envoy reading times in ms, newest last
+	private final Deque<Long> latencies = new ArrayDeque<>();       // How long after the reading time each was observed
+	private long marginMillis = MIN_MARGIN_MILLIS;
+
+	/**
+	 * Record a successful collection
+	 * @param readingTime envoy reading time in epoch seconds
+	 * @param observedAt when the collection that returned it started
+	 */
+	public synchronized void recordReading(long readingTime, Instant observedAt) {
+		long readingMillis = readingTime * 1000L;
+		if (readingTimes.isEmpty() == false && readingMillis <= readingTimes.getLast()) {
+			return;
+		}
+
+		addBounded(readingTimes, readingMillis);
+		addBounded(latencies, observedAt.toEpochMilli() - readingMillis);
+
+		// Arrived in time so slowly tighten the margin again
+		marginMillis = Math.max(MIN_MARGIN_MILLIS, marginMillis - MARGIN_STEP_MILLIS);
+	}
+
+	/**
+	 * The collection ran before the Envoy had updated so widen the margin and try again shortly
+	 */
+	public synchronized Instant nextRetry(Instant now) {
+		long cadence = getCadenceMillis();
+		marginMillis = cadence > 0 ? Math.min(marginMillis * 2, cadence) : marginMillis * 2;
+		log.debug("Envoy not updated yet, margin now {} ms", marginMillis);
+		return now.plusMillis(Math.max(RETRY_MILLIS, Math.min(marginMillis, properties.getRefreshSeconds())));
+	}
+
+	/**
+	 * The first expected Envoy update at least one refresh period after the last collection started
+	 */
+	public synchronized Instant nextCollection(Instant lastStart) {
+		Instant target = lastStart.plusMillis(properties.getRefreshSeconds());
+		long cadence = getCadenceMillis();
+
+		if (cadence <= 0) {
+			return target;
+		}
+
+		long offset = getClockOffsetMillis();
+		long lastReading = readingTimes.getLast();
+		long envoyTarget = target.toEpochMilli() - offset;
+		long periods = Math.max(0, (envoyTarget - lastReading + cadence - 1) / cadence);
+
+		return Instant.ofEpochMilli(lastReading + periods * cadence + offset + marginMillis);
+	}
+
+	// Collections are much further apart than Envoy updates so every gap between reading times is a multiple of the
+	// update period.  Their greatest common divisor recovers it.  0 if not yet known
+	public synchronized long getCadenceMillis() {
+		long cadence = 0L;
+		Long previous = null;
+		for (Long readingTime : readingTimes) {
+			if (previous != null) {
+				cadence = gcd(cadence, (readingTime - previous) / 1000L);
+			}
+			previous = readingTime;
+		}
+		return cadence * 1000L;
+	}
+
+	private static long gcd(long a, long b) {
+		return b == 0 ? a : gcd(b, a % b);
+	}
+
+	// The freshest observation approximates the difference between the two clocks
+	private long getClockOffsetMillis() {
+		return latencies.stream().mapToLong(Long::longValue).min().orElse(0L);
+	}
+
+	private void addBounded(Deque<Long> history, long value) {
+		history.addLast(value);
+		if (history.size() > HISTORY_SIZE) {
+			history.removeFirst();
+		}
+	}
+}
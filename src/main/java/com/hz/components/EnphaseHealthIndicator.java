@@ -1,6 +1,7 @@
 package com.hz.components;
 
 import com.hz.models.envoy.xml.EnvoyInfo;
+import com.hz.services.EnvoyConnectionProxy;
 import com.hz.services.EnvoyService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.boot.actuate.health.Health;
@@ -12,13 +13,12 @@ import org.springframework.stereotype.Component;
 public class EnphaseHealthIndicator implements HealthIndicator {
 
 	private final EnvoyService envoyService;
+	private final EnvoyConnectionProxy envoyConnectionProxy;
 	private final EnvoyInfo envoyInfo;
 
 	public Health health() {
-		if (envoyService.isOk()) {
-			return Health.up().withDetail("version", envoyInfo.getSoftwareVersion()).build();
-		}
-		return Health.down().build();
+		Health.Builder health = (envoyService.isOk() && envoyConnectionProxy.isGatewayOpen() == false) ? Health.up().withDetail("version", envoyInfo.getSoftwareVersion()) : Health.down();
+		return health.withDetails(envoyConnectionProxy.getOpenCircuits()).build();
 	}
 
 }
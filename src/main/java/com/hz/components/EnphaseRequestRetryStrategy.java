@@ -1,41 +1,24 @@
 package com.hz.components;
 
-import org.apache.hc.client5.http.HttpHostConnectException;
 import org.apache.hc.client5.http.HttpRequestRetryStrategy;
 import org.apache.hc.core5.http.HttpRequest;
 import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.NoHttpResponseException;
 import org.apache.hc.core5.http.protocol.HttpContext;
 import org.apache.hc.core5.util.TimeValue;
 
 import java.io.IOException;
-import java.net.SocketTimeoutException;
-import java.net.UnknownHostException;
-import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Set;
-import java.util.concurrent.TimeUnit;
 
 /**
- * A retry strategy that retries 3 times with a 15-second wait time between.
- * The IOExceptions selected are based on observed intermittent errors returned from Enphase
+ * Retries once, straight away, when the Envoy drops a kept alive connection without answering.
+ * Any other failure is left to the EnvoyCircuitBreaker so an unreachable Envoy fails fast instead of holding the
+ * collection thread while it retries.
  */
 public class EnphaseRequestRetryStrategy implements HttpRequestRetryStrategy {
 
-	private final Set<Class<? extends IOException>> retryIOExceptionClasses;
-
-	public EnphaseRequestRetryStrategy() {
-		retryIOExceptionClasses = new HashSet<>(
-				Arrays.asList(
-						UnknownHostException.class,
-						HttpHostConnectException.class,
-						SocketTimeoutException.class
-				)
-		);
-	}
-
 	@Override
 	public boolean retryRequest(HttpRequest request, IOException exception, int execCount, HttpContext context) {
-		return (execCount < 3) && (this.retryIOExceptionClasses.contains(exception.getClass()));
+		return (execCount < 2) && (exception instanceof NoHttpResponseException);
 	}
 
 	@Override
@@ -45,7 +28,7 @@ public class EnphaseRequestRetryStrategy implements HttpRequestRetryStrategy {
 
 	@Override
 	public TimeValue getRetryInterval(HttpResponse response, int execCount, HttpContext context) {
-		return TimeValue.of(15, TimeUnit.SECONDS);
+		return TimeValue.ZERO_MILLISECONDS;
 	}
 
 }
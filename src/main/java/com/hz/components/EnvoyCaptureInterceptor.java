@@ -0,0 +1,62 @@
+package com.hz.components;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hz.configuration.EnphaseCollectorProperties;
+import com.hz.models.dto.EnvoyCapture;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Appends every Envoy response to envoy.capture-file when it is set.
+ * Each response is written as its own gzip member holding one json line, so the file stays valid if the collector
+ * stops part way and can be read back with a single GZIPInputStream.  Only used with buffering templates.
+ */
+@Component
+@RequiredArgsConstructor
+@Log4j2
+public class EnvoyCaptureInterceptor implements ClientHttpRequestInterceptor {
+
+	private final EnphaseCollectorProperties properties;
+	private final ObjectMapper captureMapper = new ObjectMapper();
+
+	public boolean isEnabled() {
+		return properties.getCaptureFile() != null && properties.getCaptureFile().isEmpty() == false;
+	}
+
+	@Override
+	public @NotNull ClientHttpResponse intercept(HttpRequest request, byte @NotNull [] body, ClientHttpRequestExecution execution) throws IOException {
+		long started = System.currentTimeMillis();
+		ClientHttpResponse response = execution.execute(request, body);
+		long duration = System.currentTimeMillis() - started;
+
+		try {
+			String path = request.getURI().getRawQuery() == null ? request.getURI().getRawPath() : request.getURI().getRawPath() + "?" + request.getURI().getRawQuery();
+			String contentType = response.getHeaders().getContentType() == null ? null : response.getHeaders().getContentType().toString();
+			write(new EnvoyCapture(started, duration, path, response.getStatusCode().value(), contentType,
+					StreamUtils.copyToString(response.getBody(), StandardCharsets.UTF_8)));
+		} catch (IOException e) {
+			log.warn("Failed to capture response from {} - {}", request.getURI(), e.getMessage());
+		}
+		return response;
+	}
+
+	private synchronized void write(EnvoyCapture capture) throws IOException {
+		try (OutputStream out = new GZIPOutputStream(new FileOutputStream(properties.getCaptureFile(), true))) {
+			out.write(captureMapper.writeValueAsBytes(capture));
+			out.write('\n');
+		}
+	}
+}
@@ -0,0 +1,202 @@
+package com.hz.components;
+
+import lombok.extern.log4j.Log4j2;
+import org.apache.hc.client5.http.ConnectTimeoutException;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Per endpoint circuit breaker for the requests made to one Envoy.
+ * Three failures in a row open the circuit for that endpoint and requests fail immediately until a jittered backoff
+ * has passed, starting at 15 seconds and doubling up to 10 minutes each time the circuit opens again.  A single
+ * half open request is then let through to probe the endpoint.  Failures to connect at all, and reads that time out
+ * because the Envoy has stopped answering, count against the whole gateway so an unreachable or hung Envoy fails every
+ * endpoint fast rather than each one finding out separately.
+ */
+@Log4j2
+public class EnvoyCircuitBreaker implements ClientHttpRequestInterceptor {
+	public static final String GATEWAY = "gateway";
+
+	private static final int FAILURE_THRESHOLD = 3;
+	private static final long BASE_BACKOFF_MILLIS = 15_000L;
+	private static final long MAX_BACKOFF_MILLIS = 600_000L;
+
+	public enum State { CLOSED, OPEN, HALF_OPEN }
+
+	private static class Circuit {
+		private State state = State.CLOSED;
+		private int failures = 0;
+		private int trips = 0;
+		private long openUntil = 0L;
+	}
+
+	public static class CircuitOpenException extends IOException {
+		public CircuitOpenException(String endpoint, long openUntil) {
+			super("Circuit for " + endpoint + " is open until " + Instant.ofEpochMilli(openUntil));
+		}
+	}
+
+	private final Map<String, Circuit> circuits = new HashMap<>();
+	private final Clock clock;
+
+	public EnvoyCircuitBreaker() {
+		this(Clock.systemUTC());
+	}
+
+	public EnvoyCircuitBreaker(Clock clock) {
+		this.clock = clock;
+	}
+
+	@Override
+	public @NotNull ClientHttpResponse intercept(HttpRequest request, byte @NotNull [] body, ClientHttpRequestExecution execution) throws IOException {
+		String endpoint = request.getURI().getRawPath();
+		acquire(endpoint);
+
+		ClientHttpResponse response;
+		try {
+			response = execution.execute(request, body);
+		} catch (IOException e) {
+			onFailure(endpoint, isGatewayFailure(e));
+			throw e;
+		} catch (RuntimeException e) {
+			// Not a sign of either the endpoint or the gateway failing, but a probe still has to be given up
+			release(endpoint);
+			throw e;
+		}
+
+		if (response.getStatusCode().is5xxServerError()) {
+			onFailure(endpoint, false);
+		} else {
+			onSuccess(endpoint);
+		}
+		return response;
+	}
+
+	// A read that times out means the envoy has hung rather than the endpoint failing
+	private static boolean isGatewayFailure(IOException e) {
+		return e instanceof ConnectException || e instanceof UnknownHostException || e instanceof ConnectTimeoutException || e instanceof SocketTimeoutException;
+	}
+
+	private Circuit getCircuit(String endpoint) {
+		return circuits.computeIfAbsent(endpoint, key -> new Circuit());
+	}
+
+	// An open circuit whose backoff has passed lets one probe through
+	private static boolean permits(Circuit circuit, long now) {
+		return switch (circuit.state) {
+			case CLOSED -> true;
+			case OPEN -> now >= circuit.openUntil;
+			case HALF_OPEN -> false;
+		};
+	}
+
+	private static void startProbe(Circuit circuit) {
+		if (circuit.state == State.OPEN) {
+			circuit.state = State.HALF_OPEN;
+		}
+	}
+
+	private synchronized void acquire(String endpoint) throws CircuitOpenException {
+		long now = clock.millis();
+		Circuit gateway = getCircuit(GATEWAY);
+		Circuit circuit = getCircuit(endpoint);
+
+		if (permits(gateway, now) == false) {
+			throw new CircuitOpenException(GATEWAY, gateway.openUntil);
+		}
+		if (permits(circuit, now) == false) {
+			throw new CircuitOpenException(endpoint, circuit.openUntil);
+		}
+		startProbe(gateway);
+		startProbe(circuit);
+	}
+
+	private synchronized void onSuccess(String endpoint) {
+		close(GATEWAY);
+		close(endpoint);
+	}
+
+	private synchronized void onFailure(String endpoint, boolean gatewayFailure) {
+		if (gatewayFailure) {
+			recordFailure(GATEWAY);
+			// A probe that could not reach the envoy says nothing about the endpoint so just reopen it
+			reopen(endpoint);
+		} else {
+			// The Envoy answered so it is reachable
+			close(GATEWAY);
+			recordFailure(endpoint);
+		}
+	}
+
+	private synchronized void release(String endpoint) {
+		reopen(GATEWAY);
+		reopen(endpoint);
+	}
+
+	// A half open circuit goes back to open with its backoff already passed, so the next request probes again
+	private void reopen(String endpoint) {
+		Circuit circuit = getCircuit(endpoint);
+		if (circuit.state == State.HALF_OPEN) {
+			circuit.state = State.OPEN;
+		}
+	}
+
+	private void close(String endpoint) {
+		Circuit circuit = getCircuit(endpoint);
+		if (circuit.state != State.CLOSED) {
+			log.info("Circuit for {} closed", endpoint);
+		}
+		circuit.state = State.CLOSED;
+		circuit.failures = 0;
+		circuit.trips = 0;
+	}
+
+	private void recordFailure(String endpoint) {
+		Circuit circuit = getCircuit(endpoint);
+		circuit.failures++;
+		if (circuit.state == State.HALF_OPEN || circuit.failures >= FAILURE_THRESHOLD) {
+			circuit.trips++;
+			long backoff = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(circuit.trips - 1, 10));
+			// Jitter so several collectors do not probe a recovering Envoy in step
+			backoff = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+			circuit.state = State.OPEN;
+			circuit.openUntil = clock.millis() + backoff;
+			log.warn("Circuit for {} opened for {} ms after {} failures", endpoint, backoff, circuit.failures);
+		}
+	}
+
+	public synchronized boolean isGatewayOpen() {
+		return getCircuit(GATEWAY).state != State.CLOSED;
+	}
+
+	public synchronized State getState(String endpoint) {
+		return getCircuit(endpoint).state;
+	}
+
+	/**
+	 * The circuits that are not closed, for the health endpoint
+	 */
+	public synchronized Map<String, Object> getOpenCircuits() {
+		Map<String, Object> result = new LinkedHashMap<>();
+		circuits.forEach((endpoint, circuit) -> {
+			if (circuit.state != State.CLOSED) {
+				result.put(endpoint, circuit.state + " until " + Instant.ofEpochMilli(circuit.openUntil));
+			}
+		});
+		return result;
+	}
+}
@@ -0,0 +1,86 @@
+package com.hz.components;
+
+import com.hz.configuration.EnphaseCollectorProperties;
+import com.hz.models.events.OutputEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.SimpleApplicationEventMulticaster;
+import org.springframework.context.event.SmartApplicationListener;
+import org.springframework.core.ResolvableType;
+import org.springframework.lang.Nullable;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hands OutputEvents to each listening output through that output's OutputQueue so collection carries on while the
+ * outputs catch up.  An output is the bean declaring the listener, named by its class less Service, so LocalDBService is
+ * localdb and its listeners share one queue and see events in publish order.  All other events are delivered as normal
+ */
+@Log4j2
+public class OutputEventMulticaster extends SimpleApplicationEventMulticaster implements DisposableBean {
+	private static final String SERVICE_SUFFIX = "Service";
+
+	private final ObjectProvider<EnphaseCollectorProperties> properties;
+	private final ObjectProvider<MeterRegistry> meterRegistry;
+	private final Map<String, OutputQueue> queues = new ConcurrentHashMap<>();
+
+	private record Key(ApplicationListener<?> listener, Object eventKey) {}
+
+	public OutputEventMulticaster(ObjectProvider<EnphaseCollectorProperties> properties, ObjectProvider<MeterRegistry> meterRegistry) {
+		this.properties = properties;
+		this.meterRegistry = meterRegistry;
+	}
+
+	@Override
+	public void multicastEvent(ApplicationEvent event, @Nullable ResolvableType eventType) {
+		if (event instanceof OutputEvent outputEvent && isAsync()) {
+			ResolvableType type = eventType != null ? eventType : ResolvableType.forInstance(event);
+			for (ApplicationListener<?> listener : getApplicationListeners(event, type)) {
+				queueFor(listener).offer(new Key(listener, outputEvent.getCoalesceKey()), () -> invokeListener(listener, event));
+			}
+			return;
+		}
+		super.multicastEvent(event, eventType);
+	}
+
+	// Properties are looked up on first use as the multicaster is created before the beans it would otherwise depend on
+	private boolean isAsync() {
+		EnphaseCollectorProperties config = properties.getIfAvailable();
+		return config != null && config.isAsyncOutputs();
+	}
+
+	private OutputQueue queueFor(ApplicationListener<?> listener) {
+		return queues.computeIfAbsent(outputName(listener), name -> {
+			EnphaseCollectorProperties.Output settings = properties.getObject().getOutput(name);
+			log.info("Delivering events to {} through a queue of {} with policy {}", name, settings.getCapacity(), settings.getPolicy());
+			return new OutputQueue(name, settings, meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+		});
+	}
+
+	// Method listener ids are the declaring class and method, eg com.hz.services.LocalDBService.metricListener(...)
+	private static String outputName(ApplicationListener<?> listener) {
+		String type = listener.getClass().getName();
+		if (listener instanceof SmartApplicationListener smart && smart.getListenerId().indexOf('(') > 0) {
+			String id = smart.getListenerId();
+			type = id.substring(0, id.lastIndexOf('.', id.indexOf('(')));
+		}
+		String simpleName = type.substring(type.lastIndexOf('.') + 1);
+		if (simpleName.endsWith(SERVICE_SUFFIX) && simpleName.length() > SERVICE_SUFFIX.length()) {
+			simpleName = simpleName.substring(0, simpleName.length() - SERVICE_SUFFIX.length());
+		}
+		return simpleName.toLowerCase(Locale.ROOT);
+	}
+
+	@Override
+	public void destroy() {
+		queues.values().forEach(OutputQueue::close);
+		queues.clear();
+	}
+}
@@ -0,0 +1,169 @@
+package com.hz.components;
+
+import com.hz.configuration.EnphaseCollectorProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.log4j.Log4j2;
+
+import java.util.LinkedList;
+import java.util.ListIterator;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded queue of deliveries to one output with a single worker thread, so the output sees events in the order they
+ * were published while the publisher only waits when the BLOCK policy is used and the queue is full.
+ * Reports the queue depth, time from publish to delivered and the number of events dropped or coalesced
+ */
+@Log4j2
+public class OutputQueue {
+	private static final long CLOSE_TIMEOUT_MS = 5000;
+
+	private final String name;
+	private final EnphaseCollectorProperties.OverflowPolicy policy;
+	private final int capacity;
+	private final LinkedList<Pending> pending = new LinkedList<>();
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	private final Condition notFull = lock.newCondition();
+	private final Counter dropped;
+	private final Timer latency;
+	private final Thread worker;
+	private boolean running = true;
+
+	private record Pending(Object key, Runnable delivery, long published) {}
+
+	public OutputQueue(String name, EnphaseCollectorProperties.Output settings, MeterRegistry registry) {
+		this.name = name;
+		this.policy = settings.getPolicy();
+		this.capacity = Math.max(1, settings.getCapacity());
+
+		Gauge.builder("solar.output.queue", this, OutputQueue::size)
+				.tag("output", name)
+				.description("Events waiting to be delivered to the output")
+				.register(registry);
+		dropped = Counter.builder("solar.output.dropped")
+				.tag("output", name)
+				.tag("policy", policy.name())
+				.description("Events not delivered as the output queue was full or a newer event replaced them")
+				.register(registry);
+		latency = Timer.builder("solar.output.latency")
+				.tag("output", name)
+				.description("Time from publishing an event to the output finishing with it")
+				.register(registry);
+
+		worker = new Thread(this::run, "output-" + name);
+		worker.setDaemon(true);
+		worker.start();
+	}
+
+	/**
+	 * Queue a delivery.  A null key is never coalesced
+	 */
+	public void offer(Object key, Runnable delivery) {
+		Pending next = new Pending(key, delivery, System.nanoTime());
+		lock.lock();
+		try {
+			if (policy == EnphaseCollectorProperties.OverflowPolicy.COALESCE_LATEST && replace(next)) {
+				return;
+			}
+			while (pending.size() >= capacity) {
+				if (policy == EnphaseCollectorProperties.OverflowPolicy.BLOCK) {
+					notFull.await();
+				} else {
+					pending.removeFirst();
+					dropped.increment();
+				}
+			}
+			pending.addLast(next);
+			notEmpty.signal();
+		} catch (InterruptedException e) {
+			log.warn("Interrupted waiting to queue an event for {}", name);
+			dropped.increment();
+			Thread.currentThread().interrupt();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	// The newer event takes the place of the waiting one so it goes out in the same turn
+	private boolean replace(Pending next) {
+		if (next.key() == null) {
+			return false;
+		}
+		ListIterator<Pending> waiting = pending.listIterator();
+		while (waiting.hasNext()) {
+			if (Objects.equals(waiting.next().key(), next.key())) {
+				waiting.set(next);
+				dropped.increment();
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public int size() {
+		lock.lock();
+		try {
+			return pending.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	private void run() {
+		while (true) {
+			Pending next;
+			lock.lock();
+			try {
+				while (pending.isEmpty()) {
+					if (running == false) {
+						return;
+					}
+					notEmpty.await();
+				}
+				next = pending.removeFirst();
+				notFull.signal();
+			} catch (InterruptedException e) {
+				log.warn("Output {} stopped with {} events waiting", name, pending.size());
+				return;
+			} finally {
+				lock.unlock();
+			}
+
+			try {
+				next.delivery().run();
+			} catch (RuntimeException e) {
+				log.error("Failed to deliver event to {} - {}", name, e.getMessage(), e);
+			}
+			latency.record(System.nanoTime() - next.published(), TimeUnit.NANOSECONDS);
+		}
+	}
+
+	/**
+	 * Deliver what is already queued, giving up after a few seconds
+	 */
+	public void close() {
+		lock.lock();
+		try {
+			running = false;
+			notEmpty.signalAll();
+		} finally {
+			lock.unlock();
+		}
+		try {
+			worker.join(CLOSE_TIMEOUT_MS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		worker.interrupt();
+	}
+}
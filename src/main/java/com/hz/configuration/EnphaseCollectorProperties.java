@@ -5,13 +5,18 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.BeanUtils;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.format.annotation.DateTimeFormat;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
 /**
  * Created by David on 22-Oct-17.
@@ -28,10 +33,14 @@ public class EnphaseCollectorProperties {
     private String bearerToken;     // V7 user authentication configuration
     private int exportLimit = 0;
     private final List<Bands> bands = new ArrayList<>();
+    private List<Integer> rollupMinutes = new ArrayList<>(List.of(1, 5, 15));  // Periods today's events are summed over as they arrive
+    private int pvcMinutes = 5;     // Rollup period the production/consumption chart is drawn from
 
     @DateTimeFormat(pattern = "yyyy-MM-dd")
     private LocalDate effectiveRateDate;
     private ProtectedHTTPResource influxdbResource;
+    private InfluxSchema influxSchema = InfluxSchema.LEGACY;
+    private boolean influxDownsample = false;   // Also write 5 minute, hourly and daily aggregates
     private PvOutputResource pvOutputResource;
     private MqqtResource mqqtResource;
 
@@ -39,6 +48,28 @@ public class EnphaseCollectorProperties {
     private String enphaseWebUser;
     private String enphaseWebPassword;
 
+    // Read the envoy endpoints in parallel rather than one after another
+    private boolean concurrentCollection = false;
+    private int endpointTimeoutSeconds = 30;
+
+    // Record raw envoy responses, and the file and speed used to play them back with the replay profile
+    private String captureFile;
+    private String replayFile;
+    private double replaySpeed = 1.0;
+    private int replayPort = 8089;
+
+    // Additional envoys collected alongside the controller above, which is reported as siteName
+    private String siteName = "main";
+    private final List<Site> sites = new ArrayList<>();
+    private boolean aggregateSites = false;
+
+    // Deliver collected data to each output from its own queue and thread so a slow output does not delay collection
+    private boolean asyncOutputs = true;
+    private final Map<String, Output> outputs = new HashMap<>();
+
+    // Days that collections are kept for Influx, MQTT and PvOutput to catch up after they have been unavailable
+    private int outboxRetentionDays = 7;
+
     public int getRefreshSeconds() {
         // Try to handle passing refreshSeconds as named instead of as microseconds
         if (refreshSeconds <= 120) {
@@ -47,6 +78,42 @@ public class EnphaseCollectorProperties {
         return refreshSeconds;
     }
 
+    /**
+     * A copy of these properties with the controller and bearer token replaced by those of the given site
+     */
+    public EnphaseCollectorProperties forSite(Site site) {
+        EnphaseCollectorProperties siteProperties = new EnphaseCollectorProperties();
+        BeanUtils.copyProperties(this, siteProperties);
+        siteProperties.setController(site);
+        siteProperties.setBearerToken(site.getToken());
+        siteProperties.setSiteName(site.getName());
+        return siteProperties;
+    }
+
+    /**
+     * The queue settings for the named output, with the default policy for that output when none is configured.
+     * Live views only need the latest values and everything else waits for room.  Influx, MQTT and PvOutput are fed from
+     * the outbox, which keeps what they have not taken
+     */
+    public Output getOutput(String name) {
+        Output configured = outputs.getOrDefault(name, new Output());
+        Output result = new Output();
+        result.setCapacity(configured.getCapacity());
+        result.setPolicy(configured.getPolicy() != null ? configured.getPolicy() : switch (name) {
+            case "prometheus", "sitecollection", "live" -> OverflowPolicy.COALESCE_LATEST;
+            default -> OverflowPolicy.BLOCK;
+        });
+        return result;
+    }
+
+    // Every period to keep a rollup for, including the chart's
+    public SortedSet<Integer> getRollupResolutions() {
+        SortedSet<Integer> resolutions = new TreeSet<>(rollupMinutes);
+        resolutions.add(pvcMinutes);
+        resolutions.removeIf(minutes -> minutes <= 0);
+        return resolutions;
+    }
+
     public BigDecimal getRefreshAsMinutes() {
         return Calculators.calculateMinutesOfOperation(this.getRefreshSeconds());
     }
@@ -111,6 +178,9 @@ public class EnphaseCollectorProperties {
     public static class MqqtResource extends ProtectedHTTPResource {
         private String topic;
         private String publisherId;
+        private MqttMode mode = MqttMode.PAYLOAD;
+        private MqttFormat format = MqttFormat.TEXT;
+        private double deadband = 0;    // With topics a value is only published when it moves by more than this
 
         @Override
         public String getUrl() {
@@ -131,6 +201,48 @@ public class EnphaseCollectorProperties {
     public static class PvOutputResource extends HTTPResource {
         private String key;
         private String systemId;
+        private int batchSize = 30;         // Statuses per addbatchstatus request when catching up, 100 for donors
+        private int requestsPerHour = 60;   // PvOutput's request limit, 300 for donors
+    }
+
+    @Data
+    @EqualsAndHashCode(callSuper = true)
+    @NoArgsConstructor
+    public static class Site extends ProtectedHTTPResource {
+        private String name;
+
+        public String getName() {
+            return (name == null || name.isEmpty()) ? getHost() : name;
+        }
+    }
+
+    public enum InfluxSchema {
+        LEGACY,             // A measurement per metric and per panel, as read by grafana.solar.json
+        TAGGED,             // One solar point per collection with a field per metric and panel points tagged by id
+        BOTH                // Write both while dashboards move over
+    }
+
+    public enum MqttMode {
+        PAYLOAD,            // Every metric and panel in one retained message on the topic each collection
+        TOPICS              // A retained message per metric and per panel under the topic, eg topic/panel/<id>
+    }
+
+    public enum MqttFormat {
+        TEXT,               // Only the value
+        JSON                // The value and collection time, eg {"value":250.0,"time":1622548800000}
+    }
+
+    public enum OverflowPolicy {
+        DROP_OLDEST,        // Discard the oldest waiting event to make room
+        COALESCE_LATEST,    // Replace a waiting event from the same site, otherwise discard the oldest
+        BLOCK               // Hold up the publisher until there is room
+    }
+
+    @Data
+    @NoArgsConstructor
+    public static class Output {
+        private OverflowPolicy policy;
+        private int capacity = 100;
     }
 
     @Data
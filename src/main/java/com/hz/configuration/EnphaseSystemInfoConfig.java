@@ -5,9 +5,12 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
 import com.fasterxml.jackson.module.jakarta.xmlbind.JakartaXmlBindAnnotationModule;
-import com.hz.components.EnphaseRequestRetryStrategy;
+import com.hz.components.EnphaseInfoRetryStrategy;
+import com.hz.components.EnvoyCaptureInterceptor;
 import com.hz.models.envoy.AuthorisationToken;
 import com.hz.models.envoy.xml.EnvoyInfo;
+import com.hz.services.EnvoyReplayServer;
+import com.hz.services.EnvoyService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.apache.hc.client5.http.classic.HttpClient;
@@ -22,6 +25,7 @@ import org.apache.hc.client5.http.ssl.TrustSelfSignedStrategy;
 import org.apache.hc.core5.http.config.Registry;
 import org.apache.hc.core5.http.config.RegistryBuilder;
 import org.apache.hc.core5.ssl.SSLContexts;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
@@ -39,6 +43,7 @@ import java.io.IOException;
 import java.security.KeyManagementException;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
 import java.time.Duration;
 import java.util.Collections;
 
@@ -50,24 +55,33 @@ public class EnphaseSystemInfoConfig {
 
 	private final EnphaseCollectorProperties config;
 
-	private RestTemplate infoRestTemplate(RestTemplateBuilder builder, HttpClientConnectionManager cm) {
+	private RestTemplate infoRestTemplate(EnphaseCollectorProperties siteConfig, RestTemplateBuilder builder, HttpClientConnectionManager cm, EnvoyCaptureInterceptor captureInterceptor) {
 
 		HttpClient httpClient = HttpClients
 				.custom()
 				.useSystemProperties()
 				.setConnectionManager(cm)
-				.setRetryStrategy(new EnphaseRequestRetryStrategy())
+				.setRetryStrategy(new EnphaseInfoRetryStrategy())
 				.build();
 
-		return builder
-				.rootUri(config.getController().getUrl())
+		RestTemplateBuilder templateBuilder = builder
+				.rootUri(siteConfig.getController().getUrl())
 				.setConnectTimeout(Duration.ofSeconds(5))
-				.requestFactory(() -> new BufferingClientHttpRequestFactory(new HttpComponentsClientHttpRequestFactory(httpClient)))
-				.build();
+				.requestFactory(() -> new BufferingClientHttpRequestFactory(new HttpComponentsClientHttpRequestFactory(httpClient)));
+
+		if (captureInterceptor.isEnabled()) {
+			templateBuilder = templateBuilder.additionalInterceptors(captureInterceptor);
+		}
+		return templateBuilder.build();
 	}
 
 	@Bean
 	public HttpClientConnectionManager sslConnectionManager() throws NoSuchAlgorithmException, KeyStoreException, KeyManagementException {
+		return createConnectionManager();
+	}
+
+	// Each envoy gets its own pool so one slow gateway cannot hold the connections of another
+	public HttpClientConnectionManager createConnectionManager() throws NoSuchAlgorithmException, KeyStoreException, KeyManagementException {
 		SSLContext sslContext = SSLContexts.custom()
 				.loadTrustMaterial(null, new TrustSelfSignedStrategy())
 				.build();
@@ -77,18 +91,34 @@ public class EnphaseSystemInfoConfig {
 						.register("http", new PlainConnectionSocketFactory())
 						.build();
 
-		return new PoolingHttpClientConnectionManager(socketFactoryRegistry);
+		PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(socketFactoryRegistry);
+		// A connection for each read of a concurrent collection, with a couple spare for requests made outside a collection
+		connectionManager.setDefaultMaxPerRoute(EnvoyService.COLLECTION_THREADS + 2);
+		return connectionManager;
+	}
+
+	// The time the additional sites are aged by, so tests can move it on rather than wait
+	@Bean
+	public Clock clock() {
+		return Clock.systemUTC();
 	}
 
 	@Bean
-	public EnvoyInfo envoyInfo(RestTemplateBuilder restTemplateBuilder, HttpClientConnectionManager sslConnectionManager) {
-		log.info("Reading system information from Envoy controller endpoint {}{}", config.getController().getUrl(), EnphaseURLS.CONTROLLER);
+	public EnvoyInfo envoyInfo(RestTemplateBuilder restTemplateBuilder, HttpClientConnectionManager sslConnectionManager,
+	                           EnvoyCaptureInterceptor captureInterceptor, ObjectProvider<EnvoyReplayServer> replayServer) {
+		// With the replay profile the stand in envoy must be listening before info.xml is read
+		replayServer.ifAvailable(server -> log.info("Using replayed envoy on port {}", server.getPort()));
+		return readEnvoyInfo(config, restTemplateBuilder, sslConnectionManager, captureInterceptor);
+	}
+
+	public EnvoyInfo readEnvoyInfo(EnphaseCollectorProperties siteConfig, RestTemplateBuilder restTemplateBuilder, HttpClientConnectionManager connectionManager, EnvoyCaptureInterceptor captureInterceptor) {
+		log.info("Reading system information from Envoy controller endpoint {}{}", siteConfig.getController().getUrl(), EnphaseURLS.CONTROLLER);
 		try {
 			ObjectMapper xmlMapper = new XmlMapper();
 			xmlMapper.registerModule(new JakartaXmlBindAnnotationModule());
 			xmlMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
 
-			String infoXml = infoRestTemplate(restTemplateBuilder, sslConnectionManager).getForObject(EnphaseURLS.CONTROLLER, String.class);
+			String infoXml = infoRestTemplate(siteConfig, restTemplateBuilder, connectionManager, captureInterceptor).getForObject(EnphaseURLS.CONTROLLER, String.class);
 			if (infoXml != null) {
 				return xmlMapper.readValue(infoXml, EnvoyInfo.class);
 			}
@@ -101,18 +131,22 @@ public class EnphaseSystemInfoConfig {
 
 	@Bean
 	public AuthorisationToken getAuthorisation(EnvoyInfo envoyInfo) throws JsonProcessingException {
+		return makeAuthorisation(config, envoyInfo);
+	}
+
+	public AuthorisationToken makeAuthorisation(EnphaseCollectorProperties siteConfig, EnvoyInfo envoyInfo) throws JsonProcessingException {
 		if (envoyInfo.isV7orAbove()) {
-			if (config.getBearerToken() == null || config.getBearerToken().trim().isEmpty()) {
-				if (config.getEnphaseWebUser() != null && config.getEnphaseWebUser().trim().isEmpty()
-						&& config.getEnphaseWebPassword() != null && config.getEnphaseWebPassword().trim().isEmpty()
+			if (siteConfig.getBearerToken() == null || siteConfig.getBearerToken().trim().isEmpty()) {
+				if (siteConfig.getEnphaseWebUser() != null && siteConfig.getEnphaseWebUser().trim().isEmpty()
+						&& siteConfig.getEnphaseWebPassword() != null && siteConfig.getEnphaseWebPassword().trim().isEmpty()
 						&& envoyInfo.getSerialNumber() != null && envoyInfo.getSerialNumber().trim().isEmpty()) {
 					log.error("Neither Bearer Token or Enphase Web User details provided.  Cannot generate authentication");
 				}
-				return AuthorisationToken.makeV7TokenFetched(config.getEnphaseWebUser(), config.getEnphaseWebPassword(), envoyInfo.getSerialNumber());
+				return AuthorisationToken.makeV7TokenFetched(siteConfig.getEnphaseWebUser(), siteConfig.getEnphaseWebPassword(), envoyInfo.getSerialNumber());
 			}
-			return AuthorisationToken.makeV7TokenProvided(config.getBearerToken());
+			return AuthorisationToken.makeV7TokenProvided(siteConfig.getBearerToken());
 		}
-		return AuthorisationToken.makeV5(envoyInfo, config.getController().getPassword());
+		return AuthorisationToken.makeV5(envoyInfo, siteConfig.getController().getPassword());
 	}
 
 	/**
@@ -1,5 +1,6 @@
 package com.hz.configuration;
 
+import com.hz.metrics.Downsampler;
 import io.micrometer.influx.InfluxConfig;
 import io.micrometer.influx.InfluxMeterRegistry;
 import lombok.RequiredArgsConstructor;
@@ -23,7 +24,7 @@ public class InfluxDBConfig {
 
 	private final EnphaseCollectorProperties config;
 
-	private static final String SOLAR_DATABASE_NAME = "solardb";
+	public static final String SOLAR_DATABASE_NAME = "solardb";
 	private static final String SOLAR_METRICS_DATABASE_NAME = "collectorStats";
 	private static final String SOLAR_METRICS_ORGANISATION = "hzindustries";
 
@@ -142,6 +143,9 @@ public class InfluxDBConfig {
 			}
 
 			database.query(new Query(String.format("CREATE DATABASE \"%1s\" WITH DURATION 365d", SOLAR_DATABASE_NAME)));
+			if (config.isInfluxDownsample()) {
+				createRetentionPolicies(database);
+			}
 		} catch (Exception e) {
 			log.error("InfluxDB Exception: {}", e.getMessage());
 			throw e;
@@ -149,7 +153,16 @@ public class InfluxDBConfig {
 
 		database.setDatabase(SOLAR_DATABASE_NAME);
 		database.enableBatch(BatchOptions.DEFAULTS);
+		database.enableGzip();
 		database.setLogLevel(InfluxDB.LogLevel.NONE);
 		return database;
 	}
+
+	// Each aggregate window is kept in its own retention policy
+	private void createRetentionPolicies(InfluxDB database) {
+		for (Downsampler.Window window : Downsampler.Window.values()) {
+			log.info("Writing {} aggregates to retention policy {} kept for {}", window, window.getRetentionPolicy(), window.getRetention());
+			database.query(new Query(String.format("CREATE RETENTION POLICY \"%1s\" ON \"%2s\" DURATION %3s REPLICATION 1", window.getRetentionPolicy(), SOLAR_DATABASE_NAME, window.getRetention())));
+		}
+	}
 }
@@ -0,0 +1,18 @@
+package com.hz.configuration;
+
+import com.hz.components.OutputEventMulticaster;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.support.AbstractApplicationContext;
+
+@Configuration
+public class OutputDispatchConfig {
+
+	// Replaces the context's own multicaster so events for the outputs are queued per output
+	@Bean(AbstractApplicationContext.APPLICATION_EVENT_MULTICASTER_BEAN_NAME)
+	public OutputEventMulticaster applicationEventMulticaster(ObjectProvider<EnphaseCollectorProperties> properties, ObjectProvider<MeterRegistry> meterRegistry) {
+		return new OutputEventMulticaster(properties, meterRegistry);
+	}
+}
@@ -0,0 +1,23 @@
+package com.hz.configuration;
+
+import com.hz.components.CachedPrometheusScrapeEndpoint;
+import io.prometheus.client.CollectorRegistry;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.boot.actuate.autoconfigure.metrics.export.ConditionalOnEnabledMetricsExport;
+import org.springframework.boot.actuate.metrics.export.prometheus.PrometheusScrapeEndpoint;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConditionalOnEnabledMetricsExport("prometheus")
+@ConditionalOnAvailableEndpoint(endpoint = PrometheusScrapeEndpoint.class)
+public class PrometheusEndpointConfig {
+
+	// Takes the place of the default scrape endpoint, renders are kept for at most one collection period
+	@Bean
+	public CachedPrometheusScrapeEndpoint cachedPrometheusEndpoint(CollectorRegistry collectorRegistry, EnphaseCollectorProperties properties) {
+		return new CachedPrometheusScrapeEndpoint(collectorRegistry, Duration.ofMillis(properties.getRefreshSeconds()));
+	}
+}
@@ -20,6 +20,7 @@ public class PvOutputClientConfig {
 
 	public static final String ADD_STATUS = "/service/r2/addstatus.jsp";
 	public static final String GET_STATUS = "/service/r2/getstatus.jsp";
+	public static final String ADD_BATCH_STATUS = "/service/r2/addbatchstatus.jsp";
 
 	// HTTP Post to https://pvoutput.org/service/r2/addstatus.jsp
 	// add headers
@@ -37,6 +38,9 @@ public class PvOutputClientConfig {
 	// v6	Voltage	            No	        decimal	    volts	    210.7
 	// c1	Cumulative Flag	    No	        number	    -	        1
 	// n	Net Flag	        No	        number	    -	        1
+	//
+	// addbatchstatus.jsp takes up to 30 (100 for donors) of the above in data, each d,t,v1,v2,v3,v4,v5,v6 separated by ;
+	// and answers with d,t,1 for each status added or d,t,0 when it was not
 
 
 	@Bean(name="pvRestTemplate")
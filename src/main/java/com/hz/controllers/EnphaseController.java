@@ -8,6 +8,7 @@ import com.hz.models.database.Summary;
 import com.hz.models.dto.PanelProduction;
 import com.hz.models.envoy.xml.EnvoyInfo;
 import com.hz.services.EnvoyService;
+import com.hz.services.LiveService;
 import com.hz.services.LocalDBService;
 import com.hz.utils.Convertors;
 import com.hz.utils.Validators;
@@ -16,10 +17,12 @@ import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.math.BigDecimal;
 import java.text.NumberFormat;
@@ -42,6 +45,7 @@ public class EnphaseController {
 
 	private final EnvoyService envoyService;
 	private final LocalDBService localDBService;
+	private final LiveService liveService;
 	private final EnphaseCollectorProperties properties;
 	private final EnvoyInfo envoyInfo;
 	private final ReleaseInfoContributor release;
@@ -160,12 +164,11 @@ public class EnphaseController {
 
 	@GetMapping(value = "/pvc", produces = "application/json; charset=UTF-8")
 	@ResponseBody
-	public PvC getPvc() {
+	public PvC getPvc(@RequestParam(required = false) Integer minutes) {
 		PvC pvc = new PvC();
 
 		try {
-			localDBService.getEventsForToday().forEach(pvc::addEvent);
-			pvc.generateExcess(localDBService.getPanelProduction(), properties.getExportLimit());
+			localDBService.getRollupsForToday(minutes).forEach(rollup -> pvc.addRollup(rollup, properties.getExportLimit()));
 			pvc.setPlotBands(properties.getBands().stream().map(b -> new PlotBand(b.getFrom(), b.getTo(), b.getColour())).toList());
 		} catch (Exception e) {
 			log.error("getPvc Exception: {}", e.getMessage(), e);
@@ -193,6 +196,13 @@ public class EnphaseController {
 		return result;
 	}
 
+	// Each collection as it arrives, for the live charts to append rather than polling the endpoints below
+	@GetMapping(value = "/live", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	@ResponseBody
+	public SseEmitter getLive() {
+		return liveService.subscribe();
+	}
+
 	@GetMapping(value = "/production", produces = "application/json; charset=UTF-8")
 	@ResponseBody
 	public Integer getProduction() {
@@ -1,7 +1,6 @@
 package com.hz.controllers.models;
 
-import com.hz.models.database.Event;
-import com.hz.models.database.PanelSummary;
+import com.hz.models.database.EventRollup;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
@@ -18,13 +17,17 @@ public class PvC {
 	List<IntValue> excess = new ArrayList<>();
 	List<PlotBand> plotBands = new ArrayList<>();
 
-	public void addEvent(Event event) {
-		consumption.add(new IntValue(event.getTime(), event.getConsumption().multiply(BigDecimal.valueOf(-1))));
-		production.add(new IntValue(event.getTime(), event.getProduction()));
-		gridImport.add(new IntValue(event.getTime(), calculateGridUsage(event.getProduction(),event.getConsumption())));
+	// A period of the day's rollup is plotted as the mean of its events
+	public void addRollup(EventRollup rollup, int exportLimit) {
+		consumption.add(new IntValue(rollup.getStart(), rollup.getMeanConsumption().negate()));
+		production.add(new IntValue(rollup.getStart(), rollup.getMeanProduction()));
+		gridImport.add(new IntValue(rollup.getStart(), rollup.getMeanGridImport()));
+		if (exportLimit > 0) {
+			excess.add(new IntValue(rollup.getStart(), rollup.getMeanExcess()));
+		}
 	}
 
-	private BigDecimal calculateGridUsage(BigDecimal production, BigDecimal consumption) {
+	public static BigDecimal calculateGridUsage(BigDecimal production, BigDecimal consumption) {
 		if (production.compareTo(consumption) < 0) {
 			return consumption.subtract(production);
 		}
@@ -32,7 +35,7 @@ public class PvC {
 		return BigDecimal.ZERO;
 	}
 
-	private BigDecimal calculateExcess(BigDecimal production, BigDecimal consumption, BigDecimal exportLimit) {
+	public static BigDecimal calculateExcess(BigDecimal production, BigDecimal consumption, BigDecimal exportLimit) {
 		// Are we producing more power than we can export
 		if (production.compareTo(exportLimit) > 0) {
 			// Are we importing from the grid
@@ -44,10 +47,4 @@ public class PvC {
 		}
 		return BigDecimal.ZERO;
 	}
-
-	public void generateExcess(List<PanelSummary> panelSummaries, int exportLimit) {
-		if (exportLimit > 0) {
-			panelSummaries.forEach(panelSummary -> excess.add(new IntValue(panelSummary.getTime(), calculateExcess(panelSummary.getProduction(), panelSummary.getConsumption(), BigDecimal.valueOf(exportLimit)))));
-		}
-	}
 }
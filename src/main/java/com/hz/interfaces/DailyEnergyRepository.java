@@ -0,0 +1,18 @@
+package com.hz.interfaces;
+
+import com.hz.models.database.DailyEnergy;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+public interface DailyEnergyRepository extends CrudRepository<DailyEnergy, LocalDate> {
+	Optional<DailyEnergy> findFirstByDateBeforeOrderByDateDesc(LocalDate date);
+
+	// The latest day before the given date is kept to continue from
+	@Query(value="delete from Daily_Energy where date < (select max(date) from Daily_Energy where date < ?1)", nativeQuery=true)
+	@Modifying
+	void deleteDailyEnergyBeforeLatest(LocalDate date);
+}
@@ -0,0 +1,10 @@
+package com.hz.interfaces;
+
+import com.hz.models.database.EndpointSupport;
+import org.springframework.data.repository.CrudRepository;
+
+import java.util.List;
+
+public interface EndpointSupportRepository extends CrudRepository<EndpointSupport, String> {
+	List<EndpointSupport> findAllByEnvoySerialAndEnvoyVersion(String envoySerial, String envoyVersion);
+}
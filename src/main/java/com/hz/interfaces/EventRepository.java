@@ -1,6 +1,6 @@
 package com.hz.interfaces;
 
-import com.hz.models.database.DailySummary;
+import com.hz.models.database.DailyEventSummary;
 import com.hz.models.database.Event;
 import com.hz.models.database.Total;
 import org.springframework.data.jpa.repository.Modifying;
@@ -9,10 +9,10 @@ import org.springframework.data.repository.CrudRepository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 public interface EventRepository extends CrudRepository<Event, Long> {
 	Event findTopByTime(LocalDateTime time);
-	List<Event> findEventsByTimeAfter(LocalDateTime time);
 
 	@Query(value = "select COALESCE(sum(production - consumption), 0) from Event where time > ?1 and (production - consumption) > 0", nativeQuery = true)
 	Long findExcessProductionAfter(LocalDateTime time);
@@ -32,19 +32,19 @@ public interface EventRepository extends CrudRepository<Event, Long> {
 	@Query(value = "select cast(time as date) as date, COALESCE(sum(production),0) as summary from Event where time > ?1 group by date order by date", nativeQuery = true)
 	List<Total> findDailyTotalProductionAfter(LocalDateTime time);
 
-	@Query(value = "select cast(time as date) as date, COALESCE(sum(consumption - production),0) as summary from Event where time < ?1 and (consumption - production) >= 0 group by date order by date", nativeQuery = true)
-	List<Total> findAllExcessConsumptionBefore(LocalDateTime time);
+	@Query(value = "select cast(time as date) as date, COALESCE(sum(production),0) as production, COALESCE(sum(consumption),0) as consumption, " +
+			"COALESCE(sum(case when (consumption - production) >= 0 then consumption - production end),0) as gridImport, " +
+			"COALESCE(sum(case when (production - consumption) >= 0 then production - consumption end),0) as gridExport, " +
+			"COALESCE(max(case when production >= 0 then production end),0) as highestOutput " +
+			"from Event where time >= ?1 and time < ?2 group by date", nativeQuery = true)
+	Optional<DailyEventSummary> findDailySummaryBetween(LocalDateTime from, LocalDateTime to);
 
-	@Query(value = "select cast(time as date) as date, COALESCE(sum(production - consumption),0) as summary from Event where time < ?1 and (production - consumption) >= 0 group by date order by date", nativeQuery = true)
-	List<Total> findAllExcessProductionBefore(LocalDateTime time);
+	Optional<Event> findFirstByTimeBeforeOrderByTimeAsc(LocalDateTime time);
 
-	@Query(value = "select cast(time as date) as date, COALESCE(max(production),0) as summary from Event where time < ?1 and production >= 0 group by date order by date", nativeQuery = true)
-	List<Total> findAllMaxProductionBefore(LocalDateTime time);
+	@Query(value = "select id from Event where time < ?1 limit ?2", nativeQuery = true)
+	List<Long> findIdsBefore(LocalDateTime time, int limit);
 
-	@Query(value = "select cast(time as date) as date, COALESCE(sum(production),0) as production, COALESCE(sum(consumption),0) as consumption from Event where time < ?1 group by date order by date", nativeQuery = true)
-	List<DailySummary> findAllBefore(LocalDateTime time);
-
-	@Query(value="delete from Event where time < ?1", nativeQuery=true)
+	@Query(value="delete from Event where id in ?1", nativeQuery=true)
 	@Modifying
-	void deleteEventsByTimeBefore(LocalDateTime time);
+	void deleteEventsById(List<Long> ids);
 }
@@ -0,0 +1,24 @@
+package com.hz.interfaces;
+
+import com.hz.models.database.EventRollup;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface EventRollupRepository extends CrudRepository<EventRollup, Long> {
+	Optional<EventRollup> findByResolutionAndStart(int resolution, LocalDateTime start);
+
+	List<EventRollup> findByResolutionAndStartGreaterThanEqualOrderByStartAsc(int resolution, LocalDateTime start);
+
+	@Query(value="delete from EVENT_ROLLUP where start < ?1", nativeQuery=true)
+	@Modifying
+	void deleteRollupsByStartBefore(LocalDateTime time);
+
+	@Query(value="delete from EVENT_ROLLUP where start >= ?1", nativeQuery=true)
+	@Modifying
+	void deleteRollupsByStartFrom(LocalDateTime time);
+}
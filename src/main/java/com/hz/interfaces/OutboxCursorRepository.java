@@ -0,0 +1,7 @@
+package com.hz.interfaces;
+
+import com.hz.models.database.OutboxCursor;
+import org.springframework.data.repository.CrudRepository;
+
+public interface OutboxCursorRepository extends CrudRepository<OutboxCursor, String> {
+}
@@ -0,0 +1,21 @@
+package com.hz.interfaces;
+
+import com.hz.models.database.OutboxEntry;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface OutboxRepository extends CrudRepository<OutboxEntry, Long> {
+	List<OutboxEntry> findTop100ByIdGreaterThanOrderByIdAsc(Long id);
+
+	Optional<OutboxEntry> findTopByOrderByIdDesc();
+
+	// Entries every output has taken and those kept longer than the retention period
+	@Query("delete from OutboxEntry where id <= ?1 or created < ?2")
+	@Modifying
+	int deleteTakenOrCreatedBefore(Long id, LocalDateTime created);
+}
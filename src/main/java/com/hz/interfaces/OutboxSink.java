@@ -0,0 +1,21 @@
+package com.hz.interfaces;
+
+import com.hz.models.events.MetricCollectionEvent;
+
+/**
+ * An external output fed from the outbox.  deliver throws when the output could not take the event, which is then
+ * delivered again once the output is back, unless isRejected says the output refused the event itself
+ */
+public interface OutboxSink {
+	String getOutputName();
+
+	void deliver(MetricCollectionEvent metricCollectionEvent);
+
+	/**
+	 * Whether the failure of deliver was the output refusing the event rather than being unavailable.  A rejected event
+	 * would fail the same way every time so it is skipped
+	 */
+	default boolean isRejected(RuntimeException e) {
+		return false;
+	}
+}
@@ -1,6 +1,7 @@
 package com.hz.interfaces;
 
 import com.hz.models.database.Panel;
+import com.hz.models.database.PanelReading;
 import com.hz.models.database.PanelSummary;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
@@ -16,18 +17,21 @@ public interface PanelRepository extends JpaRepository<Panel, Long> {
 			"order by Event.time", nativeQuery = true)
 	List<PanelSummary> getPanelSummaries(LocalDateTime time);
 
-	@Query(value="delete from Panel where Panel.id not in (select panels_id from EVENT_PANELS)", nativeQuery=true)
-	@Modifying
-	void deletePanelsByTimeBefore(LocalDateTime time);
-
-	@Query(value="delete from EVENT_PANELS where EVENT_PANELS.event_id in (select id from EVENT where Event.time < ?1)", nativeQuery=true)
-	@Modifying
-	void deleteEventsPanelByTimeBefore(LocalDateTime time);
+	// Panels are only stored when they report so every event is returned, with or without panels, in time order
+	@Query(value = "SELECT Event.id as id, Event.time as time, Event.production as production, Event.consumption as consumption, Panel.identifier as identifier, Panel.PANEL_VALUE as panelValue " +
+			"FROM Event LEFT JOIN EVENT_PANELS ON EVENT_PANELS.event_id = Event.id LEFT JOIN Panel ON Panel.id = EVENT_PANELS.panels_id " +
+			"where Event.time >= ?1 " +
+			"order by Event.time, Event.id", nativeQuery = true)
+	List<PanelReading> getPanelReadings(LocalDateTime time);
 
-	@Query(value="select count(*) from EVENT_PANELS where EVENT_PANELS.event_id in (select id from EVENT where Event.time < ?1)", nativeQuery=true)
-	int countEventsPanelByTimeBefore(LocalDateTime time);
+	@Query(value="select panels_id from EVENT_PANELS where event_id in ?1", nativeQuery=true)
+	List<Long> findPanelIdsByEvents(List<Long> eventIds);
 
-	@Query(value="select count(*) from Panel where Panel.id not in (select panels_id from EVENT_PANELS)", nativeQuery=true)
-	int countPanelsByTimeBefore(LocalDateTime time);
+	@Query(value="delete from EVENT_PANELS where event_id in ?1", nativeQuery=true)
+	@Modifying
+	void deleteEventPanelsByEvents(List<Long> eventIds);
 
+	@Query(value="delete from Panel where id in ?1", nativeQuery=true)
+	@Modifying
+	void deletePanelsById(List<Long> ids);
 }
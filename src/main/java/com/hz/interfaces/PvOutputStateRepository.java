@@ -0,0 +1,7 @@
+package com.hz.interfaces;
+
+import com.hz.models.database.PvOutputState;
+import org.springframework.data.repository.CrudRepository;
+
+public interface PvOutputStateRepository extends CrudRepository<PvOutputState, String> {
+}
@@ -0,0 +1,75 @@
+package com.hz.metrics;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+
+/**
+ * Running totals of one day's events, kept as each event is stored so the status tiles do not sum the Event table on
+ * every page.  Values are rounded to the 2 places the Event table keeps and the totals truncated to whole watts as the
+ * queries they replace return them
+ */
+public class DailyTotals {
+	private static final int EVENT_SCALE = 2;
+
+	private final LocalDate date;
+	private BigDecimal production;
+	private BigDecimal consumption;
+	private BigDecimal excessProduction;
+	private BigDecimal excessConsumption;
+	private BigDecimal maxProduction;
+
+	public DailyTotals(LocalDate date) {
+		this(date, 0L, 0L, 0L, 0L, 0L);
+	}
+
+	public DailyTotals(LocalDate date, long production, long consumption, long excessProduction, long excessConsumption, long maxProduction) {
+		this.date = date;
+		this.production = BigDecimal.valueOf(production);
+		this.consumption = BigDecimal.valueOf(consumption);
+		this.excessProduction = BigDecimal.valueOf(excessProduction);
+		this.excessConsumption = BigDecimal.valueOf(excessConsumption);
+		this.maxProduction = BigDecimal.valueOf(maxProduction);
+	}
+
+	public LocalDate getDate() {
+		return date;
+	}
+
+	public synchronized void add(BigDecimal eventProduction, BigDecimal eventConsumption) {
+		BigDecimal produced = eventProduction.setScale(EVENT_SCALE, RoundingMode.HALF_UP);
+		BigDecimal consumed = eventConsumption.setScale(EVENT_SCALE, RoundingMode.HALF_UP);
+		BigDecimal difference = produced.subtract(consumed);
+
+		production = production.add(produced);
+		consumption = consumption.add(consumed);
+		if (difference.signum() > 0) {
+			excessProduction = excessProduction.add(difference);
+		} else if (difference.signum() < 0) {
+			excessConsumption = excessConsumption.subtract(difference);
+		}
+		maxProduction = maxProduction.max(produced);
+	}
+
+	public synchronized long getProduction() {
+		return production.longValue();
+	}
+
+	public synchronized long getConsumption() {
+		return consumption.longValue();
+	}
+
+	// Production above consumption, which was exported
+	public synchronized long getExcessProduction() {
+		return excessProduction.longValue();
+	}
+
+	// Consumption above production, which was imported
+	public synchronized long getExcessConsumption() {
+		return excessConsumption.longValue();
+	}
+
+	public synchronized long getMaxProduction() {
+		return maxProduction.longValue();
+	}
+}
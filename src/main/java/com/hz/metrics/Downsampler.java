@@ -0,0 +1,128 @@
+package com.hz.metrics;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rolling 5 minute, hourly and daily aggregates of every metric and panel of each site.  Each window keeps the mean,
+ * the max and the integral over time in value hours, Wh for the power metrics.  An aggregate is closed, and held until
+ * taken with getClosed, when the first collection after the end of its window arrives.
+ * A collection no later than the last one of its site has already been counted and is ignored, so a collection that is
+ * delivered again after a failed write is not counted twice
+ */
+public class Downsampler {
+	// A gap longer than this is an outage rather than a slow report, so only this much of it is integrated
+	private static final Duration MAX_GAP = Duration.ofMinutes(15);
+	private static final double MILLIS_PER_HOUR = 3_600_000.0;
+
+	public enum Window {
+		FIVE_MINUTES("5m", "90d"),
+		HOURLY("1h", "730d"),
+		DAILY("1d", "INF");
+
+		private final String suffix;
+		private final String retention;
+
+		Window(String suffix, String retention) {
+			this.suffix = suffix;
+			this.retention = retention;
+		}
+
+		// Appended to the aggregate measurement names, eg panel_5m
+		public String getSuffix() {
+			return suffix;
+		}
+
+		public String getRetentionPolicy() {
+			return "solar_" + suffix;
+		}
+
+		public String getRetention() {
+			return retention;
+		}
+
+		public LocalDateTime start(LocalDateTime time) {
+			return switch (this) {
+				case FIVE_MINUTES -> time.truncatedTo(ChronoUnit.MINUTES).withMinute(time.getMinute() - time.getMinute() % 5);
+				case HOURLY -> time.truncatedTo(ChronoUnit.HOURS);
+				case DAILY -> time.truncatedTo(ChronoUnit.DAYS);
+			};
+		}
+	}
+
+	public record Aggregate(Window window, String site, LocalDateTime start, String name, double mean, double max, double integral) {
+		public boolean isSolarPanel() {
+			return name.startsWith(Metric.METRIC_PANEL_NAME_PREFIX);
+		}
+	}
+
+	private static final class Accumulator {
+		private int count = 0;
+		private double sum = 0;
+		private double max = Double.NEGATIVE_INFINITY;
+		private double integral = 0;
+	}
+
+	private static final class SiteState {
+		private LocalDateTime last;
+		// Panels report less often than the site so each metric is integrated from its own last report
+		private final Map<String, LocalDateTime> lastReported = new HashMap<>();
+		private final Map<Window, LocalDateTime> starts = new EnumMap<>(Window.class);
+		private final Map<Window, Map<String, Accumulator>> windows = new EnumMap<>(Window.class);
+	}
+
+	private final Map<String, SiteState> sites = new HashMap<>();
+	private final List<Aggregate> closed = new ArrayList<>();
+
+	public void add(String site, LocalDateTime time, List<Metric> metrics) {
+		SiteState state = sites.computeIfAbsent(site, key -> new SiteState());
+		if (state.last != null && time.isAfter(state.last) == false) {
+			return;
+		}
+		state.last = time;
+
+		for (Window window : Window.values()) {
+			LocalDateTime start = window.start(time);
+			LocalDateTime current = state.starts.put(window, start);
+			if (current != null && current.isEqual(start) == false) {
+				close(window, site, current, state.windows.remove(window));
+			}
+		}
+
+		for (Metric metric : metrics) {
+			LocalDateTime previous = state.lastReported.put(metric.getName(), time);
+			double hours = previous == null ? 0 : Math.min(Duration.between(previous, time).toMillis(), MAX_GAP.toMillis()) / MILLIS_PER_HOUR;
+			for (Window window : Window.values()) {
+				Accumulator accumulator = state.windows.computeIfAbsent(window, key -> new LinkedHashMap<>()).computeIfAbsent(metric.getName(), key -> new Accumulator());
+				accumulator.count++;
+				accumulator.sum += metric.getValue();
+				accumulator.max = Math.max(accumulator.max, metric.getValue());
+				accumulator.integral += metric.getValue() * hours;
+			}
+		}
+	}
+
+	private void close(Window window, String site, LocalDateTime start, Map<String, Accumulator> accumulators) {
+		if (accumulators != null) {
+			accumulators.forEach((name, accumulator) -> closed.add(new Aggregate(window, site, start, name, accumulator.sum / accumulator.count, accumulator.max, accumulator.integral)));
+		}
+	}
+
+	/**
+	 * The aggregates closed since they were last cleared
+	 */
+	public List<Aggregate> getClosed() {
+		return List.copyOf(closed);
+	}
+
+	public void clearClosed() {
+		closed.clear();
+	}
+}
@@ -0,0 +1,109 @@
+package com.hz.metrics;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Immutable view of the metrics of one collection, built once so outputs can read values by key rather than scanning
+ * the metric list by name for every value.  Core metrics are held by Core ordinal and panels in collection order
+ */
+public final class MetricSnapshot {
+
+	public enum Core {
+		PRODUCTION_CURRENT(Metric.METRIC_PRODUCTION_CURRENT),
+		CONSUMPTION_CURRENT(Metric.METRIC_CONSUMPTION_CURRENT),
+		PRODUCTION_TOTAL(Metric.METRIC_PRODUCTION_TOTAL),
+		CONSUMPTION_TOTAL(Metric.METRIC_CONSUMPTION_TOTAL),
+		PRODUCTION_VOLTAGE(Metric.METRIC_PRODUCTION_VOLTAGE),
+		SOLAR_EXCESS(Metric.METRIC_SOLAR_EXCESS),
+		SOLAR_SAVINGS(Metric.METRIC_SOLAR_SAVINGS),
+		GRID_IMPORT(Metric.METRIC_GRID_IMPORT),
+		SOLAR_DIFFERENCE(Metric.METRIC_SOLAR_DIFFERENCE);
+
+		private static final Map<String, Core> BY_NAME = new HashMap<>();
+		static {
+			for (Core core : values()) {
+				BY_NAME.put(core.metricName.toLowerCase(Locale.ROOT), core);
+			}
+		}
+
+		private final String metricName;
+
+		Core(String metricName) {
+			this.metricName = metricName;
+		}
+
+		public String getMetricName() {
+			return metricName;
+		}
+
+		static Core find(String name) {
+			return BY_NAME.get(name.toLowerCase(Locale.ROOT));
+		}
+	}
+
+	private final float[] core = new float[Core.values().length];
+	private final boolean[] present = new boolean[Core.values().length];
+	private final String[] panelNames;
+	private final float[] panelValues;
+	private final Map<String, Integer> panelIndex;
+
+	public MetricSnapshot(List<Metric> metrics) {
+		int panels = (int) metrics.stream().filter(Metric::isSolarPanel).count();
+		panelNames = new String[panels];
+		panelValues = new float[panels];
+		Map<String, Integer> index = new HashMap<>(panels * 2);
+
+		int panel = 0;
+		for (Metric metric : metrics) {
+			if (metric.isSolarPanel()) {
+				panelNames[panel] = metric.getName();
+				panelValues[panel] = metric.getValue();
+				index.put(metric.getName(), panel++);
+			} else {
+				Core key = Core.find(metric.getName());
+				// The first value wins as it did when the list was searched
+				if (key != null && present[key.ordinal()] == false) {
+					core[key.ordinal()] = metric.getValue();
+					present[key.ordinal()] = true;
+				}
+			}
+		}
+		panelIndex = Collections.unmodifiableMap(index);
+	}
+
+	/**
+	 * The value of a core metric, 0 when the collection did not include it
+	 */
+	public float get(Core key) {
+		return core[key.ordinal()];
+	}
+
+	public boolean has(Core key) {
+		return present[key.ordinal()];
+	}
+
+	public int getPanelCount() {
+		return panelNames.length;
+	}
+
+	// The full metric name of the panel, including Metric.METRIC_PANEL_NAME_PREFIX
+	public String getPanelName(int panel) {
+		return panelNames[panel];
+	}
+
+	public float getPanelValue(int panel) {
+		return panelValues[panel];
+	}
+
+	/**
+	 * Position of the named panel in this snapshot, or -1 when it did not report in this collection
+	 */
+	public int indexOfPanel(String name) {
+		Integer panel = panelIndex.get(name);
+		return panel == null ? -1 : panel;
+	}
+}
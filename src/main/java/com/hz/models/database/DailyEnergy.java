@@ -0,0 +1,66 @@
+package com.hz.models.database;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.Hibernate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * The Envoy lifetime energy counters (Wh) at the start of a day and at the last reading of that day
+ */
+@Entity
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+public class DailyEnergy {
+	@Id
+	private LocalDate date;
+
+	private BigDecimal productionStart;
+	private BigDecimal productionEnd;
+	private BigDecimal consumptionStart;
+	private BigDecimal consumptionEnd;
+	private LocalDateTime lastReading;
+
+	public DailyEnergy(LocalDate date) {
+		this.date = date;
+	}
+
+	public BigDecimal getProduction() {
+		return difference(productionStart, productionEnd);
+	}
+
+	public BigDecimal getConsumption() {
+		return difference(consumptionStart, consumptionEnd);
+	}
+
+	// A counter that went backwards has been reset so says nothing about the day
+	private static BigDecimal difference(BigDecimal start, BigDecimal end) {
+		if (start == null || end == null || end.compareTo(start) < 0) {
+			return null;
+		}
+		return end.subtract(start);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || Hibernate.getClass(this) != Hibernate.getClass(o)) return false;
+		DailyEnergy that = (DailyEnergy) o;
+		return Objects.equals(date, that.date);
+	}
+
+	@Override
+	public int hashCode() {
+		return 0;
+	}
+}
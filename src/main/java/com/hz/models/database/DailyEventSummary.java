@@ -0,0 +1,10 @@
+package com.hz.models.database;
+
+/**
+ * Every figure a Summary needs from one day of the Event table, found in one pass over the day
+ */
+public interface DailyEventSummary extends DailySummary {
+	Long getGridImport();
+	Long getGridExport();
+	Long getHighestOutput();
+}
@@ -0,0 +1,54 @@
+package com.hz.models.database;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.Hibernate;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Whether an envoy running a given software version answered an optional endpoint when it was last probed
+ */
+@Entity
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+public class EndpointSupport implements Serializable {
+	@Id
+	private String id;
+
+	private String envoySerial;
+	private String envoyVersion;
+	private String endpoint;
+	private boolean supported;
+	private LocalDateTime probed;
+
+	public EndpointSupport(String envoySerial, String envoyVersion, String endpoint, boolean supported, LocalDateTime probed) {
+		this.id = envoySerial + endpoint;
+		this.envoySerial = envoySerial;
+		this.envoyVersion = envoyVersion;
+		this.endpoint = endpoint;
+		this.supported = supported;
+		this.probed = probed;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || Hibernate.getClass(this) != Hibernate.getClass(o)) return false;
+		EndpointSupport that = (EndpointSupport) o;
+		return Objects.equals(id, that.id);
+	}
+
+	@Override
+	public int hashCode() {
+		return 0;
+	}
+}
@@ -34,10 +34,14 @@ public class Event {
 
 	public void addSolarPanel(Metric metric) {
 		if (metric.isSolarPanel()) {
-			panels.add(new Panel(metric.getName(), metric.getValue()));
+			addSolarPanel(metric.getName(), metric.getValue());
 		}
 	}
 
+	public void addSolarPanel(String identifier, float value) {
+		panels.add(new Panel(identifier, value));
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (this == o) return true;
@@ -0,0 +1,92 @@
+package com.hz.models.database;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.Hibernate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Today's events summed over resolution minutes from start, kept up to date as each event is stored so the day's chart
+ * reads one row per period rather than every event.  Grid import and excess are worked out for each event before they
+ * are summed, as PvC does
+ */
+@Entity
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+public class EventRollup {
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+
+	private int resolution;
+	private LocalDateTime start;
+	private int count = 0;
+	private BigDecimal production = BigDecimal.ZERO;
+	private BigDecimal consumption = BigDecimal.ZERO;
+	private BigDecimal gridImport = BigDecimal.ZERO;
+	private BigDecimal excess = BigDecimal.ZERO;
+
+	public EventRollup(int resolution, LocalDateTime start) {
+		this.resolution = resolution;
+		this.start = start;
+	}
+
+	public void add(BigDecimal eventProduction, BigDecimal eventConsumption, BigDecimal eventGridImport, BigDecimal eventExcess) {
+		count++;
+		production = production.add(eventProduction);
+		consumption = consumption.add(eventConsumption);
+		gridImport = gridImport.add(eventGridImport);
+		excess = excess.add(eventExcess);
+	}
+
+	public BigDecimal getMeanProduction() {
+		return mean(production);
+	}
+
+	public BigDecimal getMeanConsumption() {
+		return mean(consumption);
+	}
+
+	public BigDecimal getMeanGridImport() {
+		return mean(gridImport);
+	}
+
+	public BigDecimal getMeanExcess() {
+		return mean(excess);
+	}
+
+	private BigDecimal mean(BigDecimal sum) {
+		return count == 0 ? BigDecimal.ZERO : sum.divide(BigDecimal.valueOf(count), 2, RoundingMode.HALF_UP);
+	}
+
+	// The start of the period of the given minutes that time falls in, counted from midnight
+	public static LocalDateTime periodStart(LocalDateTime time, int resolution) {
+		int minuteOfDay = time.getHour() * 60 + time.getMinute();
+		return time.toLocalDate().atStartOfDay().plusMinutes(minuteOfDay - (long) minuteOfDay % resolution);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || Hibernate.getClass(this) != Hibernate.getClass(o)) return false;
+		EventRollup that = (EventRollup) o;
+		return id != null && Objects.equals(id, that.id);
+	}
+
+	@Override
+	public int hashCode() {
+		return 0;
+	}
+}
@@ -0,0 +1,41 @@
+package com.hz.models.database;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.Hibernate;
+
+import java.util.Objects;
+
+/**
+ * The id of the last OutboxEntry an external output has taken
+ */
+@Entity
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxCursor {
+	@Id
+	private String output;
+
+	private long lastId;
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || Hibernate.getClass(this) != Hibernate.getClass(o)) return false;
+		OutboxCursor that = (OutboxCursor) o;
+		return Objects.equals(output, that.output);
+	}
+
+	@Override
+	public int hashCode() {
+		return 0;
+	}
+}
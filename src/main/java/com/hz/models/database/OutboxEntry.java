@@ -0,0 +1,79 @@
+package com.hz.models.database;
+
+import com.hz.metrics.Metric;
+import com.hz.models.events.MetricCollectionEvent;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.Hibernate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A MetricCollectionEvent waiting to be taken by the external outputs.  Ids only ever increase so each output's
+ * OutboxCursor is the id of the last entry it took.  Metrics are held one per line as name and value separated by a tab
+ */
+@Entity
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+public class OutboxEntry {
+	private static final char SEPARATOR = '\t';
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+
+	private String site;
+	private boolean primarySite;
+	private LocalDateTime collectionTime;
+	@Column(length = 65535)
+	@ToString.Exclude
+	private String metrics;
+	private LocalDateTime created;
+
+	public OutboxEntry(MetricCollectionEvent metricCollectionEvent) {
+		this.site = metricCollectionEvent.getSite();
+		this.primarySite = metricCollectionEvent.isPrimary();
+		this.collectionTime = metricCollectionEvent.getCollectionTime();
+		this.created = LocalDateTime.now();
+
+		StringBuilder encoded = new StringBuilder();
+		metricCollectionEvent.getMetrics().forEach(metric -> encoded.append(metric.getName()).append(SEPARATOR).append(metric.getValue()).append('\n'));
+		this.metrics = encoded.toString();
+	}
+
+	public MetricCollectionEvent toEvent(Object source) {
+		List<Metric> decoded = new ArrayList<>();
+		if (metrics != null) {
+			metrics.lines().filter(line -> line.indexOf(SEPARATOR) > 0).forEach(line -> {
+				int split = line.lastIndexOf(SEPARATOR);
+				decoded.add(new Metric(line.substring(0, split), Float.parseFloat(line.substring(split + 1))));
+			});
+		}
+		return new MetricCollectionEvent(source, site, primarySite, collectionTime, decoded);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || Hibernate.getClass(this) != Hibernate.getClass(o)) return false;
+		OutboxEntry that = (OutboxEntry) o;
+		return Objects.equals(id, that.id);
+	}
+
+	@Override
+	public int hashCode() {
+		return 0;
+	}
+}
@@ -0,0 +1,13 @@
+package com.hz.models.database;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public interface PanelReading {
+	Long getId();
+	LocalDateTime getTime();
+	BigDecimal getProduction();
+	BigDecimal getConsumption();
+	String getIdentifier();
+	Float getPanelValue();
+}
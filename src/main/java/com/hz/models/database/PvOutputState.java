@@ -0,0 +1,66 @@
+package com.hz.models.database;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.Hibernate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Where PvOutput is up to, so the daily accumulators survive a restart and a collection delivered again is not counted
+ * twice.  Pending holds the statuses waiting to go in the next batch, separated by ; as addbatchstatus takes them
+ */
+@Entity
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+public class PvOutputState {
+	private static final String SEPARATOR = ";";
+
+	@Id
+	private String systemId;
+
+	private LocalDateTime nextUpdate;
+	private LocalDateTime lastReading;
+	private BigDecimal energyGenerated = BigDecimal.ZERO;
+	private BigDecimal energyConsumed = BigDecimal.ZERO;
+	private int powerGenerated = 0;
+	private int powerConsumed = 0;
+	private String pending;
+
+	public PvOutputState(String systemId, LocalDateTime nextUpdate) {
+		this.systemId = systemId;
+		this.nextUpdate = nextUpdate;
+	}
+
+	public List<String> getPendingStatuses() {
+		return pending == null || pending.isEmpty() ? new ArrayList<>() : new ArrayList<>(Arrays.asList(pending.split(SEPARATOR)));
+	}
+
+	public void setPendingStatuses(List<String> statuses) {
+		this.pending = statuses.isEmpty() ? null : String.join(SEPARATOR, statuses);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || Hibernate.getClass(this) != Hibernate.getClass(o)) return false;
+		PvOutputState that = (PvOutputState) o;
+		return Objects.equals(systemId, that.systemId);
+	}
+
+	@Override
+	public int hashCode() {
+		return 0;
+	}
+}
@@ -36,13 +36,13 @@ public class Summary {
 		this.production = production == null ? BigDecimal.ZERO : production;
 	}
 
-	public Summary(DailySummary daily, Total gridImport, Total gridExport, Total highestOutput, BigDecimal conversionRate) {
+	public Summary(DailyEventSummary daily, BigDecimal conversionRate) {
 		this.date = daily.getDate();
 		this.consumption = daily.getConsumption();
 		this.production = daily.getProduction();
-		this.gridImport = BigDecimal.valueOf(gridImport.getSummary());
-		this.gridExport = BigDecimal.valueOf(gridExport.getSummary());
-		this.highestOutput = highestOutput.getSummary();
+		this.gridImport = BigDecimal.valueOf(daily.getGridImport());
+		this.gridExport = BigDecimal.valueOf(daily.getGridExport());
+		this.highestOutput = daily.getHighestOutput();
 		this.conversionRate = conversionRate;
 	}
 
@@ -0,0 +1,22 @@
+package com.hz.models.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * The Envoy energy counters at a collection.  Any counter the Envoy does not report is null
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EnergyReading {
+	private LocalDateTime time;
+	private BigDecimal productionLifetime;      // Wh
+	private BigDecimal productionToday;         // Wh since midnight on the Envoy
+	private BigDecimal consumptionLifetime;
+	private BigDecimal consumptionToday;
+}
@@ -0,0 +1,20 @@
+package com.hz.models.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One raw Envoy response as written to the capture file
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EnvoyCapture {
+	private long time;              // Epoch millis the request was sent
+	private long durationMillis;
+	private String path;            // Including any query string
+	private int status;
+	private String contentType;
+	private String body;
+}
@@ -0,0 +1,8 @@
+package com.hz.models.dto;
+
+/**
+ * The means of the current rollup period as pushed to the live chart, the point /pvc has for the same period.  Time is
+ * the start of the period in epoch ms and excess is null without an export limit, as /pvc leaves it out
+ */
+public record LivePeriod(long time, int production, int consumption, int gridImport, Integer excess) {
+}
@@ -0,0 +1,7 @@
+package com.hz.models.dto;
+
+/**
+ * One collection as pushed to the live gauges.  Time is epoch ms as the charts use and power is in W
+ */
+public record LiveReading(long time, int production, int consumption, float voltage) {
+}
@@ -0,0 +1,20 @@
+package com.hz.models.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * Meter stream values averaged over one collection window
+ */
+@Data
+@AllArgsConstructor
+public class MeterStreamReading {
+	private long readingTime;       // Local epoch seconds of the last frame, as frames carry no Envoy time
+	private int frameCount;
+	private BigDecimal productionWatts;
+	private BigDecimal productionVoltage;
+	private BigDecimal totalConsumptionWatts;
+	private BigDecimal netConsumptionWatts;
+}
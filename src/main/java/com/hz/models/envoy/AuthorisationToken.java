@@ -21,8 +21,8 @@ public class AuthorisationToken {
 	private String user;
 	private String password;
 	private String serialNo;
-	private String jwt;
-	private LocalDateTime expires;
+	private volatile String jwt;
+	private volatile LocalDateTime expires;
 	private AuthorisationTokenType tokenType;
 
 	public AuthorisationToken(String user, String password) {
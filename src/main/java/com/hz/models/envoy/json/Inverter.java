@@ -1,5 +1,6 @@
 package com.hz.models.envoy.json;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
@@ -19,4 +20,6 @@ public class Inverter {
     private int deviceType;
     private int lastReportWatts;
     private int maxReportWatts;
+    @JsonIgnore
+    private boolean updated = true;     // False when lastReportDate has not moved since the previous collection
 }
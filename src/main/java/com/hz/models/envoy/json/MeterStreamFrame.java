@@ -0,0 +1,49 @@
+package com.hz.models.envoy.json;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One frame of the chunked /stream/meter response.  Each section is keyed by phase (ph-a, ph-b, ph-c)
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class MeterStreamFrame {
+	@JsonProperty(value="production")
+	private Map<String, MeterStreamPhase> production = new HashMap<>();
+	@JsonProperty(value="net-consumption")
+	private Map<String, MeterStreamPhase> netConsumption = new HashMap<>();
+	@JsonProperty(value="total-consumption")
+	private Map<String, MeterStreamPhase> totalConsumption = new HashMap<>();
+
+	@JsonIgnore
+	public BigDecimal getProductionWatts() {
+		return sumActivePower(production);
+	}
+
+	@JsonIgnore
+	public BigDecimal getNetConsumptionWatts() {
+		return sumActivePower(netConsumption);
+	}
+
+	@JsonIgnore
+	public BigDecimal getTotalConsumptionWatts() {
+		return sumActivePower(totalConsumption);
+	}
+
+	// Summed across phases to match the rmsVoltage reported by production.json
+	@JsonIgnore
+	public BigDecimal getProductionVoltage() {
+		return production.values().stream().map(MeterStreamPhase::getVoltage).reduce(BigDecimal.ZERO, BigDecimal::add);
+	}
+
+	private BigDecimal sumActivePower(Map<String, MeterStreamPhase> phases) {
+		return phases.values().stream().map(MeterStreamPhase::getActivePower).reduce(BigDecimal.ZERO, BigDecimal::add);
+	}
+}
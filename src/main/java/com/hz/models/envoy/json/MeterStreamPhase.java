@@ -0,0 +1,29 @@
+package com.hz.models.envoy.json;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * A single phase of a /stream/meter frame
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class MeterStreamPhase {
+	@JsonProperty(value="p")
+	private BigDecimal activePower = BigDecimal.ZERO;
+	@JsonProperty(value="q")
+	private BigDecimal reactivePower = BigDecimal.ZERO;
+	@JsonProperty(value="s")
+	private BigDecimal apparentPower = BigDecimal.ZERO;
+	@JsonProperty(value="v")
+	private BigDecimal voltage = BigDecimal.ZERO;
+	@JsonProperty(value="i")
+	private BigDecimal current = BigDecimal.ZERO;
+	@JsonProperty(value="pf")
+	private BigDecimal pwrFactor = BigDecimal.ZERO;
+	@JsonProperty(value="f")
+	private BigDecimal freq = BigDecimal.ZERO;
+}
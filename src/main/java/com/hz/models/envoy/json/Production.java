@@ -3,13 +3,20 @@ package com.hz.models.envoy.json;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 import lombok.extern.log4j.Log4j2;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -20,6 +27,8 @@ import java.util.Optional;
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class Production {
 	private static final String PRODUCTION_TYPE = "production";
+	private static final String TOTAL_CONSUMPTION_TYPE = "total-consumption";
+	private static final String NET_CONSUMPTION_TYPE = "net-consumption";
 
 	@JsonProperty(value="production")
 	private List<TypeBase> productionList;
@@ -33,6 +42,13 @@ public class Production {
 	@JsonIgnore
 	private List<DeviceMeter> deviceMeterList;
 
+	@JsonIgnore
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	@EqualsAndHashCode.Exclude
+	@ToString.Exclude
+	private Index index;
+
 	@JsonIgnore
 	public List<Inverter> getMicroInvertersList() {
 		return this.getInverter().orElseGet(InvertersType::new).getMicroInverters();
@@ -50,46 +66,39 @@ public class Production {
 
 	@JsonIgnore
 	public Optional<InvertersType> getInverter() {
-		return productionList.stream().filter(module -> module.getType().equalsIgnoreCase("inverters")).findFirst().map(InvertersType.class::cast);
+		return Optional.ofNullable(index().inverter);
 	}
 
 	@JsonIgnore
 	public Optional<EimType> getProductionEim() {
-		return findByMeasurementType(productionList, PRODUCTION_TYPE);
+		return Optional.ofNullable(index().productionEim);
 	}
 
 	@JsonIgnore
 	public Optional<EimType> getTotalConsumptionEim() {
-		return findByMeasurementType(consumptionList, "total-consumption");
+		return Optional.ofNullable(index().totalConsumptionEim);
 	}
 
 	@JsonIgnore
 	public Optional<EimType> getNetConsumptionEim() {
-		return findByMeasurementType(consumptionList, "net-consumption");
+		return Optional.ofNullable(index().netConsumptionEim);
 	}
 
 	private Optional<PowerMeter> getProductionMeter() {
-		return getDevice(PRODUCTION_TYPE).
-				flatMap(device -> getPowerMeter(device.getEid()));
+		return Optional.ofNullable(index().productionMeter);
 	}
 
 	private Optional<PowerMeter> getNetConsumptionMeter() {
-		return getDevice("net-consumption").
-				flatMap(device -> getPowerMeter(device.getEid()));
+		return Optional.ofNullable(index().netConsumptionMeter);
 	}
 
 	private Optional<PowerMeter> getTotalConsumptionMeter() {
-		return getDevice("total-consumption").
-				flatMap(device -> getPowerMeter(device.getEid()));
-	}
-
-	private Optional<PowerMeter> getPowerMeter(String eid) {
-		return powerMeterList.stream().filter(power -> power.getEid().compareToIgnoreCase(eid) == 0).findFirst();
+		return Optional.ofNullable(index().totalConsumptionMeter);
 	}
 
 	@JsonIgnore
 	public Optional<DeviceMeter> getDevice(String measurementType) {
-		return deviceMeterList.stream().filter(device -> device.getMeasurementType().compareToIgnoreCase(measurementType) == 0).findFirst();
+		return Optional.ofNullable(index().devices.get(measurementType.toLowerCase(Locale.ROOT)));
 	}
 
 	@JsonIgnore
@@ -143,17 +152,153 @@ public class Production {
 		return getTotalConsumptionEim().orElseGet(EimType::new).getWattsNow();
 	}
 
-	private Optional<EimType> findByMeasurementType(List<TypeBase> list, String measurementType) {
-		return filterToEimType(list).stream()
-				.filter(eim -> eim.getMeasurementType() == null || eim.getMeasurementType().equalsIgnoreCase(measurementType))
-				.findFirst();
+	// Primitive versions of the accessors above for the metric calculators, which run every collection.  They give the
+	// same values without the Optional, stream and default object allocations
+
+	@JsonIgnore
+	public double getProductionWattsValue() {
+		Index lookup = index();
+		if (lookup.productionMeter != null) {
+			return value(lookup.productionMeter.getActivePower());
+		}
+		if (lookup.productionEim != null) {
+			return value(lookup.productionEim.getWattsNow());
+		}
+		return lookup.inverter == null ? 0.0 : value(lookup.inverter.getWattsNow());
+	}
+
+	@JsonIgnore
+	public double getConsumptionWattsValue() {
+		Index lookup = index();
+		return meterOrEimWatts(lookup.totalConsumptionMeter, lookup.totalConsumptionEim);
+	}
+
+	@JsonIgnore
+	public double getNetConsumptionWattsValue() {
+		Index lookup = index();
+		return meterOrEimWatts(lookup.netConsumptionMeter, lookup.netConsumptionEim);
+	}
+
+	// Rounded to 3 places as getProductionVoltage is, and like it failing on a phase count of 0 rather than giving infinity
+	@JsonIgnore
+	public double getProductionVoltageValue() {
+		Index lookup = index();
+		double voltage;
+		if (lookup.productionMeter != null) {
+			voltage = value(lookup.productionMeter.getVoltage());
+		} else {
+			voltage = lookup.productionEim == null ? 0.0 : value(lookup.productionEim.getRmsVoltage());
+		}
+		DeviceMeter device = lookup.devices.get(PRODUCTION_TYPE);
+		int phases = device == null ? 1 : device.getPhaseCount();
+		if (phases == 0) {
+			throw new ArithmeticException("Production meter has no phases");
+		}
+		return Math.round(voltage / phases * 1000.0) / 1000.0;
+	}
+
+	private static double meterOrEimWatts(PowerMeter meter, EimType eim) {
+		if (meter != null) {
+			return value(meter.getActivePower());
+		}
+		return eim == null ? 0.0 : value(eim.getWattsNow());
+	}
+
+	private static double value(BigDecimal value) {
+		return value == null ? 0.0 : value.doubleValue();
+	}
+
+	// The lists are only replaced through their setters, which drop the index so it is rebuilt on next use
+	private Index index() {
+		Index result = index;
+		if (result == null) {
+			result = new Index(this);
+			index = result;
+		}
+		return result;
+	}
+
+	public void setProductionList(List<TypeBase> productionList) {
+		this.productionList = productionList;
+		this.index = null;
+	}
+
+	public void setConsumptionList(List<TypeBase> consumptionList) {
+		this.consumptionList = consumptionList;
+		this.index = null;
+	}
+
+	public void setPowerMeterList(List<PowerMeter> powerMeterList) {
+		this.powerMeterList = powerMeterList;
+		this.index = null;
 	}
 
-	private List<EimType> filterToEimType(List<TypeBase> list) {
-		return list == null ? new ArrayList<>() : list.stream()
-				.filter(module -> module.getType().equalsIgnoreCase("eim"))
-				.map(EimType.class::cast)
-				.toList();
+	public void setDeviceMeterList(List<DeviceMeter> deviceMeterList) {
+		this.deviceMeterList = deviceMeterList;
+		this.index = null;
 	}
 
+	/**
+	 * The modules and meters the accessors need, found once rather than by searching the lists on every call.
+	 * Where several match the first is used, as the list searches did
+	 */
+	private static final class Index {
+		private InvertersType inverter;
+		private EimType productionEim;
+		private EimType totalConsumptionEim;
+		private EimType netConsumptionEim;
+		private final Map<String, DeviceMeter> devices = new HashMap<>();
+		private final PowerMeter productionMeter;
+		private final PowerMeter totalConsumptionMeter;
+		private final PowerMeter netConsumptionMeter;
+
+		Index(Production production) {
+			if (production.productionList != null) {
+				for (TypeBase module : production.productionList) {
+					if (module instanceof InvertersType inverters && inverter == null) {
+						inverter = inverters;
+					} else if (module instanceof EimType eim && productionEim == null && matches(eim, PRODUCTION_TYPE)) {
+						productionEim = eim;
+					}
+				}
+			}
+			if (production.consumptionList != null) {
+				for (TypeBase module : production.consumptionList) {
+					if (module instanceof EimType eim) {
+						if (totalConsumptionEim == null && matches(eim, TOTAL_CONSUMPTION_TYPE)) {
+							totalConsumptionEim = eim;
+						}
+						if (netConsumptionEim == null && matches(eim, NET_CONSUMPTION_TYPE)) {
+							netConsumptionEim = eim;
+						}
+					}
+				}
+			}
+
+			Map<String, PowerMeter> powerMeters = new HashMap<>();
+			if (production.deviceMeterList != null) {
+				production.deviceMeterList.stream()
+						.filter(device -> device.getMeasurementType() != null)
+						.forEach(device -> devices.putIfAbsent(device.getMeasurementType().toLowerCase(Locale.ROOT), device));
+			}
+			if (production.powerMeterList != null) {
+				production.powerMeterList.stream()
+						.filter(meter -> meter.getEid() != null)
+						.forEach(meter -> powerMeters.putIfAbsent(meter.getEid().toLowerCase(Locale.ROOT), meter));
+			}
+			productionMeter = meterFor(PRODUCTION_TYPE, powerMeters);
+			totalConsumptionMeter = meterFor(TOTAL_CONSUMPTION_TYPE, powerMeters);
+			netConsumptionMeter = meterFor(NET_CONSUMPTION_TYPE, powerMeters);
+		}
+
+		// An eim without a measurement type is the only one of its kind
+		private static boolean matches(EimType eim, String measurementType) {
+			return eim.getMeasurementType() == null || eim.getMeasurementType().equalsIgnoreCase(measurementType);
+		}
+
+		private PowerMeter meterFor(String measurementType, Map<String, PowerMeter> powerMeters) {
+			DeviceMeter device = devices.get(measurementType);
+			return device == null || device.getEid() == null ? null : powerMeters.get(device.getEid().toLowerCase(Locale.ROOT));
+		}
+	}
 }
@@ -0,0 +1,17 @@
+package com.hz.models.events;
+
+import com.hz.models.dto.EnergyReading;
+import org.springframework.context.ApplicationEvent;
+
+public class EnergyReadingEvent extends ApplicationEvent implements OutputEvent {
+	private final EnergyReading energyReading;
+
+	public EnergyReadingEvent(Object source, EnergyReading energyReading) {
+		super(source);
+		this.energyReading = energyReading;
+	}
+
+	public EnergyReading getEnergyReading() {
+		return energyReading;
+	}
+}
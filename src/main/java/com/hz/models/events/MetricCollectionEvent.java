@@ -1,19 +1,38 @@
 package com.hz.models.events;
 
 import com.hz.metrics.Metric;
+import com.hz.metrics.MetricSnapshot;
 import org.springframework.context.ApplicationEvent;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
-public class MetricCollectionEvent extends ApplicationEvent {
+public class MetricCollectionEvent extends ApplicationEvent implements OutputEvent {
+	private final String site;
+	private final boolean primary;     // From envoy.controller rather than one of envoy.sites
 	private final LocalDateTime collectionTime;
 	private final List<Metric> metrics;
+	private final MetricSnapshot snapshot;
 
 	public MetricCollectionEvent(Object source, LocalDateTime collectionTime, List<Metric> metrics) {
+		this(source, null, true, collectionTime, metrics);
+	}
+
+	public MetricCollectionEvent(Object source, String site, boolean primary, LocalDateTime collectionTime, List<Metric> metrics) {
 		super(source);
+		this.site = site;
+		this.primary = primary;
 		this.collectionTime = collectionTime;
 		this.metrics = metrics;
+		this.snapshot = new MetricSnapshot(metrics);
+	}
+
+	public String getSite() {
+		return site;
+	}
+
+	public boolean isPrimary() {
+		return primary;
 	}
 
 	public LocalDateTime getCollectionTime() {
@@ -23,4 +42,15 @@ public class MetricCollectionEvent extends ApplicationEvent {
 	public List<Metric> getMetrics() {
 		return this.metrics;
 	}
+
+	// Only the latest collection of each site needs to reach a coalescing output
+	@Override
+	public Object getCoalesceKey() {
+		return site == null ? "" : site;
+	}
+
+	// The same metrics indexed for lookup, built once for every listener
+	public MetricSnapshot getSnapshot() {
+		return this.snapshot;
+	}
 }
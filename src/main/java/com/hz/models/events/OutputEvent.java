@@ -0,0 +1,13 @@
+package com.hz.models.events;
+
+/**
+ * Events carrying collected data to the outputs.  These are delivered from each output's own queue rather than on the
+ * thread that published them
+ */
+public interface OutputEvent {
+
+	// A waiting event is replaced by a newer one with the same key on a coalesce-latest queue
+	default Object getCoalesceKey() {
+		return getClass();
+	}
+}
@@ -0,0 +1,53 @@
+package com.hz.models.events;
+
+import org.springframework.context.ApplicationEvent;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * The means of the chart's rollup period once a collection has been added to it, copied from the EventRollup as that
+ * carries on changing after the event is published
+ */
+public class RollupEvent extends ApplicationEvent implements OutputEvent {
+	private final LocalDateTime start;
+	private final BigDecimal production;
+	private final BigDecimal consumption;
+	private final BigDecimal gridImport;
+	private final BigDecimal excess;
+
+	public RollupEvent(Object source, LocalDateTime start, BigDecimal production, BigDecimal consumption, BigDecimal gridImport, BigDecimal excess) {
+		super(source);
+		this.start = start;
+		this.production = production;
+		this.consumption = consumption;
+		this.gridImport = gridImport;
+		this.excess = excess;
+	}
+
+	public LocalDateTime getStart() {
+		return start;
+	}
+
+	public BigDecimal getProduction() {
+		return production;
+	}
+
+	public BigDecimal getConsumption() {
+		return consumption;
+	}
+
+	public BigDecimal getGridImport() {
+		return gridImport;
+	}
+
+	public BigDecimal getExcess() {
+		return excess;
+	}
+
+	// Only the latest means of each period need to reach a coalescing output
+	@Override
+	public Object getCoalesceKey() {
+		return start;
+	}
+}
@@ -3,7 +3,7 @@ package com.hz.models.events;
 import com.hz.models.database.EnvoySystem;
 import org.springframework.context.ApplicationEvent;
 
-public class SystemInfoEvent extends ApplicationEvent {
+public class SystemInfoEvent extends ApplicationEvent implements OutputEvent {
 	private final EnvoySystem envoySystem;
 
 	public SystemInfoEvent(Object source, EnvoySystem envoySystem) {
@@ -0,0 +1,105 @@
+package com.hz.services;
+
+import com.hz.configuration.EnphaseURLS;
+import com.hz.interfaces.EndpointSupportRepository;
+import com.hz.models.database.EndpointSupport;
+import com.hz.models.envoy.xml.EnvoyInfo;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Works out which of the optional envoy endpoints a gateway answers so that collection can skip the rest without a
+ * failing request every cycle.  Results are stored against the envoy serial and software version, so a firmware update
+ * that is seen in info.xml probes again straight away and otherwise the endpoints are probed again once a week.
+ */
+@Service
+@RequiredArgsConstructor
+@Log4j2
+public class EndpointSupportService {
+	public static final List<String> OPTIONAL_ENDPOINTS = List.of(EnphaseURLS.DEVICE_METERS, EnphaseURLS.POWER_METERS);
+	private static final Duration REPROBE_PERIOD = Duration.ofDays(7);
+	private static final String UNKNOWN = "Unknown";
+
+	private final EndpointSupportRepository endpointSupportRepository;
+
+	/**
+	 * The optional endpoints that this envoy does not support.  Endpoints that could not be probed are assumed supported
+	 */
+	public Set<String> findUnsupported(EnvoyInfo envoyInfo, RestTemplate template) {
+		// Without a serial number there is nothing to store the results against
+		boolean persist = envoyInfo.getSerialNumber() != null && UNKNOWN.equals(envoyInfo.getSerialNumber()) == false;
+		LocalDateTime probeAfter = LocalDateTime.now().minus(REPROBE_PERIOD);
+
+		if (persist) {
+			List<EndpointSupport> stored = endpointSupportRepository.findAllByEnvoySerialAndEnvoyVersion(envoyInfo.getSerialNumber(), envoyInfo.getSoftwareVersion());
+			if (stored.size() == OPTIONAL_ENDPOINTS.size() && stored.stream().allMatch(support -> support.getProbed().isAfter(probeAfter))) {
+				return toUnsupported(stored);
+			}
+		}
+
+		Set<String> unsupported = new HashSet<>();
+		for (String endpoint : OPTIONAL_ENDPOINTS) {
+			probe(template, endpoint).ifPresent(supported -> {
+				if (supported == false) {
+					unsupported.add(endpoint);
+				}
+				if (persist) {
+					endpointSupportRepository.save(new EndpointSupport(envoyInfo.getSerialNumber(), envoyInfo.getSoftwareVersion(), endpoint, supported, LocalDateTime.now()));
+				}
+			});
+		}
+		log.info("Envoy {} running {} does not support {}", envoyInfo.getSerialNumber(), envoyInfo.getSoftwareVersion(), unsupported);
+		return unsupported;
+	}
+
+	/**
+	 * Records an endpoint the envoy stopped answering as unsupported, until the next probe
+	 */
+	public void markUnsupported(EnvoyInfo envoyInfo, String endpoint) {
+		log.warn("Envoy {} running {} no longer supports {}", envoyInfo.getSerialNumber(), envoyInfo.getSoftwareVersion(), endpoint);
+		if (envoyInfo.getSerialNumber() != null && UNKNOWN.equals(envoyInfo.getSerialNumber()) == false) {
+			endpointSupportRepository.save(new EndpointSupport(envoyInfo.getSerialNumber(), envoyInfo.getSoftwareVersion(), endpoint, false, LocalDateTime.now()));
+		}
+	}
+
+	// Not found or not allowed means the firmware does not have the endpoint.  Anything else, including an expiring
+	// token being refused, says nothing either way
+	public static boolean isUnsupported(HttpClientErrorException e) {
+		return e.getStatusCode().isSameCodeAs(HttpStatus.NOT_FOUND) || e.getStatusCode().isSameCodeAs(HttpStatus.METHOD_NOT_ALLOWED);
+	}
+
+	private Set<String> toUnsupported(List<EndpointSupport> stored) {
+		Set<String> unsupported = new HashSet<>();
+		stored.stream().filter(support -> support.isSupported() == false).forEach(support -> unsupported.add(support.getEndpoint()));
+		return unsupported;
+	}
+
+	private Optional<Boolean> probe(RestTemplate template, String endpoint) {
+		try {
+			template.execute(endpoint, HttpMethod.GET,
+					request -> request.getHeaders().setAccept(List.of(MediaType.APPLICATION_OCTET_STREAM, MediaType.APPLICATION_JSON)),
+					response -> response.getStatusCode());
+			return Optional.of(true);
+		} catch (HttpClientErrorException e) {
+			log.debug("Probe of {} failed with {}", endpoint, e.getStatusCode());
+			return isUnsupported(e) ? Optional.of(false) : Optional.empty();
+		} catch (RestClientException e) {
+			log.warn("Could not probe {} - {}", endpoint, e.getMessage());
+			return Optional.empty();
+		}
+	}
+}
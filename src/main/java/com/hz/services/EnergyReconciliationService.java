@@ -0,0 +1,151 @@
+package com.hz.services;
+
+import com.hz.configuration.EnphaseCollectorProperties;
+import com.hz.interfaces.DailyEnergyRepository;
+import com.hz.interfaces.SummaryRepository;
+import com.hz.models.database.DailyEnergy;
+import com.hz.models.database.Summary;
+import com.hz.models.dto.EnergyReading;
+import com.hz.models.events.EnergyReadingEvent;
+import com.hz.utils.Convertors;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+
+/**
+ * Keeps the Envoy lifetime energy counters at the start and end of each day so daily energy comes from counter
+ * differences rather than from summing instantaneous watts, which loses every missed collection.  When collection
+ * resumes after days without readings the energy the counters moved by over the gap is shared evenly across the missing
+ * days and stored as their summaries.
+ * Counter based summary values are in Wh, marked with a conversion rate of 60 minutes
+ */
+@Service
+@RequiredArgsConstructor
+@Log4j2
+public class EnergyReconciliationService {
+	public static final BigDecimal WATT_HOURS = BigDecimal.valueOf(60);
+
+	private final EnphaseCollectorProperties properties;
+	private final DailyEnergyRepository dailyEnergyRepository;
+	private final SummaryRepository summaryRepository;
+
+	private DailyEnergy current = null;
+
+	@EventListener
+	@Transactional
+	public synchronized void energyListener(EnergyReadingEvent energyReadingEvent) {
+		EnergyReading reading = energyReadingEvent.getEnergyReading();
+		LocalDate date = reading.getTime().toLocalDate();
+
+		if (current == null || current.getDate().isEqual(date) == false) {
+			current = dailyEnergyRepository.findById(date).orElseGet(() -> startDay(date, reading));
+		}
+
+		current.setProductionEnd(reading.getProductionLifetime());
+		current.setConsumptionEnd(reading.getConsumptionLifetime());
+		current.setLastReading(reading.getTime());
+		current = dailyEnergyRepository.save(current);
+	}
+
+	// The counters at midnight are the first reading less the energy the Envoy says it has seen today
+	private DailyEnergy startDay(LocalDate date, EnergyReading reading) {
+		Optional<DailyEnergy> previous = dailyEnergyRepository.findFirstByDateBeforeOrderByDateDesc(date);
+
+		DailyEnergy result = new DailyEnergy(date);
+		result.setProductionStart(startOfDay(reading.getProductionLifetime(), reading.getProductionToday(), previous.map(DailyEnergy::getProductionEnd)));
+		result.setConsumptionStart(startOfDay(reading.getConsumptionLifetime(), reading.getConsumptionToday(), previous.map(DailyEnergy::getConsumptionEnd)));
+
+		previous.ifPresent(day -> {
+			if (day.getDate().plusDays(1).isEqual(date)) {
+				// Yesterday ends where today starts, which picks up anything after its last reading
+				day.setProductionEnd(later(day.getProductionEnd(), result.getProductionStart()));
+				day.setConsumptionEnd(later(day.getConsumptionEnd(), result.getConsumptionStart()));
+				dailyEnergyRepository.save(day);
+			} else {
+				backfill(day, result);
+			}
+		});
+		return result;
+	}
+
+	private static BigDecimal startOfDay(BigDecimal lifetime, BigDecimal today, Optional<BigDecimal> previousEnd) {
+		if (lifetime == null) {
+			return null;
+		}
+		if (today != null && today.compareTo(lifetime) <= 0) {
+			return lifetime.subtract(today);
+		}
+		// Without a count for today the last reading is the best start available
+		return previousEnd.filter(end -> end.compareTo(lifetime) <= 0).orElse(lifetime);
+	}
+
+	private static BigDecimal later(BigDecimal end, BigDecimal nextStart) {
+		if (end == null || nextStart == null) {
+			return end == null ? nextStart : end;
+		}
+		return nextStart.max(end);
+	}
+
+	// Whole days without readings get an even share of the energy counted between the last reading and today's start
+	private void backfill(DailyEnergy last, DailyEnergy next) {
+		long missingDays = ChronoUnit.DAYS.between(last.getDate(), next.getDate()) - 1;
+		DailyEnergy gap = new DailyEnergy(last.getDate().plusDays(1));
+		gap.setProductionStart(last.getProductionEnd());
+		gap.setProductionEnd(next.getProductionStart());
+		gap.setConsumptionStart(last.getConsumptionEnd());
+		gap.setConsumptionEnd(next.getConsumptionStart());
+
+		if (gap.getProduction() == null) {
+			log.warn("Cannot backfill {} days from {} as the production counter was not available", missingDays, gap.getDate());
+			return;
+		}
+
+		BigDecimal production = gap.getProduction().divide(BigDecimal.valueOf(missingDays), 3, RoundingMode.HALF_UP);
+		BigDecimal consumption = gap.getConsumption() == null ? BigDecimal.ZERO : gap.getConsumption().divide(BigDecimal.valueOf(missingDays), 3, RoundingMode.HALF_UP);
+		for (LocalDate date = gap.getDate(); date.isBefore(next.getDate()); date = date.plusDays(1)) {
+			if (summaryRepository.existsById(date) == false) {
+				log.info("Backfilling Summary for {} with production {} Wh and consumption {} Wh from the energy counters", date, production, consumption);
+				Summary summary = new Summary(date, BigDecimal.ZERO, BigDecimal.ZERO, consumption, production);
+				summary.setConversionRate(WATT_HOURS);
+				summaryRepository.save(summary);
+			}
+		}
+	}
+
+	/**
+	 * Replaces the integrated production and consumption of a summary with the counter differences for that day when
+	 * they are known.  The remaining values are converted to Wh to match
+	 */
+	@Transactional(readOnly = true)
+	public Summary reconcile(Summary summary) {
+		Optional<DailyEnergy> day = dailyEnergyRepository.findById(summary.getDate()).filter(energy -> energy.getProduction() != null);
+		if (day.isEmpty()) {
+			return summary;
+		}
+
+		BigDecimal minutes = properties.getRefreshAsMinutes(summary.getConversionRate() == null ? BigDecimal.ZERO : summary.getConversionRate());
+		BigDecimal consumption = day.get().getConsumption();
+		log.info("Reconciling Summary for {} production {} Wh and consumption {} Wh from the energy counters", summary.getDate(), day.get().getProduction(), consumption);
+
+		summary.setGridImport(Convertors.convertToWattHours(summary.getGridImport(), minutes));
+		summary.setGridExport(Convertors.convertToWattHours(summary.getGridExport(), minutes));
+		summary.setConsumption(consumption == null ? Convertors.convertToWattHours(summary.getConsumption(), minutes) : consumption);
+		summary.setProduction(day.get().getProduction());
+		summary.setConversionRate(WATT_HOURS);
+		return summary;
+	}
+
+	// Once summarised only the last day before the given date is needed, to carry on from or backfill after
+	@Transactional
+	public void removeBefore(LocalDate date) {
+		dailyEnergyRepository.deleteDailyEnergyBeforeLatest(date);
+	}
+}
@@ -1,10 +1,15 @@
 package com.hz.services;
 
 import com.hz.components.EnphaseRequestRetryStrategy;
+import com.hz.components.EnvoyCaptureInterceptor;
+import com.hz.components.EnvoyCircuitBreaker;
 import com.hz.configuration.EnphaseCollectorProperties;
 import com.hz.models.envoy.AuthorisationToken;
 import com.hz.utils.EnphaseJWTExtractor;
 import com.hz.utils.InstallerPasswordCalculator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.apache.hc.client5.http.auth.AuthScope;
@@ -12,6 +17,7 @@ import org.apache.hc.client5.http.auth.CredentialsProvider;
 import org.apache.hc.client5.http.auth.UsernamePasswordCredentials;
 import org.apache.hc.client5.http.classic.HttpClient;
 import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.config.RequestConfig;
 import org.apache.hc.client5.http.cookie.BasicCookieStore;
 import org.apache.hc.client5.http.impl.auth.BasicCredentialsProvider;
 import org.apache.hc.client5.http.impl.classic.HttpClients;
@@ -21,6 +27,7 @@ import org.apache.hc.core5.http.HttpHeaders;
 import org.apache.hc.core5.http.HttpHost;
 import org.apache.hc.core5.http.HttpResponse;
 import org.apache.hc.core5.http.message.BasicHeader;
+import org.apache.hc.core5.util.Timeout;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.client.BufferingClientHttpRequestFactory;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
@@ -31,8 +38,14 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.time.Duration;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import static com.hz.configuration.EnphaseURLS.*;
 
@@ -41,21 +54,45 @@ import static com.hz.configuration.EnphaseURLS.*;
 @Log4j2
 public class EnvoyConnectionProxy {
 	private static final String REALM = "enphaseenergy.com";
+	private static final int STREAM_RESPONSE_TIMEOUT = 30;
+	private static final Duration MIN_REFRESH_AHEAD = Duration.ofMinutes(5);
+	private static final Duration MAX_REFRESH_AHEAD = Duration.ofDays(1);
+	private static final Duration REFRESH_RETRY = Duration.ofMinutes(5);
 
 	private final AuthorisationToken authorisationToken;
 	private final EnphaseCollectorProperties config;
 	private final RestTemplateBuilder builder;
+	private final EnvoyCaptureInterceptor captureInterceptor;
 
-	private RestTemplate secureTemplate;
-	private RestTemplate defaultTemplate;
+	private volatile RestTemplate secureTemplate;     // Swapped as a whole when the token is refreshed
+	private volatile RestTemplate defaultTemplate;    // Not guarded by this so it is never held up by a token refresh
 	private RestTemplate installerTemplate;
 	private final HttpClientConnectionManager sslConnectionManager;
+	private final MeterRegistry meterRegistry;
+	private final EnvoyCircuitBreaker circuitBreaker = new EnvoyCircuitBreaker();
+
+	private ScheduledExecutorService tokenRefresher;
+	private ScheduledFuture<?> pendingRefresh;
 
 	private RestTemplate buildTemplate(HttpClient httpClient) {
-		return builder
+		RestTemplateBuilder templateBuilder = builder
 				.rootUri(config.getController().getUrl())
 				.setConnectTimeout(Duration.ofSeconds(5))
 				.requestFactory(() -> new BufferingClientHttpRequestFactory(new HttpComponentsClientHttpRequestFactory(httpClient)))
+				.additionalInterceptors(circuitBreaker);
+
+		if (captureInterceptor.isEnabled()) {
+			templateBuilder = templateBuilder.additionalInterceptors(captureInterceptor);
+		}
+		return templateBuilder.build();
+	}
+
+	// The meter stream never completes so the response cannot be buffered
+	private RestTemplate buildStreamTemplate(HttpClient httpClient) {
+		return builder
+				.rootUri(config.getController().getUrl())
+				.setConnectTimeout(Duration.ofSeconds(5))
+				.requestFactory(() -> new HttpComponentsClientHttpRequestFactory(httpClient))
 				.build();
 	}
 
@@ -91,20 +128,31 @@ public class EnvoyConnectionProxy {
 		return provider;
 	}
 
-	private RestTemplate createSecureRestTemplateV5(CredentialsProvider provider) {
-		log.info("Reading from protected Envoy controller endpoint {}{}", config.getController().getUrl(), INVERTERS);
-
-		HttpClient httpClient = HttpClients
+	private HttpClient createHttpClientV5(CredentialsProvider provider, RequestConfig requestConfig) {
+		return HttpClients
 				.custom()
 				.setDefaultCredentialsProvider(provider)
+				.setDefaultRequestConfig(requestConfig)
 				.useSystemProperties()
 				.setRetryStrategy(new EnphaseRequestRetryStrategy())
 				.build();
+	}
 
-		return buildTemplate(httpClient);
+	// A parallel read that times out is abandoned so the request itself gives up on the same timeout
+	private RequestConfig collectionRequestConfig() {
+		if (config.isConcurrentCollection()) {
+			return RequestConfig.custom().setResponseTimeout(Timeout.ofSeconds(config.getEndpointTimeoutSeconds())).build();
+		}
+		return RequestConfig.DEFAULT;
 	}
 
-	private RestTemplate createSecureRestTemplateV7() {
+	private RestTemplate createSecureRestTemplateV5(CredentialsProvider provider) {
+		log.info("Reading from protected Envoy controller endpoint {}{}", config.getController().getUrl(), INVERTERS);
+
+		return buildTemplate(createHttpClientV5(provider, collectionRequestConfig()));
+	}
+
+	private HttpClient createHttpClientV7(RequestConfig requestConfig) {
 		Header header = new BasicHeader(HttpHeaders.AUTHORIZATION, "Bearer " + authorisationToken.getJwt());
 
 		BasicCookieStore cookieStore = new BasicCookieStore();
@@ -116,7 +164,9 @@ public class EnvoyConnectionProxy {
 					.useSystemProperties()
 					.setRetryStrategy(new EnphaseRequestRetryStrategy())
 					.setDefaultHeaders(List.of(header))
+					.setDefaultRequestConfig(requestConfig)
 					.setConnectionManager(sslConnectionManager)
+					.setConnectionManagerShared(true)
 					.setDefaultCookieStore(cookieStore)
 					.build();
 
@@ -126,47 +176,155 @@ public class EnvoyConnectionProxy {
 				log.error("Attempt to validate bearer token {} against {} failed with result {}", authorisationToken.getJwt(), config.getController().getUrl() + AUTH_CHECK, response.getCode());
 			}
 
-			return buildTemplate(httpClient);
+			return httpClient;
 
 		} catch (IOException e) {
 			log.error("Could not connect to envoy when configuring a v7 http client - {}", e.getMessage(), e);
 			throw new RuntimeException(e);
 		}
+	}
 
+	private RestTemplate createSecureRestTemplateV7() {
+		return buildTemplate(createHttpClientV7(collectionRequestConfig()));
 	}
 
+	/**
+	 * The current secure template.  Fetched V7 tokens are refreshed in the background ahead of expiry so this only
+	 * blocks the first time it is called
+	 */
 	public RestTemplate getSecureTemplate() throws IOException, URISyntaxException {
+		RestTemplate template = secureTemplate;
+		if (template == null) {
+			return createSecureTemplate();
+		}
+
+		if (authorisationToken.hasExpired()) {
+			if (authorisationToken.canFetchToken()) {
+				log.warn("Token expired before it could be refreshed.  Refreshing in the background");
+				scheduleRefresh(Duration.ZERO);
+			} else {
+				log.error("Token has expired.  Please update JWT and restart");
+			}
+		}
+		return template;
+	}
+
+	private synchronized RestTemplate createSecureTemplate() throws IOException, URISyntaxException {
 		if (secureTemplate == null) {
 			if (authorisationToken.isV5()) {
 				log.debug("Creating a new secure V5 access template");
 				secureTemplate = createSecureRestTemplateV5(standardProvider());
 			} else if (authorisationToken.canFetchToken()) {
-				log.debug("Creating a new secure V7 access template after fetching token from Enphase");
-				authorisationToken.updateToken(EnphaseJWTExtractor.fetchJWTV2(authorisationToken.getUser(), authorisationToken.getPassword(), authorisationToken.getSerialNo()));
-				secureTemplate = createSecureRestTemplateV7();
+				refreshToken();
 			} else {
 				log.debug("Creating a new secure V7 access template with provided token");
 				secureTemplate = createSecureRestTemplateV7();
 			}
-		} else if (authorisationToken.hasExpired()) {
-			if (authorisationToken.canFetchToken()) {
-				log.debug("Creating a new secure V7 access template after refreshing token from Enphase");
-				authorisationToken.updateToken(EnphaseJWTExtractor.fetchJWTV2(authorisationToken.getUser(), authorisationToken.getPassword(), authorisationToken.getSerialNo()));
-				secureTemplate = createSecureRestTemplateV7();
-			} else {
-				log.error("Token has expired.  Please update JWT and restart");
+		}
+		return secureTemplate;
+	}
+
+	// Synchronized so that a collection and the background refresh share a single Enlighten login
+	private synchronized void refreshToken() throws IOException {
+		log.debug("Creating a new secure V7 access template after fetching token from Enphase");
+		long started = System.nanoTime();
+		try {
+			authorisationToken.updateToken(EnphaseJWTExtractor.fetchJWTV2(authorisationToken.getUser(), authorisationToken.getPassword(), authorisationToken.getSerialNo()));
+			secureTemplate = createSecureRestTemplateV7();
+			recordRefresh(started, "success");
+		} catch (IOException | RuntimeException e) {
+			recordRefresh(started, "failure");
+			throw e;
+		}
+		scheduleRefresh(getRefreshDelay(LocalDateTime.now(), authorisationToken.getExpires()));
+	}
+
+	private void recordRefresh(long started, String result) {
+		Timer.builder("solar.token.refresh")
+				.tag("site", config.getSiteName())
+				.tag("result", result)
+				.description("Time taken to fetch a new token from Enphase")
+				.register(meterRegistry)
+				.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * How long from now to refresh a token, which is a tenth of its remaining lifetime before expiry, at least 5 minutes
+	 * and at most a day ahead
+	 */
+	public static Duration getRefreshDelay(LocalDateTime now, LocalDateTime expires) {
+		Duration lifetime = Duration.between(now, expires);
+		Duration ahead = lifetime.dividedBy(10);
+		ahead = ahead.compareTo(MIN_REFRESH_AHEAD) < 0 ? MIN_REFRESH_AHEAD : ahead;
+		ahead = ahead.compareTo(MAX_REFRESH_AHEAD) > 0 ? MAX_REFRESH_AHEAD : ahead;
+		Duration delay = lifetime.minus(ahead);
+		return delay.isNegative() ? Duration.ZERO : delay;
+	}
+
+	// Keeps whichever refresh is due sooner so repeated requests collapse into one
+	private synchronized void scheduleRefresh(Duration delay) {
+		if (tokenRefresher == null) {
+			tokenRefresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "envoy-token-refresh");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+
+		if (pendingRefresh != null && pendingRefresh.isDone() == false) {
+			if (pendingRefresh.getDelay(TimeUnit.MILLISECONDS) <= delay.toMillis()) {
+				return;
 			}
+			pendingRefresh.cancel(false);
 		}
+		log.info("Next token refresh for {} in {}", config.getSiteName(), delay);
+		pendingRefresh = tokenRefresher.schedule(this::backgroundRefresh, delay.toMillis(), TimeUnit.MILLISECONDS);
+	}
 
-		return secureTemplate;
+	private synchronized void backgroundRefresh() {
+		pendingRefresh = null;
+		try {
+			refreshToken();
+		} catch (IOException | RuntimeException e) {
+			log.error("Failed to refresh token from Enphase - {}.  Retrying in {}", e.getMessage(), REFRESH_RETRY);
+			scheduleRefresh(REFRESH_RETRY);
+		}
 	}
 
+	@PreDestroy
+	public synchronized void shutdown() {
+		if (tokenRefresher != null) {
+			tokenRefresher.shutdownNow();
+		}
+	}
+
+	// Two callers racing may both build a template, which is harmless as only one is kept
 	public RestTemplate getDefaultTemplate() {
-		if (defaultTemplate == null) {
+		RestTemplate template = defaultTemplate;
+		if (template == null) {
 			log.debug("Creating a new default access template");
-			defaultTemplate = createDefaultRestTemplate();
+			template = createDefaultRestTemplate();
+			defaultTemplate = template;
 		}
-		return defaultTemplate;
+		return template;
+	}
+
+	/**
+	 * A new non-buffering template for the long-lived meter stream.  Built on every (re)connect so it picks up the current token.
+	 * A stalled stream fails after the response timeout so the caller can reconnect.
+	 */
+	public RestTemplate getStreamTemplate() throws IOException, URISyntaxException {
+		RequestConfig streamConfig = RequestConfig.custom().setResponseTimeout(Timeout.ofSeconds(STREAM_RESPONSE_TIMEOUT)).build();
+
+		if (authorisationToken.isV5()) {
+			log.info("Streaming from installer protected Envoy controller endpoint {}{}", config.getController().getUrl(), METER_STREAM);
+			return buildStreamTemplate(createHttpClientV5(installerProvider(), streamConfig));
+		}
+
+		// Make sure the token is current before building the stream client
+		getSecureTemplate();
+		log.info("Streaming from protected Envoy controller endpoint {}{}", config.getController().getUrl(), METER_STREAM);
+		return buildStreamTemplate(createHttpClientV7(streamConfig));
 	}
 
 	// Installer Provider is also likely changed with V7
@@ -177,6 +335,14 @@ public class EnvoyConnectionProxy {
 		return installerTemplate;
 	}
 
+	public boolean isGatewayOpen() {
+		return circuitBreaker.isGatewayOpen();
+	}
+
+	public Map<String, Object> getOpenCircuits() {
+		return circuitBreaker.getOpenCircuits();
+	}
+
 	public String getExpiryAsString() {
 		return authorisationToken.isV5() ? "Never" : authorisationToken.getExpires().format(DateTimeFormatter.ISO_LOCAL_DATE);
 	}
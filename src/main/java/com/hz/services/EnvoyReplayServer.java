@@ -0,0 +1,156 @@
+package com.hz.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hz.configuration.EnphaseCollectorProperties;
+import com.hz.configuration.EnphaseURLS;
+import com.hz.models.dto.EnvoyCapture;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Stands in for the Envoy by serving a capture file written with envoy.capture-file.
+ * The capture timeline is replayed from the moment the server starts at envoy.replay-speed times real time, each request
+ * is answered with the latest response captured for its path at that point and is delayed by the captured duration.
+ * Once the end of the capture is reached the final responses keep being served.
+ */
+@Service
+@RequiredArgsConstructor
+@Log4j2
+@Profile("replay")
+public class EnvoyReplayServer {
+
+	private final EnphaseCollectorProperties properties;
+	private final ObjectMapper captureMapper = new ObjectMapper();
+
+	private final Map<String, List<EnvoyCapture>> captures = new HashMap<>();
+	private long firstCapture = Long.MAX_VALUE;
+	private long lastCapture = 0L;
+	private long startTime;
+	private boolean finished = false;
+
+	private HttpServer server;
+	private ExecutorService executor;
+
+	@PostConstruct
+	public void start() throws IOException {
+		load(properties.getReplayFile());
+
+		executor = Executors.newCachedThreadPool(runnable -> {
+			Thread thread = new Thread(runnable, "envoy-replay");
+			thread.setDaemon(true);
+			return thread;
+		});
+		server = HttpServer.create(new InetSocketAddress("localhost", properties.getReplayPort()), 0);
+		server.createContext("/", this::handle);
+		server.setExecutor(executor);
+		startTime = System.currentTimeMillis();
+		server.start();
+
+		log.info("Replaying {} envoy paths from {} on port {} at {}x speed", captures.size(), properties.getReplayFile(), server.getAddress().getPort(), properties.getReplaySpeed());
+	}
+
+	@PreDestroy
+	public void stop() {
+		if (server != null) {
+			server.stop(0);
+		}
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+	}
+
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	private void load(String replayFile) throws IOException {
+		if (replayFile == null || replayFile.isEmpty()) {
+			throw new IOException("envoy.replay-file must be set when using the replay profile");
+		}
+
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(replayFile)), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.isBlank() == false) {
+					EnvoyCapture capture = captureMapper.readValue(line, EnvoyCapture.class);
+					captures.computeIfAbsent(capture.getPath(), path -> new ArrayList<>()).add(capture);
+					firstCapture = Math.min(firstCapture, capture.getTime());
+					lastCapture = Math.max(lastCapture, capture.getTime());
+				}
+			}
+		}
+		captures.values().forEach(list -> list.sort(Comparator.comparingLong(EnvoyCapture::getTime)));
+	}
+
+	// Position in the capture timeline that corresponds to now
+	private synchronized long getReplayTime() {
+		long replayTime = firstCapture + (long) ((System.currentTimeMillis() - startTime) * properties.getReplaySpeed());
+		if (replayTime > lastCapture && finished == false) {
+			finished = true;
+			log.info("Replay of {} complete.  Serving final responses", properties.getReplayFile());
+		}
+		return replayTime;
+	}
+
+	private EnvoyCapture findCapture(List<EnvoyCapture> history, long replayTime) {
+		EnvoyCapture found = history.get(0);
+		for (EnvoyCapture capture : history) {
+			if (capture.getTime() > replayTime) {
+				break;
+			}
+			found = capture;
+		}
+		return found;
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		String path = exchange.getRequestURI().getRawQuery() == null ? exchange.getRequestURI().getRawPath() : exchange.getRequestURI().getRawPath() + "?" + exchange.getRequestURI().getRawQuery();
+		List<EnvoyCapture> history = captures.get(path);
+
+		try (exchange) {
+			if (history == null) {
+				// The V7 cookie check is not always captured so let it through
+				exchange.sendResponseHeaders(path.equals(EnphaseURLS.AUTH_CHECK) ? 200 : 404, -1);
+				return;
+			}
+
+			EnvoyCapture capture = findCapture(history, getReplayTime());
+			Thread.sleep((long) (capture.getDurationMillis() / properties.getReplaySpeed()));
+
+			byte[] body = capture.getBody() == null ? new byte[0] : capture.getBody().getBytes(StandardCharsets.UTF_8);
+			if (capture.getContentType() != null) {
+				exchange.getResponseHeaders().add("Content-Type", capture.getContentType());
+			}
+			exchange.sendResponseHeaders(capture.getStatus(), body.length == 0 ? -1 : body.length);
+			if (body.length > 0) {
+				try (OutputStream out = exchange.getResponseBody()) {
+					out.write(body);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
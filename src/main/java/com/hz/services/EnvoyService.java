@@ -1,23 +1,38 @@
 package com.hz.services;
 
+import com.hz.configuration.EnphaseCollectorProperties;
 import com.hz.configuration.EnphaseURLS;
+import com.hz.models.dto.MeterStreamReading;
 import com.hz.models.envoy.json.System;
 import com.hz.models.envoy.json.*;
+import com.hz.models.envoy.xml.EnvoyInfo;
 import com.hz.utils.Convertors;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.BeanUtils;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Created by David on 22-Oct-17.
@@ -26,24 +41,59 @@ import java.util.Optional;
 @RequiredArgsConstructor
 @Log4j2
 public class EnvoyService {
+	// The most endpoints read at once by a concurrent collection
+	public static final int COLLECTION_THREADS = 6;
+
 	private final EnvoyConnectionProxy envoyConnectionProxy;
+	private final EnphaseCollectorProperties properties;
+	private final Optional<EnvoyStreamService> envoyStreamService;     // Only with the stream profile
+	private final EnvoyInfo envoyInfo;
+	private final EndpointSupportService endpointSupportService;
 
 	private long lastReadTime = 0L;
+	private long lastPolledTime = 0L;      // Reading time of the last production.json, always on the Envoy clock
+	private long lastPolledAt = 0L;        // Local epoch seconds when it was read
+	private boolean lastReadStreamed = false;
 	private boolean readSuccess = false;
+	private boolean awaitingUpdate = false;
 	private int fullReadCount = 0;
+	private int productionReadCount = 0;
 
 	private List<Inventory> inventoryList = null;
+	private Production lastProduction = null;
+	private ExecutorService collectionExecutor = null;
+	private volatile Set<String> unsupportedEndpoints = Set.of();
+	private final Map<String, Date> inverterReportDates = new HashMap<>();
+	private LocalDateTime planExpires = LocalDateTime.MIN;
+
+	// A read of a single envoy endpoint that can be run on a collection thread
+	@FunctionalInterface
+	private interface EndpointReader<T> {
+		T read() throws IOException, URISyntaxException;
+	}
+
+	// production.json has not been updated since the last collection
+	private static class ProductionNotReadyException extends IOException {
+		ProductionNotReadyException(long readingTime) {
+			super("Production reading time " + readingTime + " has not changed");
+		}
+	}
 
 	public boolean isOk() {
     	return this.readSuccess;
 	}
 
+	// True when the last collection was abandoned because the Envoy had not updated yet
+	public boolean isAwaitingUpdate() {
+		return this.awaitingUpdate;
+	}
+
 	public LocalDateTime getLastReadTime() {
     	return (lastReadTime > 0L) ? Convertors.convertToLocalDateTime(lastReadTime) : LocalDateTime.now();
 	}
 
-	private System getSystemData() throws IOException, URISyntaxException {
-		ResponseEntity<System> systemResponse = envoyConnectionProxy.getSecureTemplate().getForEntity(EnphaseURLS.SYSTEM, System.class);
+	private System getSystemData(RestTemplate template) {
+		ResponseEntity<System> systemResponse = template.getForEntity(EnphaseURLS.SYSTEM, System.class);
 
 		if (systemResponse.getStatusCode().value() == 200 &&
 			systemResponse.getBody() != null) {
@@ -53,45 +103,195 @@ public class EnvoyService {
 	}
 
 	public Optional<System> collectEnphaseData() {
+		this.awaitingUpdate = false;
     	try {
-			System system = getSystemData();
-		    getProductionData(system);
-
-		    // Wait until production read time is updated
-		    long waitTime = 0L;
-		    while (systemNotReady(system)) {
-			    Thread.sleep(1000);
-				waitTime += 1000;
-			    getProductionData(system);
-	        }
-			if (waitTime > 0) {
-				log.warn("Waited {} ms", waitTime);
-			}
-
+		    refreshCollectionPlan();
+		    Optional<MeterStreamReading> streamed = takeStreamReading();
+		    System system = properties.isConcurrentCollection() ? collectConcurrently(streamed) : collectSequentially(streamed);
 		    Optional<EimType> eim = system.getProduction().getProductionEim();
-			this.lastReadTime = eim.map(TypeBase::getReadingTime).orElse(0L);
-
-		    getInventory(system);
-		    getIndividualPanelData(system);
-		    getDeviceMeters(system);
-		    getPowerMeters(system);
+		    if (streamed.isEmpty()) {
+			    lastProduction = system.getProduction();
+			    lastPolledTime = eim.map(TypeBase::getReadingTime).orElse(0L);
+			    lastPolledAt = Instant.now().getEpochSecond();
+			    productionReadCount = 10;
+		    }
+		    lastReadStreamed = streamed.isPresent();
 
-		    if (system.getNetwork().isWifi()) {
-		    	getWirelessInfo(system);
+		    // Kept from here rather than the read, which may be on a collection thread of an abandoned collection
+		    if (inventoryDue()) {
+			    inventoryList = system.getInventoryList();
+			    fullReadCount = 10;  // Only update every 10 calls.
 		    }
 
+		    // Only published collections count towards the periodic inventory and production.json reads
+		    fullReadCount--;
+		    productionReadCount--;
+
+		    markUpdatedInverters(system);
+
+		    this.lastReadTime = eim.map(TypeBase::getReadingTime).orElse(0L);
+
 		    this.readSuccess = true;
 		    return Optional.of(system);
+	    } catch (ProductionNotReadyException e) {
+		    log.debug("Envoy not ready. {}", e.getMessage());
+		    this.awaitingUpdate = true;
+		    return Optional.empty();
 	    } catch (RestClientException | IOException | URISyntaxException e) {
 		    log.error("Failed to retrieve Solar stats. Exception was {}", e.getMessage(), e);
-	    } catch (InterruptedException e) {
-			Thread.currentThread().interrupt();
-		    log.error("Interrupted while reading Solar stats. Exception was {}", e.getMessage(), e);
-		}
+	    }
 		this.readSuccess = false;
 		return Optional.empty();
 	}
 
+	// Microinverters only report every few minutes so only those with a new report are passed on as panel readings
+	private void markUpdatedInverters(System system) {
+		system.getProduction().getMicroInvertersList().forEach(micro -> {
+			Date previous = inverterReportDates.put(micro.getSerialNumber(), micro.getLastReportDate());
+			micro.setUpdated(previous == null || micro.getLastReportDate() == null || micro.getLastReportDate().after(previous));
+		});
+	}
+
+	// Checked daily, which only probes the envoy when the stored results are out of date
+	private void refreshCollectionPlan() throws IOException, URISyntaxException {
+		if (LocalDateTime.now().isAfter(planExpires)) {
+			unsupportedEndpoints = endpointSupportService.findUnsupported(envoyInfo, envoyConnectionProxy.getSecureTemplate());
+			planExpires = LocalDateTime.now().plusDays(1);
+		}
+	}
+
+	// production.json, or the stream reading in its place, comes first so that an Envoy that has not updated yet costs
+	// the one read rather than every endpoint
+	private Production getReadyProduction(RestTemplate template, Optional<MeterStreamReading> streamed) throws IOException {
+		return streamed.isPresent() ? applyStreamReading(streamed.get()) : getReadyProductionData(template);
+	}
+
+	private System collectSequentially(Optional<MeterStreamReading> streamed) throws IOException, URISyntaxException {
+		RestTemplate template = envoyConnectionProxy.getSecureTemplate();
+
+		Production production = getReadyProduction(template, streamed);
+		System system = getSystemData(template);
+		system.setProduction(production);
+		if (streamed.isEmpty()) {
+			production.setDeviceMeterList(getDeviceMeters(template));
+			production.setPowerMeterList(getPowerMeters(template));
+		}
+		system.setInventoryList(inventoryDue() ? getInventory(template) : inventoryList);
+		production.setInverterList(getIndividualPanelData(template));
+
+		if (system.getNetwork().isWifi()) {
+			system.setWireless(getWirelessInfo(template));
+		}
+
+		return system;
+	}
+
+	// Once production.json is ready the other endpoints are independent so they are issued all at once and waited on for
+	// the slowest.  The wireless read is the exception as it depends on the network section of the system read.  If any
+	// read fails the rest are cancelled, as the collection is abandoned
+	private System collectConcurrently(Optional<MeterStreamReading> streamed) throws IOException, URISyntaxException {
+		RestTemplate template = envoyConnectionProxy.getSecureTemplate();
+		List<Future<?>> tasks = new ArrayList<>();
+		boolean collected = false;
+
+		try {
+			Production production = streamed.isPresent() ? applyStreamReading(streamed.get()) : await(submit(tasks, () -> getReadyProductionData(template)), EnphaseURLS.PRODUCTION);
+
+			CompletableFuture<System> systemFuture = submit(tasks, () -> getSystemData(template));
+			CompletableFuture<List<Inventory>> inventoryFuture = inventoryDue() ? submit(tasks, () -> getInventory(template)) : CompletableFuture.completedFuture(inventoryList);
+			CompletableFuture<List<Inverter>> inverterFuture = submit(tasks, () -> getIndividualPanelData(template));
+			CompletableFuture<List<DeviceMeter>> deviceMeterFuture = streamed.isPresent() ? CompletableFuture.completedFuture(null) : submit(tasks, () -> getDeviceMeters(template));
+			CompletableFuture<List<PowerMeter>> powerMeterFuture = streamed.isPresent() ? CompletableFuture.completedFuture(null) : submit(tasks, () -> getPowerMeters(template));
+
+			System system = await(systemFuture, EnphaseURLS.SYSTEM);
+			CompletableFuture<Wireless> wirelessFuture = system.getNetwork().isWifi() ? submit(tasks, () -> getWirelessInfo(template)) : CompletableFuture.completedFuture(null);
+
+			system.setProduction(production);
+			if (streamed.isEmpty()) {
+				production.setDeviceMeterList(await(deviceMeterFuture, EnphaseURLS.DEVICE_METERS));
+				production.setPowerMeterList(await(powerMeterFuture, EnphaseURLS.POWER_METERS));
+			}
+			system.setInventoryList(await(inventoryFuture, EnphaseURLS.INVENTORY));
+			production.setInverterList(await(inverterFuture, EnphaseURLS.INVERTERS));
+			system.setWireless(await(wirelessFuture, EnphaseURLS.WIFI_INFO));
+
+			collected = true;
+			return system;
+		} finally {
+			if (collected == false) {
+				tasks.forEach(task -> task.cancel(true));
+			}
+		}
+	}
+
+	// A read that times out is cancelled so it does not keep holding a collection thread and connection
+	private <T> CompletableFuture<T> submit(List<Future<?>> tasks, EndpointReader<T> reader) {
+		CompletableFuture<T> result = new CompletableFuture<>();
+		Future<?> task = getCollectionExecutor().submit(() -> {
+			try {
+				result.complete(reader.read());
+			} catch (IOException | URISyntaxException | RuntimeException e) {
+				result.completeExceptionally(e);
+			}
+		});
+		tasks.add(task);
+
+		return result.orTimeout(properties.getEndpointTimeoutSeconds(), TimeUnit.SECONDS).whenComplete((value, e) -> {
+			if (e instanceof TimeoutException) {
+				task.cancel(true);
+			}
+		});
+	}
+
+	private <T> T await(CompletableFuture<T> future, String endpoint) throws IOException, URISyntaxException {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof TimeoutException) {
+				throw new IOException("Timed out after " + properties.getEndpointTimeoutSeconds() + "s reading " + endpoint, cause);
+			}
+			if (cause instanceof RestClientException restClientException) {
+				throw restClientException;
+			}
+			if (cause instanceof IOException ioException) {
+				throw ioException;
+			}
+			if (cause instanceof URISyntaxException uriSyntaxException) {
+				throw uriSyntaxException;
+			}
+			throw new IOException("Failed reading " + endpoint, cause);
+		}
+	}
+
+	// One thread for each read of the fan out, which the connection pool allows for as well
+	private synchronized ExecutorService getCollectionExecutor() {
+		if (collectionExecutor == null) {
+			AtomicInteger threadCount = new AtomicInteger();
+			collectionExecutor = Executors.newFixedThreadPool(COLLECTION_THREADS, runnable -> {
+				Thread thread = new Thread(runnable, "envoy-collector-" + threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		return collectionExecutor;
+	}
+
+	@PreDestroy
+	public synchronized void shutdown() {
+		if (collectionExecutor != null) {
+			collectionExecutor.shutdownNow();
+		}
+	}
+
+	/**
+	 * The reading time reported by the Envoy, which is empty when production came from the meter stream and only has
+	 * an estimated time
+	 */
+	public Optional<Long> getPolledReadingTime(System system) {
+		return lastReadStreamed ? Optional.empty() : system.getProduction().getProductionEim().map(TypeBase::getReadingTime);
+	}
+
 	public LocalDateTime getCollectionTime(System system) {
 	    Optional<EimType> productionEim = system.getProduction().getProductionEim();
 	    // Envoy only produces time in seconds
@@ -103,95 +303,172 @@ public class EnvoyService {
 		return envoyConnectionProxy.getExpiryAsString();
 	}
 
-    private boolean systemNotReady(System system) {
-	    Optional<EimType> eim = system.getProduction().getProductionEim();
-	    return eim.map(typeBase -> typeBase.getReadingTime() <= lastReadTime).orElse(false);
+    private boolean productionNotReady(Production production) {
+	    Optional<EimType> eim = production.getProductionEim();
+	    return eim.map(typeBase -> typeBase.getReadingTime() <= lastPolledTime).orElse(false);
     }
 
-    private void getInventory(System system) throws IOException, URISyntaxException {
-	    if (fullReadCount-- <= 0) {
-		    fullReadCount = 10;  // Only update every 10 calls.
+	// The stream only carries instantaneous values so production.json is still read every 10 calls to refresh the lifetime counters
+	private Optional<MeterStreamReading> takeStreamReading() {
+		EnvoyStreamService streamService = envoyStreamService.orElse(null);
+		if (streamService == null || lastProduction == null || productionReadCount <= 0) {
+			return Optional.empty();
+		}
+		return streamService.takeReading();
+	}
+
+	// A copy of the last polled production with the instantaneous values replaced by those from the stream, as the last
+	// production may still be in use by outputs.  The power meter readings are dropped so the calculations use the
+	// streamed eim values.  Frames have no Envoy time so it is estimated from how long ago production.json was read
+	private Production applyStreamReading(MeterStreamReading reading) {
+		log.debug("Using {} meter stream frames in place of {}", reading.getFrameCount(), EnphaseURLS.PRODUCTION);
+
+		long readingTime = lastPolledTime + Math.max(0L, reading.getReadingTime() - lastPolledAt);
+		Production production = new Production();
+		production.setProductionList(copyModules(lastProduction.getProductionList()));
+		production.setConsumptionList(copyModules(lastProduction.getConsumptionList()));
+		production.setStorageList(lastProduction.getStorageList());
+		production.setDeviceMeterList(lastProduction.getDeviceMeterList());
+		production.setPowerMeterList(new ArrayList<>());
+
+		production.getProductionEim().ifPresent(eim -> {
+			eim.setReadingTime(readingTime);
+			eim.setWattsNow(reading.getProductionWatts());
+			eim.setRmsVoltage(reading.getProductionVoltage());
+		});
+		production.getTotalConsumptionEim().ifPresent(eim -> {
+			eim.setReadingTime(readingTime);
+			eim.setWattsNow(reading.getTotalConsumptionWatts());
+		});
+		production.getNetConsumptionEim().ifPresent(eim -> {
+			eim.setReadingTime(readingTime);
+			eim.setWattsNow(reading.getNetConsumptionWatts());
+		});
+		return production;
+	}
 
-		    ResponseEntity<List<Inventory>> inventoryResponse =
-				    envoyConnectionProxy.getSecureTemplate().exchange(EnphaseURLS.INVENTORY, HttpMethod.GET, null, new ParameterizedTypeReference<List<Inventory>>() { });
+	private static List<TypeBase> copyModules(List<TypeBase> modules) {
+		if (modules == null) {
+			return null;
+		}
+		List<TypeBase> copies = new ArrayList<>(modules.size());
+		for (TypeBase module : modules) {
+			TypeBase copy = BeanUtils.instantiateClass(module.getClass());
+			BeanUtils.copyProperties(module, copy);
+			copies.add(copy);
+		}
+		return copies;
+	}
 
-		    if (inventoryResponse.getStatusCode().value() == 200) {
-			    system.setInventoryList(inventoryResponse.getBody());
-			    inventoryList = system.getInventoryList();
-	        } else {
-			    throw new IOException("Reading Inventory failed with status " + inventoryResponse.getStatusCode());
-	        }
-	    } else {
-		    system.setInventoryList(inventoryList);
+	// A firmware update that drops an endpoint is not seen by the probe until the next day, so it is skipped from now on
+	private synchronized void markUnsupported(String endpoint) {
+		Set<String> unsupported = new HashSet<>(unsupportedEndpoints);
+		unsupported.add(endpoint);
+		unsupportedEndpoints = Set.copyOf(unsupported);
+		endpointSupportService.markUnsupported(envoyInfo, endpoint);
+	}
+
+	// Stays due until a read succeeds
+	private boolean inventoryDue() {
+		return fullReadCount <= 0;
+	}
+
+    private List<Inventory> getInventory(RestTemplate template) throws IOException {
+	    ResponseEntity<List<Inventory>> inventoryResponse =
+			    template.exchange(EnphaseURLS.INVENTORY, HttpMethod.GET, null, new ParameterizedTypeReference<List<Inventory>>() { });
+
+	    if (inventoryResponse.getStatusCode().value() == 200) {
+		    return inventoryResponse.getBody();
 	    }
+	    throw new IOException("Reading Inventory failed with status " + inventoryResponse.getStatusCode());
     }
 
-	private void getProductionData(System system) throws IOException, URISyntaxException {
-		system.setProduction( envoyConnectionProxy.getSecureTemplate().getForObject(EnphaseURLS.PRODUCTION, Production.class) );
+	private Production getProductionData(RestTemplate template) {
+		return template.getForObject(EnphaseURLS.PRODUCTION, Production.class);
 	}
 
-	private void getDeviceMeters(System system) throws IOException, URISyntaxException {
+	// The caller reschedules rather than waiting here for the read time to be updated
+	private Production getReadyProductionData(RestTemplate template) throws ProductionNotReadyException {
+		Production production = getProductionData(template);
+
+		if (productionNotReady(production)) {
+			throw new ProductionNotReadyException(lastPolledTime);
+		}
+		return production;
+	}
+
+	private List<DeviceMeter> getDeviceMeters(RestTemplate template) throws IOException {
+		if (unsupportedEndpoints.contains(EnphaseURLS.DEVICE_METERS)) {
+			return new ArrayList<>();
+		}
+
 	    HttpHeaders headers = new HttpHeaders();
 	    headers.setAccept(List.of(MediaType.APPLICATION_OCTET_STREAM));
 	    HttpEntity<String> entity = new HttpEntity<>(headers);
 
 		try {
 			ResponseEntity<List<DeviceMeter>> deviceMeterResponse =
-					envoyConnectionProxy.getSecureTemplate().exchange(EnphaseURLS.DEVICE_METERS, HttpMethod.GET, entity, new ParameterizedTypeReference<List<DeviceMeter>>() {
+					template.exchange(EnphaseURLS.DEVICE_METERS, HttpMethod.GET, entity, new ParameterizedTypeReference<List<DeviceMeter>>() {
 					});
 
 			if (deviceMeterResponse.getStatusCode().value() == 200) {
-				system.getProduction().setDeviceMeterList(deviceMeterResponse.getBody());
-			} else {
-				throw new IOException("Reading Device Meters failed with status " + deviceMeterResponse.getStatusCode());
+				return deviceMeterResponse.getBody();
+			}
+			throw new IOException("Reading Device Meters failed with status " + deviceMeterResponse.getStatusCode());
+		} catch (HttpClientErrorException e) {
+			if (EndpointSupportService.isUnsupported(e) == false) {
+				throw e;
 			}
-		} catch (RestClientException e) {
-			log.warn("Device does not support {}", EnphaseURLS.DEVICE_METERS);
-			system.getProduction().setDeviceMeterList(new ArrayList<>());
+			markUnsupported(EnphaseURLS.DEVICE_METERS);
+			return new ArrayList<>();
 		}
 	}
 
-	private void getPowerMeters(System system) throws IOException, URISyntaxException {
+	private List<PowerMeter> getPowerMeters(RestTemplate template) throws IOException {
+		if (unsupportedEndpoints.contains(EnphaseURLS.POWER_METERS)) {
+			return new ArrayList<>();
+		}
+
 	    HttpHeaders headers = new HttpHeaders();
 	    headers.setAccept(List.of(MediaType.APPLICATION_OCTET_STREAM));
 	    HttpEntity<String> entity = new HttpEntity<>(headers);
 
 		try {
 			ResponseEntity<List<PowerMeter>> powerMeterResponse =
-					envoyConnectionProxy.getSecureTemplate().exchange(EnphaseURLS.POWER_METERS, HttpMethod.GET, entity, new ParameterizedTypeReference<List<PowerMeter>>() { });
+					template.exchange(EnphaseURLS.POWER_METERS, HttpMethod.GET, entity, new ParameterizedTypeReference<List<PowerMeter>>() { });
 
 			if (powerMeterResponse.getStatusCode().value() == 200) {
-				system.getProduction().setPowerMeterList(powerMeterResponse.getBody());
-			} else {
-				throw new IOException("Reading Power Meters failed with status " + powerMeterResponse.getStatusCode());
+				return powerMeterResponse.getBody();
+			}
+			throw new IOException("Reading Power Meters failed with status " + powerMeterResponse.getStatusCode());
+		} catch (HttpClientErrorException e) {
+			if (EndpointSupportService.isUnsupported(e) == false) {
+				throw e;
 			}
-		} catch (RestClientException e) {
-			log.warn("Device does not support {}", EnphaseURLS.POWER_METERS);
-			system.getProduction().setPowerMeterList(new ArrayList<>());
+			markUnsupported(EnphaseURLS.POWER_METERS);
+			return new ArrayList<>();
 		}
 	}
 
-	private void getIndividualPanelData(System system) throws IOException, URISyntaxException {
+	private List<Inverter> getIndividualPanelData(RestTemplate template) throws IOException {
 	    // Individual Panel values
 	    ResponseEntity<List<Inverter>> inverterResponse =
-			    envoyConnectionProxy.getSecureTemplate().exchange(EnphaseURLS.INVERTERS, HttpMethod.GET, null, new ParameterizedTypeReference<List<Inverter>>() { });
+			    template.exchange(EnphaseURLS.INVERTERS, HttpMethod.GET, null, new ParameterizedTypeReference<List<Inverter>>() { });
 
 	    if (inverterResponse.getStatusCode().value() == 200) {
-		    system.getProduction().setInverterList(inverterResponse.getBody());
-	    } else {
-		    throw new IOException("Reading Inverters failed with status " + inverterResponse.getStatusCode());
+		    return inverterResponse.getBody();
 	    }
+	    throw new IOException("Reading Inverters failed with status " + inverterResponse.getStatusCode());
     }
 
-    private void getWirelessInfo(System system) throws IOException, URISyntaxException {
+    private Wireless getWirelessInfo(RestTemplate template) throws IOException {
 		ResponseEntity<Wireless> wirelessResponse =
-				envoyConnectionProxy.getSecureTemplate().exchange(EnphaseURLS.WIFI_INFO, HttpMethod.GET, null, new ParameterizedTypeReference<Wireless>() { });
+				template.exchange(EnphaseURLS.WIFI_INFO, HttpMethod.GET, null, new ParameterizedTypeReference<Wireless>() { });
 
 		if (wirelessResponse.getStatusCode().value() == 200) {
-			system.setWireless(wirelessResponse.getBody());
-		} else {
-			throw new IOException("Reading Wireless Info failed with status " + wirelessResponse.getStatusCode());
+			return wirelessResponse.getBody();
 		}
+		throw new IOException("Reading Wireless Info failed with status " + wirelessResponse.getStatusCode());
 	}
 
 }
@@ -0,0 +1,147 @@
+package com.hz.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hz.configuration.EnphaseURLS;
+import com.hz.models.dto.MeterStreamReading;
+import com.hz.models.envoy.json.MeterStreamFrame;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Holds a single long-lived connection to /stream/meter and averages the frames between collections.
+ * While the stream is live EnvoyService uses the averaged values instead of polling production.json and the meter endpoints.
+ * If the stream drops the service reconnects with a backoff and collection falls back to polling in the meantime.
+ */
+@Service
+@RequiredArgsConstructor
+@Log4j2
+@Profile("stream")
+public class EnvoyStreamService {
+	private static final String DATA_PREFIX = "data:";
+	private static final long LIVE_SECONDS = 10;
+	private static final long MIN_BACKOFF_SECONDS = 5;
+	private static final long MAX_BACKOFF_SECONDS = 300;
+
+	private final EnvoyConnectionProxy envoyConnectionProxy;
+	private final ObjectMapper streamMapper = new ObjectMapper();
+
+	private volatile boolean running = false;
+	private Thread streamThread;
+
+	// Window accumulators guarded by this
+	private BigDecimal productionWatts = BigDecimal.ZERO;
+	private BigDecimal productionVoltage = BigDecimal.ZERO;
+	private BigDecimal totalConsumptionWatts = BigDecimal.ZERO;
+	private BigDecimal netConsumptionWatts = BigDecimal.ZERO;
+	private int frameCount = 0;
+	private long lastFrameTime = 0L;
+
+	@EventListener(ApplicationReadyEvent.class)
+	public synchronized void start() {
+		if (running == false) {
+			running = true;
+			streamThread = new Thread(this::streamLoop, "envoy-meter-stream");
+			streamThread.setDaemon(true);
+			streamThread.start();
+		}
+	}
+
+	@PreDestroy
+	public synchronized void stop() {
+		running = false;
+		if (streamThread != null) {
+			streamThread.interrupt();
+		}
+	}
+
+	public synchronized boolean isLive() {
+		return lastFrameTime > 0L && Instant.now().getEpochSecond() - lastFrameTime <= LIVE_SECONDS;
+	}
+
+	/**
+	 * Average of all frames received since the last call, or empty if the stream is not live
+	 */
+	public synchronized Optional<MeterStreamReading> takeReading() {
+		if (isLive() == false || frameCount == 0) {
+			return Optional.empty();
+		}
+
+		BigDecimal frames = BigDecimal.valueOf(frameCount);
+		MeterStreamReading reading = new MeterStreamReading(lastFrameTime, frameCount,
+				productionWatts.divide(frames, 3, RoundingMode.HALF_UP),
+				productionVoltage.divide(frames, 3, RoundingMode.HALF_UP),
+				totalConsumptionWatts.divide(frames, 3, RoundingMode.HALF_UP),
+				netConsumptionWatts.divide(frames, 3, RoundingMode.HALF_UP));
+		clearWindow();
+		return Optional.of(reading);
+	}
+
+	private synchronized void addFrame(MeterStreamFrame frame) {
+		productionWatts = productionWatts.add(frame.getProductionWatts());
+		productionVoltage = productionVoltage.add(frame.getProductionVoltage());
+		totalConsumptionWatts = totalConsumptionWatts.add(frame.getTotalConsumptionWatts());
+		netConsumptionWatts = netConsumptionWatts.add(frame.getNetConsumptionWatts());
+		frameCount++;
+		lastFrameTime = Instant.now().getEpochSecond();
+	}
+
+	private synchronized void clearWindow() {
+		productionWatts = BigDecimal.ZERO;
+		productionVoltage = BigDecimal.ZERO;
+		totalConsumptionWatts = BigDecimal.ZERO;
+		netConsumptionWatts = BigDecimal.ZERO;
+		frameCount = 0;
+	}
+
+	private void streamLoop() {
+		long backoff = MIN_BACKOFF_SECONDS;
+
+		while (running) {
+			try {
+				envoyConnectionProxy.getStreamTemplate().execute(EnphaseURLS.METER_STREAM, HttpMethod.GET, null, response -> {
+					readFrames(new BufferedReader(new InputStreamReader(response.getBody(), StandardCharsets.UTF_8)));
+					return null;
+				});
+				log.warn("Envoy meter stream closed by the controller");
+			} catch (Exception e) {
+				log.warn("Envoy meter stream failed - {}.  Polling until reconnected", e.getMessage());
+			}
+
+			if (isLive()) {
+				backoff = MIN_BACKOFF_SECONDS;
+			}
+			try {
+				Thread.sleep(backoff * 1000L);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			backoff = Math.min(backoff * 2, MAX_BACKOFF_SECONDS);
+		}
+	}
+
+	private void readFrames(BufferedReader reader) throws IOException {
+		log.info("Envoy meter stream connected");
+		String line;
+		while (running && (line = reader.readLine()) != null) {
+			if (line.startsWith(DATA_PREFIX)) {
+				addFrame(streamMapper.readValue(line.substring(DATA_PREFIX.length()).trim(), MeterStreamFrame.class));
+			}
+		}
+	}
+}
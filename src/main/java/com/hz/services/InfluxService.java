@@ -1,28 +1,164 @@
 package com.hz.services;
 
+import com.hz.configuration.EnphaseCollectorProperties;
+import com.hz.configuration.InfluxDBConfig;
+import com.hz.interfaces.OutboxSink;
+import com.hz.metrics.Downsampler;
+import com.hz.metrics.Metric;
 import com.hz.models.events.MetricCollectionEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.influxdb.InfluxDB;
+import org.influxdb.InfluxDBException;
 import org.influxdb.dto.Point;
 import org.springframework.context.annotation.Profile;
-import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
 import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 @Service
 @RequiredArgsConstructor
 @Log4j2
 @Profile("influxdb")
-public class InfluxService {
+public class InfluxService implements OutboxSink {
+	public static final String SOLAR_MEASUREMENT = "solar";
+	public static final String PANEL_MEASUREMENT = "panel";
+	private static final String SITE_TAG = "site";
+	private static final String ID_TAG = "id";
+	private static final String VALUE_FIELD = "value";
+	private static final String MEAN_FIELD = "mean";
+	private static final String MAX_FIELD = "max";
+	private static final String INTEGRAL_FIELD = "integral";
+	private static final String FIELD_PREFIX = "solar.";
+
 	private final InfluxDB destinationInfluxDB;
+	private final EnphaseCollectorProperties properties;
+	private final Downsampler downsampler = new Downsampler();
+
+	private String getSite(MetricCollectionEvent metricCollectionEvent) {
+		return metricCollectionEvent.isPrimary() ? properties.getSiteName() : metricCollectionEvent.getSite();
+	}
+
+	@Override
+	public String getOutputName() {
+		return "influx";
+	}
 
-	@EventListener
-	public void metricListener(MetricCollectionEvent metricCollectionEvent) {
+	// Written straight away rather than through the client's batching, which drops what it cannot send, so a failed write
+	// throws and is retried from the outbox.  Every point of a collection goes in the one gzipped request
+	@Override
+	public void deliver(MetricCollectionEvent metricCollectionEvent) {
 		log.debug("Writing metric stats at {} with {} items to influxDB", metricCollectionEvent.getCollectionTime(), metricCollectionEvent.getMetrics().size());
-		metricCollectionEvent.getMetrics().
-				forEach(m -> destinationInfluxDB.write(Point.measurement(m.getName()).time(metricCollectionEvent.getCollectionTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(), TimeUnit.MILLISECONDS).addField("value", m.getValue()).build()));
+		destinationInfluxDB.write(createRecords(metricCollectionEvent));
+
+		if (properties.isInfluxDownsample()) {
+			downsampler.add(getSite(metricCollectionEvent), metricCollectionEvent.getCollectionTime(), metricCollectionEvent.getMetrics());
+			writeAggregates();
+		}
+	}
+
+	// The collection itself has been written by now, so failing to write the aggregates must not have the outbox deliver
+	// it again.  Closed aggregates are kept until written, so a failed write is sent again with the next delivery
+	private void writeAggregates() {
+		List<Downsampler.Aggregate> closed = downsampler.getClosed();
+		if (closed.isEmpty()) {
+			return;
+		}
+		try {
+			for (Downsampler.Window window : Downsampler.Window.values()) {
+				List<String> records = createAggregateRecords(window, closed);
+				if (records.isEmpty() == false) {
+					log.debug("Writing {} {} aggregates to influxDB", records.size(), window);
+					destinationInfluxDB.write(InfluxDBConfig.SOLAR_DATABASE_NAME, window.getRetentionPolicy(), InfluxDB.ConsistencyLevel.ONE, records);
+				}
+			}
+			downsampler.clearClosed();
+		} catch (RuntimeException e) {
+			log.warn("Failed to write {} aggregates to influxDB, they will be sent with the next collection - {}", closed.size(), e.getMessage());
+		}
+	}
+
+	/**
+	 * The aggregates of a window as a solar_<window> point per site and start, with mean, max and integral fields per
+	 * metric, and a panel_<window> point per panel tagged with its id
+	 */
+	public List<String> createAggregateRecords(Downsampler.Window window, List<Downsampler.Aggregate> aggregates) {
+		List<String> records = new ArrayList<>();
+		Map<String, Point.Builder> systemPoints = new LinkedHashMap<>();
+		for (Downsampler.Aggregate aggregate : aggregates) {
+			if (aggregate.window() != window) {
+				continue;
+			}
+			long time = aggregate.start().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+			if (aggregate.isSolarPanel()) {
+				records.add(Point.measurement(PANEL_MEASUREMENT + "_" + window.getSuffix()).time(time, TimeUnit.MILLISECONDS)
+						.tag(SITE_TAG, aggregate.site())
+						.tag(ID_TAG, aggregate.name().substring(Metric.METRIC_PANEL_NAME_PREFIX.length()))
+						.addField(MEAN_FIELD, aggregate.mean())
+						.addField(MAX_FIELD, aggregate.max())
+						.addField(INTEGRAL_FIELD, aggregate.integral())
+						.build().lineProtocol());
+			} else {
+				String field = fieldName(aggregate.name());
+				systemPoints.computeIfAbsent(aggregate.site() + time, key -> Point.measurement(SOLAR_MEASUREMENT + "_" + window.getSuffix()).time(time, TimeUnit.MILLISECONDS).tag(SITE_TAG, aggregate.site()))
+						.addField(field + "." + MEAN_FIELD, aggregate.mean())
+						.addField(field + "." + MAX_FIELD, aggregate.max())
+						.addField(field + "." + INTEGRAL_FIELD, aggregate.integral());
+			}
+		}
+		systemPoints.values().forEach(point -> records.add(point.build().lineProtocol()));
+		return records;
+	}
+
+	private static String fieldName(String name) {
+		return name.startsWith(FIELD_PREFIX) ? name.substring(FIELD_PREFIX.length()) : name;
+	}
+
+	public List<String> createRecords(MetricCollectionEvent metricCollectionEvent) {
+		long time = metricCollectionEvent.getCollectionTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+		String site = getSite(metricCollectionEvent);
+		List<String> records = new ArrayList<>();
+
+		if (properties.getInfluxSchema() != EnphaseCollectorProperties.InfluxSchema.TAGGED) {
+			metricCollectionEvent.getMetrics().forEach(m -> records.add(Point.measurement(m.getName()).time(time, TimeUnit.MILLISECONDS).tag(SITE_TAG, site).addField(VALUE_FIELD, m.getValue()).build().lineProtocol()));
+		}
+		if (properties.getInfluxSchema() != EnphaseCollectorProperties.InfluxSchema.LEGACY) {
+			addTaggedRecords(metricCollectionEvent, time, site, records);
+		}
+		return records;
+	}
+
+	// The solar point has a field per system metric named without the solar. prefix, eg production.current, and each panel
+	// is a panel point tagged with its id, so a new panel is a new series rather than a new measurement
+	private void addTaggedRecords(MetricCollectionEvent metricCollectionEvent, long time, String site, List<String> records) {
+		Map<String, Object> fields = new LinkedHashMap<>();
+		for (Metric metric : metricCollectionEvent.getMetrics()) {
+			if (metric.isSolarPanel()) {
+				records.add(Point.measurement(PANEL_MEASUREMENT).time(time, TimeUnit.MILLISECONDS)
+						.tag(SITE_TAG, site)
+						.tag(ID_TAG, metric.getName().substring(Metric.METRIC_PANEL_NAME_PREFIX.length()))
+						.addField(VALUE_FIELD, metric.getValue())
+						.build().lineProtocol());
+			} else {
+				fields.put(fieldName(metric.getName()), metric.getValue());
+			}
+		}
+		if (fields.isEmpty() == false) {
+			records.add(Point.measurement(SOLAR_MEASUREMENT).time(time, TimeUnit.MILLISECONDS).tag(SITE_TAG, site).fields(fields).build().lineProtocol());
+		}
+	}
+
+	// Points influx cannot parse, that conflict with a field's type or that are beyond the retention policy fail the same
+	// way however often they are sent
+	@Override
+	public boolean isRejected(RuntimeException e) {
+		return e instanceof InfluxDBException.UnableToParseException
+				|| e instanceof InfluxDBException.FieldTypeConflictException
+				|| e instanceof InfluxDBException.PointsBeyondRetentionPolicyException;
 	}
 }
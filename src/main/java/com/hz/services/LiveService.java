@@ -0,0 +1,116 @@
+package com.hz.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hz.configuration.EnphaseCollectorProperties;
+import com.hz.metrics.MetricSnapshot;
+import com.hz.models.dto.LivePeriod;
+import com.hz.models.dto.LiveReading;
+import com.hz.models.events.MetricCollectionEvent;
+import com.hz.models.events.RollupEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Pushes each collection of the controller to every open page as a server sent event, so the live charts are kept up
+ * to date without each page polling the database.  The gauges take the collection itself and the production/consumption
+ * chart the rollup of its period that the collection was added to, so it stays the chart /pvc draws.  Each event is
+ * rendered to JSON once and the same text written to every subscriber, so the cost barely grows with the pages open
+ */
+@Service
+@RequiredArgsConstructor
+@Log4j2
+public class LiveService {
+	public static final String EVENT_NAME = "collection";
+	public static final String PERIOD_EVENT_NAME = "period";
+	// Browsers reconnect by themselves so a page left open is moved to a new request now and then, and one that has gone
+	// away is removed even if no collection fails to reach it
+	private static final Duration SUBSCRIPTION_TIMEOUT = Duration.ofMinutes(30);
+
+	private final EnphaseCollectorProperties properties;
+	private final ObjectMapper objectMapper;
+
+	private final List<SseEmitter> subscribers = new CopyOnWriteArrayList<>();
+
+	public SseEmitter subscribe() {
+		SseEmitter emitter = new SseEmitter(SUBSCRIPTION_TIMEOUT.toMillis());
+		emitter.onCompletion(() -> subscribers.remove(emitter));
+		emitter.onTimeout(emitter::complete);
+		emitter.onError(e -> subscribers.remove(emitter));
+		try {
+			// Nothing is written until the first event so one is sent straight away for the page to see it is connected
+			emitter.send(SseEmitter.event().comment("connected"));
+		} catch (IOException e) {
+			emitter.completeWithError(e);
+			return emitter;
+		}
+		subscribers.add(emitter);
+		log.debug("Live subscriber added, {} open", subscribers.size());
+		return emitter;
+	}
+
+	public int getSubscriberCount() {
+		return subscribers.size();
+	}
+
+	@EventListener
+	public void metricListener(MetricCollectionEvent metricCollectionEvent) {
+		if (metricCollectionEvent.isPrimary()) {
+			send(EVENT_NAME, createReading(metricCollectionEvent));
+		}
+	}
+
+	@EventListener
+	public void rollupListener(RollupEvent rollupEvent) {
+		send(PERIOD_EVENT_NAME, createPeriod(rollupEvent));
+	}
+
+	private void send(String name, Object value) {
+		if (subscribers.isEmpty()) {
+			return;
+		}
+
+		String data;
+		try {
+			data = objectMapper.writeValueAsString(value);
+		} catch (JsonProcessingException e) {
+			log.error("Failed to render live {} - {}", name, e.getMessage(), e);
+			return;
+		}
+
+		// A builder appends the frame's closing blank line each time it is built, so every subscriber gets its own
+		for (SseEmitter subscriber : subscribers) {
+			try {
+				subscriber.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+			} catch (IOException | IllegalStateException e) {
+				// The page has gone, the container completes the request
+				log.debug("Dropping live subscriber - {}", e.getMessage());
+				subscribers.remove(subscriber);
+			}
+		}
+	}
+
+	public LiveReading createReading(MetricCollectionEvent metricCollectionEvent) {
+		MetricSnapshot snapshot = metricCollectionEvent.getSnapshot();
+		return new LiveReading(metricCollectionEvent.getCollectionTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(),
+				Math.round(snapshot.get(MetricSnapshot.Core.PRODUCTION_CURRENT)), Math.round(snapshot.get(MetricSnapshot.Core.CONSUMPTION_CURRENT)),
+				snapshot.get(MetricSnapshot.Core.PRODUCTION_VOLTAGE));
+	}
+
+	// Rounded to whole watts as IntValue does for /pvc
+	public LivePeriod createPeriod(RollupEvent rollupEvent) {
+		return new LivePeriod(rollupEvent.getStart().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(),
+				rollupEvent.getProduction().intValue(), rollupEvent.getConsumption().intValue(), rollupEvent.getGridImport().intValue(),
+				properties.getExportLimit() > 0 ? rollupEvent.getExcess().intValue() : null);
+	}
+}
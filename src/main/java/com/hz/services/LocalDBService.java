@@ -1,21 +1,26 @@
 package com.hz.services;
 
 import com.hz.configuration.EnphaseCollectorProperties;
+import com.hz.controllers.models.PvC;
 import com.hz.interfaces.*;
-import com.hz.metrics.Metric;
+import com.hz.metrics.DailyTotals;
+import com.hz.metrics.MetricSnapshot;
 import com.hz.models.database.*;
 import com.hz.models.dto.PanelProduction;
 import com.hz.models.events.MetricCollectionEvent;
+import com.hz.models.events.RollupEvent;
 import com.hz.models.events.SystemInfoEvent;
 import com.hz.utils.Calculators;
 import com.hz.utils.Convertors;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -28,6 +33,8 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 @Log4j2
 public class LocalDBService {
+	// Events removed in each transaction by the nightly summary
+	private static final int DELETE_CHUNK = 500;
 
 	private final EnphaseCollectorProperties properties;
 	private final EnvoySystemRepository envoySystemRepository;
@@ -35,13 +42,121 @@ public class LocalDBService {
 	private final PanelRepository panelRepository;
 	private final SummaryRepository summaryRepository;
 	private final ElectricityRateRepository electricityRateRepository;
-
+	private final EnergyReconciliationService energyReconciliationService;
+	private final EventRollupRepository eventRollupRepository;
+	private final TransactionTemplate transactionTemplate;
+	private final ApplicationEventPublisher applicationEventPublisher;
+
+	// Today's totals for the status tiles.  Events are stored and added under the lock so a rebuild sees each one once
+	private final Object todayLock = new Object();
+	private DailyTotals today;
+	// The rollup being added to at each resolution and the last reading of each panel today, for the excess
+	private final Map<Integer, EventRollup> rollups = new HashMap<>();
+	private final Map<String, Float> latestPanels = new HashMap<>();
+	private LocalDate panelsDate;
+
+	// Each step has its own transactions, createSummaries one for each day it summarises
 	@EventListener(ApplicationReadyEvent.class)
-	@Transactional
 	public void applicationReady() {
-		this.upgradeRates();
-		this.upgradeConversion();
+		transactionTemplate.executeWithoutResult(status -> {
+			this.upgradeRates();
+			this.upgradeConversion();
+		});
 		this.createSummaries();
+		this.rebuildToday();
+		transactionTemplate.executeWithoutResult(status -> this.rebuildRollups());
+	}
+
+	// Totals of the events already stored today, summed once rather than for each page
+	public void rebuildToday() {
+		synchronized (todayLock) {
+			LocalDateTime midnight = getMidnight();
+			today = new DailyTotals(midnight.toLocalDate(),
+					eventRepository.findTotalProductionAfter(midnight),
+					eventRepository.findTotalConsumptionAfter(midnight),
+					eventRepository.findExcessProductionAfter(midnight),
+					eventRepository.findExcessConsumptionAfter(midnight),
+					eventRepository.findMaxProductionAfter(midnight));
+			log.debug("Today's totals rebuilt, production {} consumption {}", today.getProduction(), today.getConsumption());
+		}
+	}
+
+	// Today's rollups from the Event table in one pass, so they are complete after an upgrade or a change of resolutions
+	@Transactional
+	public void rebuildRollups() {
+		synchronized (todayLock) {
+			LocalDateTime midnight = getMidnight();
+			eventRollupRepository.deleteRollupsByStartFrom(midnight);
+			rollups.clear();
+			latestPanels.clear();
+
+			PanelReading current = null;
+			int events = 0;
+			for (PanelReading reading : panelRepository.getPanelReadings(midnight)) {
+				if (current != null && current.getId().equals(reading.getId()) == false) {
+					addToRollups(current.getTime(), current.getProduction(), current.getConsumption(), true);
+					events++;
+				}
+				if (reading.getIdentifier() != null) {
+					latestPanel(reading.getTime(), reading.getIdentifier(), reading.getPanelValue());
+				}
+				current = reading;
+			}
+			if (current != null) {
+				addToRollups(current.getTime(), current.getProduction(), current.getConsumption(), true);
+				events++;
+			}
+			rollups.replaceAll((resolution, rollup) -> eventRollupRepository.save(rollup));
+			log.info("Rebuilt today's rollups of {} minutes from {} events", properties.getRollupResolutions(), events);
+		}
+	}
+
+	private void latestPanel(LocalDateTime time, String identifier, float value) {
+		if (time.toLocalDate().equals(panelsDate) == false) {
+			latestPanels.clear();
+			panelsDate = time.toLocalDate();
+		}
+		latestPanels.put(identifier, value);
+	}
+
+	// When rebuilding the events arrive in time order after the day's rollups were deleted, so each rollup is kept in memory
+	// and saved once, when the next period starts or the rebuild ends
+	private void addToRollups(LocalDateTime time, BigDecimal production, BigDecimal consumption, boolean rebuilding) {
+		BigDecimal gridImport = PvC.calculateGridUsage(production, consumption);
+		BigDecimal excess = BigDecimal.ZERO;
+		if (properties.getExportLimit() > 0 && latestPanels.isEmpty() == false && time.toLocalDate().equals(panelsDate)) {
+			BigDecimal panelProduction = BigDecimal.valueOf(latestPanels.values().stream().mapToDouble(Float::doubleValue).sum());
+			excess = PvC.calculateExcess(panelProduction, consumption, BigDecimal.valueOf(properties.getExportLimit()));
+		}
+
+		for (int resolution : properties.getRollupResolutions()) {
+			LocalDateTime start = EventRollup.periodStart(time, resolution);
+			EventRollup rollup = rollups.get(resolution);
+			if (rollup == null || rollup.getStart().isEqual(start) == false) {
+				if (rebuilding) {
+					if (rollup != null) {
+						eventRollupRepository.save(rollup);
+					}
+					rollup = new EventRollup(resolution, start);
+				} else {
+					rollup = eventRollupRepository.findByResolutionAndStart(resolution, start).orElseGet(() -> new EventRollup(resolution, start));
+				}
+			}
+			rollup.add(production, consumption, gridImport, excess);
+			rollups.put(resolution, rebuilding ? rollup : eventRollupRepository.save(rollup));
+		}
+	}
+
+	// A new day starts with nothing, as the Event table has nothing after midnight yet
+	private DailyTotals getToday() {
+		synchronized (todayLock) {
+			if (today == null) {
+				rebuildToday();
+			} else if (today.getDate().isBefore(LocalDate.now())) {
+				today = new DailyTotals(LocalDate.now());
+			}
+			return today;
+		}
 	}
 
 	private void upgradeConversion() {
@@ -65,31 +180,69 @@ public class LocalDBService {
 		}
 	}
 
-	// Summarise the Event table at 5 minutes past midnight
+	/**
+	 * Summarise the Event table at 5 minutes past midnight.  Each day before today is summarised from one pass over its
+	 * events and saved in its own transaction, then its events are removed a chunk at a time, so a large backlog never
+	 * holds one long transaction.  A day that already has a Summary was summarised by a run that stopped part way, so only
+	 * the removal of its events carries on
+	 */
 	@Scheduled(cron="0 5 0 * * ?")
-	@Transactional
 	public void createSummaries() {
 		LocalDateTime midnight = getMidnight();
 		log.info("Summarising Event table prior to {}", midnight);
 		try {
-			List<DailySummary> dailies = eventRepository.findAllBefore(midnight);
-			List<Total> gridImports = eventRepository.findAllExcessConsumptionBefore(midnight);
-			List<Total> gridExports = eventRepository.findAllExcessProductionBefore(midnight);
-			List<Total> maxProductions = eventRepository.findAllMaxProductionBefore(midnight);
-
-			dailies.forEach(daily -> saveSummary(daily,
-					findMatching(gridImports, daily.getDate()),
-					findMatching(gridExports, daily.getDate()),
-					findMatching(maxProductions, daily.getDate()), properties.getRefreshAsMinutes()));
-
-			panelRepository.deleteEventsPanelByTimeBefore(midnight);
-			panelRepository.deletePanelsByTimeBefore(midnight);
-			eventRepository.deleteEventsByTimeBefore(midnight);
+			Optional<Event> oldest = eventRepository.findFirstByTimeBeforeOrderByTimeAsc(midnight);
+			while (oldest.isPresent()) {
+				LocalDate day = oldest.get().getTime().toLocalDate();
+				LocalDateTime dayEnd = day.plusDays(1).atStartOfDay();
+
+				transactionTemplate.executeWithoutResult(status -> saveSummary(day, dayEnd));
+				int removed = removeEventsBefore(dayEnd);
+				log.debug("Removed {} events of {}", removed, day);
+
+				oldest = eventRepository.findFirstByTimeBeforeOrderByTimeAsc(midnight);
+			}
+
+			transactionTemplate.executeWithoutResult(status -> {
+				eventRollupRepository.deleteRollupsByStartBefore(midnight);
+				energyReconciliationService.removeBefore(midnight.toLocalDate());
+			});
 		} catch (Exception e) {
 			log.error("Failed to summarise Event table: {} {}", e.getMessage(), e);
 		}
 	}
 
+	private void saveSummary(LocalDate day, LocalDateTime dayEnd) {
+		if (summaryRepository.existsById(day)) {
+			log.info("Summary for {} already saved, removing its events", day);
+			return;
+		}
+		eventRepository.findDailySummaryBetween(day.atStartOfDay(), dayEnd).ifPresent(daily -> {
+			log.info("Saving Summary for {} with import {} and export {}", daily.getDate(), daily.getGridImport(), daily.getGridExport());
+			summaryRepository.save(energyReconciliationService.reconcile(new Summary(daily, properties.getRefreshAsMinutes())));
+		});
+	}
+
+	// Events are removed with their panels a chunk at a time, each chunk in its own transaction
+	private int removeEventsBefore(LocalDateTime time) {
+		int removed = 0;
+		List<Long> events = eventRepository.findIdsBefore(time, DELETE_CHUNK);
+		while (events.isEmpty() == false) {
+			List<Long> chunk = events;
+			transactionTemplate.executeWithoutResult(status -> {
+				List<Long> panels = panelRepository.findPanelIdsByEvents(chunk);
+				panelRepository.deleteEventPanelsByEvents(chunk);
+				if (panels.isEmpty() == false) {
+					panelRepository.deletePanelsById(panels);
+				}
+				eventRepository.deleteEventsById(chunk);
+			});
+			removed += chunk.size();
+			events = eventRepository.findIdsBefore(time, DELETE_CHUNK);
+		}
+		return removed;
+	}
+
 	@EventListener
 	public void systemInfoListener(SystemInfoEvent systemEvent) {
 		envoySystemRepository.save(systemEvent.getEnvoySystem());
@@ -97,23 +250,43 @@ public class LocalDBService {
 
 	@EventListener
 	public void metricListener(MetricCollectionEvent metricCollectionEvent) {
+		if (metricCollectionEvent.isPrimary() == false) {
+			return;
+		}
 		log.debug("Writing metric stats at {} with {} items to internal database", metricCollectionEvent.getCollectionTime(), metricCollectionEvent.getMetrics().size());
 
 		Event event = new Event();
 		event.setTime(metricCollectionEvent.getCollectionTime());
 
-		event.setProduction(getMetric(metricCollectionEvent.getMetrics(), Metric.METRIC_PRODUCTION_CURRENT).map(metric -> BigDecimal.valueOf(metric.getValue())).orElse(BigDecimal.ZERO));
-		event.setConsumption(getMetric(metricCollectionEvent.getMetrics(), Metric.METRIC_CONSUMPTION_CURRENT).map(metric -> BigDecimal.valueOf(metric.getValue())).orElse(BigDecimal.ZERO));
-		event.setVoltage(getMetric(metricCollectionEvent.getMetrics(), Metric.METRIC_PRODUCTION_VOLTAGE).map(metric -> BigDecimal.valueOf(metric.getValue())).orElse(BigDecimal.ZERO));
+		MetricSnapshot snapshot = metricCollectionEvent.getSnapshot();
+		event.setProduction(BigDecimal.valueOf(snapshot.get(MetricSnapshot.Core.PRODUCTION_CURRENT)));
+		event.setConsumption(BigDecimal.valueOf(snapshot.get(MetricSnapshot.Core.CONSUMPTION_CURRENT)));
+		event.setVoltage(BigDecimal.valueOf(snapshot.get(MetricSnapshot.Core.PRODUCTION_VOLTAGE)));
 
-		metricCollectionEvent.getMetrics().stream().filter(Metric::isSolarPanel).forEach(event::addSolarPanel);
+		for (int panel = 0; panel < snapshot.getPanelCount(); panel++) {
+			event.addSolarPanel(snapshot.getPanelName(panel), snapshot.getPanelValue(panel));
+		}
 
-		eventRepository.save(event);
-	}
+		RollupEvent pvcRollup = null;
+		synchronized (todayLock) {
+			eventRepository.save(event);
+			event.getPanels().forEach(panel -> latestPanel(event.getTime(), panel.getIdentifier(), panel.getPanelValue()));
+			addToRollups(event.getTime(), event.getProduction(), event.getConsumption(), false);
 
-	private void saveSummary(DailySummary daily, Total gridImport, Total gridExport, Total highestOutput, BigDecimal conversionRate) {
-		log.info("Saving Summary for {} with import {} and export {}", daily.getDate(), gridImport.getSummary(), gridExport.getSummary());
-		summaryRepository.save(new Summary(daily, gridImport, gridExport, highestOutput, conversionRate));
+			DailyTotals totals = getToday();
+			if (totals.getDate().isEqual(event.getTime().toLocalDate())) {
+				totals.add(event.getProduction(), event.getConsumption());
+			}
+
+			EventRollup rollup = rollups.get(properties.getPvcMinutes());
+			if (rollup != null) {
+				pvcRollup = new RollupEvent(this, rollup.getStart(), rollup.getMeanProduction(), rollup.getMeanConsumption(), rollup.getMeanGridImport(), rollup.getMeanExcess());
+			}
+		}
+		// The live chart is drawn from the same rollups as /pvc, so each collection moves the point of its period
+		if (pvcRollup != null) {
+			applicationEventPublisher.publishEvent(pvcRollup);
+		}
 	}
 
 	public void saveElectricityRate(LocalDate effectiveDate, ElectricityRate electricityRate) {
@@ -132,21 +305,10 @@ public class LocalDBService {
 		}
 	}
 
-	private Total findMatching(List<Total> values, LocalDate matchDate) {
-		return values.stream().
-				filter(value -> matchDate.isEqual(value.getDate())).
-				findFirst().
-				orElseGet(EmptyTotal::new);
-	}
-
 	public ElectricityRate getRateForDate(LocalDate date) {
 		return electricityRateRepository.findFirstByEffectiveDateLessThanEqualOrderByEffectiveDateDesc(date).orElse(new ElectricityRate(date));
 	}
 
-	private Optional<Metric> getMetric(List<Metric> metrics, String name) {
-		return metrics.stream().filter(metric -> metric.getName().equalsIgnoreCase(name)).findFirst();
-	}
-
 	public EnvoySystem getSystemInfo() {
 		return envoySystemRepository.findById(1L).orElseGet(EnvoySystem::new);
 	}
@@ -158,11 +320,12 @@ public class LocalDBService {
 		return envoySystem.map(es -> eventRepository.findTopByTime(es.getLastReadTime())).orElseGet(Event::new);
 	}
 
-	public List<Event> getEventsForToday() {
-		return eventRepository.findEventsByTimeAfter(getMidnight());
+	// Today's rollup at the given resolution, or at envoy.pvc-minutes when there is none at that resolution
+	public List<EventRollup> getRollupsForToday(Integer minutes) {
+		int resolution = minutes != null && properties.getRollupResolutions().contains(minutes) ? minutes : properties.getPvcMinutes();
+		return eventRollupRepository.findByResolutionAndStartGreaterThanEqualOrderByStartAsc(resolution, getMidnight());
 	}
 
-	@Transactional(readOnly = true)
 	public PanelProduction getMaxPanelProduction() {
 		NavigableMap<Float,List<Panel>> map = new TreeMap<>(this.getPanelSummaries());
 
@@ -171,10 +334,20 @@ public class LocalDBService {
 				: new PanelProduction(BigDecimal.ZERO,BigDecimal.ZERO,0);
 	}
 
-	@Transactional(readOnly = true)
+	// The latest reading of every panel seen today, kept as events are stored so the tiles need no query
+	private List<Panel> getLatestPanels() {
+		List<Panel> panels = new ArrayList<>();
+		synchronized (todayLock) {
+			if (getMidnight().toLocalDate().equals(panelsDate)) {
+				latestPanels.forEach((identifier, value) -> panels.add(new Panel(identifier, value)));
+			}
+		}
+		return panels;
+	}
+
 	public Map<Float, List<Panel>> getPanelSummaries() {
 		try {
-			List<Panel> panels = this.getLastEvent().getPanels();
+			List<Panel> panels = this.getLatestPanels();
 			panels.sort((o1, o2) -> Float.compare(o1.getPanelValue(), o2.getPanelValue()) * -1);
 			return panels.stream()
 					.collect(Collectors.groupingBy(Panel::bucket, LinkedHashMap::new, Collectors.toList()));
@@ -184,10 +357,6 @@ public class LocalDBService {
 		return new LinkedHashMap<>();
 	}
 
-	public List<PanelSummary> getPanelProduction() {
-		return panelRepository.getPanelSummaries(getMidnight());
-	}
-
 	// When a summary record is null the list is not continuous so fill missing values
 	public List<Summary> getLastDurationTotalsContinuous(String duration) {
 		List<Summary> dbValues = this.getLastDurationTotals(duration);
@@ -222,35 +391,34 @@ public class LocalDBService {
 	}
 
 	public BigDecimal calculateCostsForToday() {
-		return Calculators.calculateFinancial(eventRepository.findExcessConsumptionAfter(getMidnight()), properties.getChargePerKiloWatt(), "Cost", properties.getRefreshAsMinutes());
+		return Calculators.calculateFinancial(getToday().getExcessConsumption(), properties.getChargePerKiloWatt(), "Cost", properties.getRefreshAsMinutes());
 	}
 
 	public BigDecimal calculatePaymentForToday() {
-		return Calculators.calculateFinancial(eventRepository.findExcessProductionAfter(getMidnight()), properties.getPaymentPerKiloWatt(), "Payment", properties.getRefreshAsMinutes());
+		return Calculators.calculateFinancial(getToday().getExcessProduction(), properties.getPaymentPerKiloWatt(), "Payment", properties.getRefreshAsMinutes());
 	}
 
 	public BigDecimal calculateSavingsForToday() {
-		Long totalWatts = eventRepository.findTotalProductionAfter(getMidnight());
-		Long excessWatts = eventRepository.findExcessProductionAfter(getMidnight());
-		return Calculators.calculateFinancial( totalWatts - excessWatts , properties.getChargePerKiloWatt(), "Savings", properties.getRefreshAsMinutes());
+		DailyTotals totals = getToday();
+		return Calculators.calculateFinancial(totals.getProduction() - totals.getExcessProduction(), properties.getChargePerKiloWatt(), "Savings", properties.getRefreshAsMinutes());
 	}
 
 	public Long calculateMaxProduction() {
-		return eventRepository.findMaxProductionAfter(getMidnight());
+		return getToday().getMaxProduction();
 	}
 
 	public BigDecimal calculateGridImport() {
-		BigDecimal watts = BigDecimal.valueOf(eventRepository.findExcessConsumptionAfter(getMidnight()));
+		BigDecimal watts = BigDecimal.valueOf(getToday().getExcessConsumption());
 		return Convertors.convertToKiloWattHours(watts, properties.getRefreshAsMinutes());
 	}
 
 	public BigDecimal calculateTotalProduction() {
-		BigDecimal watts = BigDecimal.valueOf(eventRepository.findTotalProductionAfter(getMidnight()));
+		BigDecimal watts = BigDecimal.valueOf(getToday().getProduction());
 		return Convertors.convertToKiloWattHours(watts, properties.getRefreshAsMinutes());
 	}
 
 	public BigDecimal calculateTotalConsumption() {
-		BigDecimal watts = BigDecimal.valueOf(eventRepository.findTotalConsumptionAfter(getMidnight()));
+		BigDecimal watts = BigDecimal.valueOf(getToday().getConsumption());
 		return Convertors.convertToKiloWattHours(watts, properties.getRefreshAsMinutes());
 	}
 
@@ -1,7 +1,9 @@
 package com.hz.services;
 
 import com.hz.configuration.EnphaseCollectorProperties;
+import com.hz.interfaces.OutboxSink;
 import com.hz.metrics.Metric;
+import com.hz.metrics.MetricSnapshot;
 import com.hz.models.events.MetricCollectionEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
@@ -9,64 +11,144 @@ import org.eclipse.paho.client.mqttv3.IMqttClient;
 import org.eclipse.paho.client.mqttv3.MqttException;
 import org.eclipse.paho.client.mqttv3.MqttMessage;
 import org.springframework.context.annotation.Profile;
-import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
 import java.time.ZoneId;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 @Log4j2
 @RequiredArgsConstructor
 @Profile("mqtt")
-public class MqttService {
+public class MqttService implements OutboxSink {
+	private static final Map<MetricSnapshot.Core, String> METER_TOPICS = new EnumMap<>(MetricSnapshot.Core.class);
+	static {
+		METER_TOPICS.put(MetricSnapshot.Core.PRODUCTION_CURRENT, "/meter/production");
+		METER_TOPICS.put(MetricSnapshot.Core.CONSUMPTION_CURRENT, "/meter/consumption");
+		METER_TOPICS.put(MetricSnapshot.Core.PRODUCTION_VOLTAGE, "/meter/voltage");
+		METER_TOPICS.put(MetricSnapshot.Core.GRID_IMPORT, "/meter/import");
+		METER_TOPICS.put(MetricSnapshot.Core.SOLAR_EXCESS, "/meter/export");
+	}
+	private static final String PANEL_TOPIC = "/panel/";
+
 	private final IMqttClient mqttClient;
 	private final EnphaseCollectorProperties properties;
+	// Panels are only in an event when they have reported again, so the last value of each is kept per topic
+	private final Map<String, Map<String, Float>> topicPanels = new ConcurrentHashMap<>();
+	// The value last published to each topic in topics mode.  Delivery is from the one outbox thread, so the text of each
+	// value is built in the one buffer.  The payload bytes themselves are new for each message as MqttMessage keeps them
+	private final Map<String, Float> published = new HashMap<>();
+	private final StringBuilder buffer = new StringBuilder();
 
-	private double getMetric(MetricCollectionEvent metricCollectionEvent, String name) {
-		return metricCollectionEvent.getMetrics()
-				.stream()
-				.filter(metric -> metric.getName().equalsIgnoreCase(name))
-				.findFirst()
-				.map(metric -> BigDecimal.valueOf(metric.getValue()))
-				.orElse(BigDecimal.ZERO).doubleValue();
+	private double getMetric(MetricCollectionEvent metricCollectionEvent, MetricSnapshot.Core key) {
+		return metricCollectionEvent.getSnapshot().get(key);
 	}
 
 	public String createPayload(MetricCollectionEvent metricCollectionEvent) {
+		return createPayload(metricCollectionEvent, new TreeMap<>());
+	}
+
+	private String createPayload(MetricCollectionEvent metricCollectionEvent, Map<String, Float> panels) {
 
 		StringBuilder payload = new StringBuilder();
 
 		payload.append("solar.collection.time").append(":").append(metricCollectionEvent.getCollectionTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()).append("\n");
 		payload.append("solar.collection.time.TZ").append(":").append(ZoneId.systemDefault().getId()).append("\n");
 		payload.append("solar.collection.period").append(":").append(properties.getRefreshSeconds()).append("\n");
-		payload.append("solar.meter.production").append(":").append(getMetric(metricCollectionEvent, Metric.METRIC_PRODUCTION_CURRENT)).append("\n");
-		payload.append("solar.meter.consumption").append(":").append(getMetric(metricCollectionEvent, Metric.METRIC_CONSUMPTION_CURRENT)).append("\n");
-		payload.append("solar.meter.voltage").append(":").append(getMetric(metricCollectionEvent, Metric.METRIC_PRODUCTION_VOLTAGE)).append("\n");
-		payload.append("solar.meter.import").append(":").append(getMetric(metricCollectionEvent, Metric.METRIC_GRID_IMPORT)).append("\n");
-		payload.append("solar.meter.export").append(":").append(getMetric(metricCollectionEvent, Metric.METRIC_SOLAR_EXCESS)).append("\n");
+		payload.append("solar.meter.production").append(":").append(getMetric(metricCollectionEvent, MetricSnapshot.Core.PRODUCTION_CURRENT)).append("\n");
+		payload.append("solar.meter.consumption").append(":").append(getMetric(metricCollectionEvent, MetricSnapshot.Core.CONSUMPTION_CURRENT)).append("\n");
+		payload.append("solar.meter.voltage").append(":").append(getMetric(metricCollectionEvent, MetricSnapshot.Core.PRODUCTION_VOLTAGE)).append("\n");
+		payload.append("solar.meter.import").append(":").append(getMetric(metricCollectionEvent, MetricSnapshot.Core.GRID_IMPORT)).append("\n");
+		payload.append("solar.meter.export").append(":").append(getMetric(metricCollectionEvent, MetricSnapshot.Core.SOLAR_EXCESS)).append("\n");
 
-		metricCollectionEvent.getMetrics()
-				.stream()
-				.filter(Metric::isSolarPanel)
-				.forEach(panel -> payload.append("solar.panel.production").append(".id.").append(panel.getName()).append(":").append(getMetric(metricCollectionEvent, panel.getName())).append("\n"));
+		MetricSnapshot snapshot = metricCollectionEvent.getSnapshot();
+		for (int index = 0; index < snapshot.getPanelCount(); index++) {
+			panels.put(snapshot.getPanelName(index), snapshot.getPanelValue(index));
+		}
+		panels.forEach((panel, value) -> payload.append("solar.panel.production").append(".id.").append(panel).append(":").append(value.doubleValue()).append("\n"));
 
 		return payload.toString();
 	}
 
-	@EventListener
-	public void metricListener(MetricCollectionEvent metricCollectionEvent) {
+	@Override
+	public String getOutputName() {
+		return "mqtt";
+	}
+
+	@Override
+	public void deliver(MetricCollectionEvent metricCollectionEvent) {
 		if (mqttClient.isConnected() == false) {
 			throw new RuntimeException("Mqtt client not connected");
 		}
 
-		log.debug("Sending metric stats at {} with {} items to MQTT topic {}", metricCollectionEvent.getCollectionTime(), metricCollectionEvent.getMetrics().size(), properties.getMqqtResource().getTopic());
-		String payload = createPayload(metricCollectionEvent);
+		// Additional sites are published below the main topic
+		String topic = metricCollectionEvent.isPrimary() ? properties.getMqqtResource().getTopic() : properties.getMqqtResource().getTopic() + "/" + metricCollectionEvent.getSite();
+		if (properties.getMqqtResource().getMode() == EnphaseCollectorProperties.MqttMode.TOPICS) {
+			publishTopics(metricCollectionEvent, topic);
+			return;
+		}
+
+		log.debug("Sending metric stats at {} with {} items to MQTT topic {}", metricCollectionEvent.getCollectionTime(), metricCollectionEvent.getMetrics().size(), topic);
+		String payload = createPayload(metricCollectionEvent, topicPanels.computeIfAbsent(topic, key -> new TreeMap<>()));
+		publish(topic, payload.getBytes());
+	}
+
+	// Only values that have moved by more than the deadband since they were last published are sent
+	private void publishTopics(MetricCollectionEvent metricCollectionEvent, String topic) {
+		MetricSnapshot snapshot = metricCollectionEvent.getSnapshot();
+		long time = metricCollectionEvent.getCollectionTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+		int sent = 0;
+
+		for (Map.Entry<MetricSnapshot.Core, String> meter : METER_TOPICS.entrySet()) {
+			if (snapshot.has(meter.getKey()) && publishChanged(topic + meter.getValue(), snapshot.get(meter.getKey()), time)) {
+				sent++;
+			}
+		}
+		for (int index = 0; index < snapshot.getPanelCount(); index++) {
+			String panel = snapshot.getPanelName(index).substring(Metric.METRIC_PANEL_NAME_PREFIX.length());
+			if (publishChanged(topic + PANEL_TOPIC + panel, snapshot.getPanelValue(index), time)) {
+				sent++;
+			}
+		}
+		log.debug("Sent {} changed values at {} below MQTT topic {}", sent, metricCollectionEvent.getCollectionTime(), topic);
+	}
+
+	private boolean publishChanged(String topic, float value, long time) {
+		Float last = published.get(topic);
+		if (last != null && Math.abs(value - last) <= properties.getMqqtResource().getDeadband()) {
+			return false;
+		}
+
+		buffer.setLength(0);
+		if (properties.getMqqtResource().getFormat() == EnphaseCollectorProperties.MqttFormat.JSON) {
+			buffer.append("{\"value\":").append(value).append(",\"time\":").append(time).append('}');
+		} else {
+			buffer.append(value);
+		}
+		publish(topic, asciiBytes(buffer));
+		published.put(topic, value);
+		return true;
+	}
+
+	// The numbers and JSON punctuation are all ASCII, so the bytes are copied straight from the buffer without a String
+	private static byte[] asciiBytes(CharSequence text) {
+		byte[] bytes = new byte[text.length()];
+		for (int index = 0; index < bytes.length; index++) {
+			bytes[index] = (byte) text.charAt(index);
+		}
+		return bytes;
+	}
 
-		MqttMessage msg = new MqttMessage(payload.getBytes());
+	private void publish(String topic, byte[] payload) {
+		MqttMessage msg = new MqttMessage(payload);
 		msg.setQos(0);
 		msg.setRetained(true);
 		try {
-			mqttClient.publish(properties.getMqqtResource().getTopic(), msg);
+			mqttClient.publish(topic, msg);
 		} catch (MqttException e) {
 			throw new RuntimeException(e);
 		}
@@ -0,0 +1,125 @@
+package com.hz.services;
+
+import com.hz.components.OutputQueue;
+import com.hz.configuration.EnphaseCollectorProperties;
+import com.hz.interfaces.OutboxCursorRepository;
+import com.hz.interfaces.OutboxRepository;
+import com.hz.interfaces.OutboxSink;
+import com.hz.models.database.OutboxCursor;
+import com.hz.models.database.OutboxEntry;
+import com.hz.models.events.MetricCollectionEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps every MetricCollectionEvent in the local database until each external output has taken it, so Influx, MQTT or
+ * PvOutput being unavailable delays their data rather than losing it.  Each output has its own cursor and drains the
+ * outbox on its own thread, at its own pace, from where it last stopped.  Entries are removed once every output has taken
+ * them or after envoy.outbox-retention-days
+ */
+@Service
+@RequiredArgsConstructor
+@Log4j2
+public class OutboxService {
+	private static final String DRAIN = "drain";
+
+	private final EnphaseCollectorProperties properties;
+	private final OutboxRepository outboxRepository;
+	private final OutboxCursorRepository outboxCursorRepository;
+	private final ObjectProvider<OutboxSink> outboxSinks;
+	private final MeterRegistry meterRegistry;
+
+	private final Map<String, OutputQueue> queues = new ConcurrentHashMap<>();
+	private final Set<String> started = ConcurrentHashMap.newKeySet();
+
+	private List<OutboxSink> getSinks() {
+		return outboxSinks.orderedStream().toList();
+	}
+
+	@EventListener
+	public void metricListener(MetricCollectionEvent metricCollectionEvent) {
+		List<OutboxSink> sinks = getSinks();
+		if (sinks.isEmpty()) {
+			return;
+		}
+		sinks.stream().filter(sink -> started.add(sink.getOutputName())).forEach(this::startCursor);
+		outboxRepository.save(new OutboxEntry(metricCollectionEvent));
+		sinks.forEach(this::drainLater);
+	}
+
+	// At most one drain waits for each output, as a drain takes everything written before it starts
+	private void drainLater(OutboxSink sink) {
+		queues.computeIfAbsent(sink.getOutputName(), name -> {
+			EnphaseCollectorProperties.Output settings = new EnphaseCollectorProperties.Output();
+			settings.setPolicy(EnphaseCollectorProperties.OverflowPolicy.COALESCE_LATEST);
+			settings.setCapacity(1);
+			return new OutputQueue("outbox-" + name, settings, meterRegistry);
+		}).offer(DRAIN, () -> drain(sink));
+	}
+
+	private void drain(OutboxSink sink) {
+		OutboxCursor cursor = outboxCursorRepository.findById(sink.getOutputName()).orElseThrow();
+
+		List<OutboxEntry> entries = outboxRepository.findTop100ByIdGreaterThanOrderByIdAsc(cursor.getLastId());
+		int delivered = 0;
+		while (entries.isEmpty() == false) {
+			for (OutboxEntry entry : entries) {
+				try {
+					sink.deliver(entry.toEvent(this));
+					delivered++;
+				} catch (RuntimeException e) {
+					if (sink.isRejected(e) == false) {
+						log.warn("{} is unavailable, delivery will resume from {} - {}", sink.getOutputName(), entry.getCollectionTime(), e.getMessage());
+						return;
+					}
+					log.error("{} rejected the collection at {}, skipping it - {}", sink.getOutputName(), entry.getCollectionTime(), e.getMessage());
+				}
+				cursor.setLastId(entry.getId());
+				outboxCursorRepository.save(cursor);
+			}
+			entries = outboxRepository.findTop100ByIdGreaterThanOrderByIdAsc(cursor.getLastId());
+		}
+		if (delivered > 1) {
+			log.info("Caught up {} with {} collections", sink.getOutputName(), delivered);
+		}
+	}
+
+	// A new output starts after the entries already held for the others
+	private void startCursor(OutboxSink sink) {
+		if (outboxCursorRepository.existsById(sink.getOutputName()) == false) {
+			long lastId = outboxRepository.findTopByOrderByIdDesc().map(OutboxEntry::getId).orElse(0L);
+			log.info("Starting outbox delivery to {}", sink.getOutputName());
+			outboxCursorRepository.save(new OutboxCursor(sink.getOutputName(), lastId));
+		}
+	}
+
+	@Scheduled(cron="0 15 * * * ?")
+	@Transactional
+	public void removeTaken() {
+		List<OutboxSink> sinks = getSinks();
+		long taken = sinks.stream()
+				.mapToLong(sink -> outboxCursorRepository.findById(sink.getOutputName()).map(OutboxCursor::getLastId).orElse(0L))
+				.min()
+				.orElse(Long.MAX_VALUE);
+		int removed = outboxRepository.deleteTakenOrCreatedBefore(taken, LocalDateTime.now().minusDays(properties.getOutboxRetentionDays()));
+		log.debug("Removed {} outbox entries", removed);
+	}
+
+	@PreDestroy
+	public void stop() {
+		queues.values().forEach(OutputQueue::close);
+	}
+}
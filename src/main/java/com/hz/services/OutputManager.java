@@ -1,23 +1,32 @@
 package com.hz.services;
 
+import com.hz.components.CollectionScheduler;
 import com.hz.configuration.EnphaseCollectorProperties;
 import com.hz.interfaces.MetricCalculator;
 import com.hz.metrics.Metric;
 import com.hz.models.database.EnvoySystem;
+import com.hz.models.dto.EnergyReading;
+import com.hz.models.envoy.json.EimType;
 import com.hz.models.envoy.json.System;
+import com.hz.models.envoy.json.TypeBase;
 import com.hz.models.envoy.xml.EnvoyInfo;
+import com.hz.models.events.EnergyReadingEvent;
 import com.hz.models.events.MetricCollectionEvent;
 import com.hz.models.events.SystemInfoEvent;
 import com.hz.utils.Convertors;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Profile;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
@@ -29,28 +38,48 @@ public class OutputManager {
 	private final EnvoyInfo envoyInfo;
 	private final EnphaseCollectorProperties properties;
 	private final MetricCalculator metricCalculator;
-
-	private int collectionPeriod = 0;
+	private final TaskScheduler taskScheduler;
+	private final CollectionScheduler collectionScheduler;
 
 	private void publish(System system, List<Metric> metrics, LocalDateTime collectionTime) {
 		applicationEventPublisher.publishEvent(new SystemInfoEvent(this, makeSystemInfo(system, collectionTime)));
-		applicationEventPublisher.publishEvent(new MetricCollectionEvent(this, collectionTime, metrics));
+		applicationEventPublisher.publishEvent(new MetricCollectionEvent(this, properties.getSiteName(), true, collectionTime, metrics));
+		applicationEventPublisher.publishEvent(new EnergyReadingEvent(this, makeEnergyReading(system, collectionTime)));
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void start() {
+		taskScheduler.schedule(this::gather, Instant.now());
 	}
 
-	@Scheduled(fixedRateString = "1000")
+	// Each collection schedules the next one for just after the Envoy is expected to have updated
 	public void gather() {
+		Instant started = Instant.now();
 		try {
-			if (collectionPeriod > 0) {
-				collectionPeriod -= 1000;
-			} else {
-				collectionPeriod = properties.getRefreshSeconds() - 1000;
-				enphaseImportService.collectEnphaseData().ifPresent(s -> publish(s, metricCalculator.calculateMetrics(s), enphaseImportService.getCollectionTime(s)));
-			}
+			enphaseImportService.collectEnphaseData().ifPresent(s -> {
+				enphaseImportService.getPolledReadingTime(s).ifPresent(readingTime -> collectionScheduler.recordReading(readingTime, started));
+				publish(s, metricCalculator.calculateMetrics(s), enphaseImportService.getCollectionTime(s));
+			});
 		} catch (Exception e) {
 			log.error("Failed to collect data from Enphase Controller - {}", e.getMessage(), e);
+		} finally {
+			Instant next = enphaseImportService.isAwaitingUpdate() ? collectionScheduler.nextRetry(Instant.now()) : collectionScheduler.nextCollection(started);
+			taskScheduler.schedule(this::gather, next);
 		}
 	}
 
+	// Production prefers the meter and falls back to the inverters, which have no count for today
+	private EnergyReading makeEnergyReading(System system, LocalDateTime collectionTime) {
+		Optional<EimType> production = system.getProduction().getProductionEim().filter(eim -> eim.getWattsLifetime() != null);
+		Optional<EimType> consumption = system.getProduction().getTotalConsumptionEim();
+
+		return new EnergyReading(collectionTime,
+				production.map(TypeBase::getWattsLifetime).orElseGet(() -> system.getProduction().getInverter().map(TypeBase::getWattsLifetime).orElse(null)),
+				production.map(EimType::getWhToday).orElse(null),
+				consumption.map(TypeBase::getWattsLifetime).orElse(null),
+				consumption.map(EimType::getWhToday).orElse(null));
+	}
+
 	private EnvoySystem makeSystemInfo(System system, LocalDateTime collectionTime) {
 		return new EnvoySystem(envoyInfo.getSerialNumber(),
 				envoyInfo.getSoftwareVersion(),
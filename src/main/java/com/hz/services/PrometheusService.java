@@ -1,17 +1,22 @@
 package com.hz.services;
 
+import com.hz.components.CachedPrometheusScrapeEndpoint;
 import com.hz.configuration.EnphaseCollectorProperties;
-import com.hz.metrics.Metric;
+import com.hz.metrics.MetricSnapshot;
 import com.hz.models.events.MetricCollectionEvent;
 import io.micrometer.core.instrument.*;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 @Service
@@ -20,73 +25,124 @@ public class PrometheusService {
 	private static final String WATTS = "watts";
 	private static final String VOLTS = "volts";
 	private static final String AS_AT_COLLECTION_TIME = " as at the collection time";
+	private static final String SITE_TAG = "site";
+	private static final String PANEL_TAG = "panel.id";
+	// A panel that has not reported for this long has been removed or replaced and is dropped from the inventory
+	private static final Duration PANEL_RETIREMENT = Duration.ofDays(2);
 
-	private MetricCollectionEvent metricCollectionEvent = new MetricCollectionEvent(this, LocalDateTime.now(), new ArrayList<>());
+	private record PanelReading(float value, LocalDateTime reported) {}
+
+	private final Map<String, MetricCollectionEvent> siteEvents = new ConcurrentHashMap<>();
+	// Panels are only in an event when they have reported again, so the last reading of each is kept per site
+	private final Map<String, Map<String, PanelReading>> sitePanels = new ConcurrentHashMap<>();
 	private final MeterRegistry registry;
+	private final EnphaseCollectorProperties properties;
+	private final ObjectProvider<CachedPrometheusScrapeEndpoint> scrapeEndpoint;
+	private final MultiGauge panelGauge;
+
+	// Called for every gauge on every scrape so reads the indexed snapshot
+	private double getMetric(String site, MetricSnapshot.Core key) {
+		MetricCollectionEvent event = this.siteEvents.get(site);
+		return event == null ? 0.0 : event.getSnapshot().get(key);
+	}
 
-	private double getMetric(String name) {
-		return this.metricCollectionEvent.getMetrics()
-				.stream()
-				.filter(metric -> metric.getName().equalsIgnoreCase(name))
-				.findFirst()
-				.map(metric -> BigDecimal.valueOf(metric.getValue()))
-				.orElse(BigDecimal.ZERO).doubleValue();
+	private long getCollectionTime(String site) {
+		MetricCollectionEvent event = this.siteEvents.get(site);
+		return event == null ? 0L : event.getCollectionTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
 	}
 
-	public PrometheusService(MeterRegistry registry, EnphaseCollectorProperties properties) {
+	public PrometheusService(MeterRegistry registry, EnphaseCollectorProperties properties, ObjectProvider<CachedPrometheusScrapeEndpoint> scrapeEndpoint) {
 
 		this.registry = registry;
-
-		TimeGauge.builder("solar.collection.time", this, TimeUnit.MILLISECONDS, value -> this.metricCollectionEvent.getCollectionTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli())
-				.tags(Tags.of(Tag.of("TZ", ZoneId.systemDefault().getId())))
-				.description("Collection time")
-				.register(registry);
+		this.properties = properties;
+		this.scrapeEndpoint = scrapeEndpoint;
 
 		Gauge.builder("solar.collection.period", this, value -> properties.getRefreshSeconds())
 				.baseUnit("ms")
 				.description("Time in ms between collection events")
 				.register(registry);
 
-		Gauge.builder("solar.meter.production", this, value -> getMetric(Metric.METRIC_PRODUCTION_CURRENT))
+		panelGauge = MultiGauge.builder("solar.panel.production")
+				.baseUnit(WATTS)
+				.description("Solar Panel Production")
+				.register(registry);
+
+		registerSite(properties.getSiteName());
+	}
+
+	// Every site gets the same set of gauges distinguished by the site tag
+	private void registerSite(String site) {
+		TimeGauge.builder("solar.collection.time", this, TimeUnit.MILLISECONDS, value -> getCollectionTime(site))
+				.tags(Tags.of(Tag.of("TZ", ZoneId.systemDefault().getId()), Tag.of(SITE_TAG, site)))
+				.description("Collection time")
+				.register(registry);
+
+		Gauge.builder("solar.meter.production", this, value -> getMetric(site, MetricSnapshot.Core.PRODUCTION_CURRENT))
+				.tag(SITE_TAG, site)
 				.baseUnit(WATTS)
 				.description("Solar production" + AS_AT_COLLECTION_TIME)
 				.register(registry);
 
-		Gauge.builder("solar.meter.consumption", this, value -> getMetric(Metric.METRIC_CONSUMPTION_CURRENT))
+		Gauge.builder("solar.meter.consumption", this, value -> getMetric(site, MetricSnapshot.Core.CONSUMPTION_CURRENT))
+				.tag(SITE_TAG, site)
 				.baseUnit(WATTS)
 				.description("Household consumption" + AS_AT_COLLECTION_TIME)
 				.register(registry);
 
-		Gauge.builder("solar.meter.voltage", this, value -> getMetric(Metric.METRIC_PRODUCTION_VOLTAGE))
+		Gauge.builder("solar.meter.voltage", this, value -> getMetric(site, MetricSnapshot.Core.PRODUCTION_VOLTAGE))
+				.tag(SITE_TAG, site)
 				.baseUnit(VOLTS)
 				.description("Production Voltage" + AS_AT_COLLECTION_TIME)
 				.register(registry);
 
-		Gauge.builder("solar.meter.import", this, value -> getMetric(Metric.METRIC_GRID_IMPORT))
+		Gauge.builder("solar.meter.import", this, value -> getMetric(site, MetricSnapshot.Core.GRID_IMPORT))
+				.tag(SITE_TAG, site)
 				.baseUnit(WATTS)
 				.description("Energy imported from the grid" + AS_AT_COLLECTION_TIME)
 				.register(registry);
 
-		Gauge.builder("solar.meter.export", this, value -> getMetric(Metric.METRIC_SOLAR_EXCESS))
+		Gauge.builder("solar.meter.export", this, value -> getMetric(site, MetricSnapshot.Core.SOLAR_EXCESS))
+				.tag(SITE_TAG, site)
 				.baseUnit(WATTS)
 				.description("Energy exported to the grid" + AS_AT_COLLECTION_TIME)
 				.register(registry);
 	}
 
+	private double getPanel(String site, String panel) {
+		PanelReading reading = sitePanels.getOrDefault(site, Map.of()).get(panel);
+		return reading == null ? 0.0 : reading.value();
+	}
+
 	@EventListener
 	public void metricListener(MetricCollectionEvent metricCollectionEvent) {
-		log.debug("Caching metric stats at {} with {} items for Prometheus consumption", metricCollectionEvent.getCollectionTime(), metricCollectionEvent.getMetrics().size());
-		this.metricCollectionEvent = metricCollectionEvent;
-
-		if (registry.find("solar.panel.production").gauge() == null) {
-			this.metricCollectionEvent.getMetrics()
-					.stream()
-					.filter(Metric::isSolarPanel)
-					.forEach(panel -> Gauge.builder("solar.panel.production", this, value -> getMetric(panel.getName()))
-							.tag("panel.id", panel.getName())
-							.baseUnit(WATTS)
-							.description("Solar Panel Production")
-							.register(registry));
+		String site = metricCollectionEvent.isPrimary() ? properties.getSiteName() : metricCollectionEvent.getSite();
+		log.debug("Caching metric stats for {} at {} with {} items for Prometheus consumption", site, metricCollectionEvent.getCollectionTime(), metricCollectionEvent.getMetrics().size());
+		if (this.siteEvents.put(site, metricCollectionEvent) == null && site.equals(properties.getSiteName()) == false) {
+			registerSite(site);
+		}
+
+		Map<String, PanelReading> panels = sitePanels.computeIfAbsent(site, key -> new ConcurrentHashMap<>());
+		MetricSnapshot snapshot = metricCollectionEvent.getSnapshot();
+		boolean inventoryChanged = false;
+		for (int index = 0; index < snapshot.getPanelCount(); index++) {
+			PanelReading reading = new PanelReading(snapshot.getPanelValue(index), metricCollectionEvent.getCollectionTime());
+			inventoryChanged |= panels.put(snapshot.getPanelName(index), reading) == null;
+		}
+		LocalDateTime retired = metricCollectionEvent.getCollectionTime().minus(PANEL_RETIREMENT);
+		inventoryChanged |= panels.values().removeIf(reading -> reading.reported().isBefore(retired));
+
+		if (inventoryChanged) {
+			registerPanels();
 		}
+		scrapeEndpoint.ifAvailable(CachedPrometheusScrapeEndpoint::invalidate);
+	}
+
+	// The rows follow the panel inventory, so replaced panels go and new ones appear
+	private synchronized void registerPanels() {
+		List<MultiGauge.Row<?>> rows = new ArrayList<>();
+		sitePanels.forEach((site, panels) -> panels.keySet().forEach(panel ->
+				rows.add(MultiGauge.Row.of(Tags.of(Tag.of(PANEL_TAG, panel), Tag.of(SITE_TAG, site)), this, value -> value.getPanel(site, panel)))));
+		panelGauge.register(rows, true);
+		log.debug("Registered {} panels for Prometheus", rows.size());
 	}
 }
@@ -2,7 +2,10 @@ package com.hz.services;
 
 import com.hz.configuration.EnphaseCollectorProperties;
 import com.hz.configuration.PvOutputClientConfig;
-import com.hz.metrics.Metric;
+import com.hz.interfaces.OutboxSink;
+import com.hz.interfaces.PvOutputStateRepository;
+import com.hz.metrics.MetricSnapshot;
+import com.hz.models.database.PvOutputState;
 import com.hz.models.events.MetricCollectionEvent;
 import com.hz.utils.Convertors;
 import lombok.RequiredArgsConstructor;
@@ -21,45 +24,74 @@ import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
-import java.util.Optional;
 
+/**
+ * Sends a status to PvOutput for every 5 minutes.  The accumulators are kept in the local database so they carry on
+ * after a restart, and the collections missed while PvOutput or the collector were down are replayed from the outbox.
+ * Statuses for those are sent together through addbatchstatus, within PvOutput's request limit, rather than one request each
+ */
 @Service
 @RequiredArgsConstructor
 @Log4j2
 @Profile("pvoutput")
-public class PvOutputService {
-
-	private BigDecimal energyGeneratedAccumulator = BigDecimal.ZERO;
-	private BigDecimal energyConsumedAccumulator = BigDecimal.ZERO;
-	private int powerGenerated = 0;
-	private int powerConsumed = 0;
-	private LocalDateTime nextUpdate = LocalDateTime.now().toLocalDate().atStartOfDay();
+public class PvOutputService implements OutboxSink {
 
 	private final EnphaseCollectorProperties properties;
 	private final RestTemplate pvRestTemplate;
+	private final PvOutputStateRepository pvOutputStateRepository;
+
+	private PvOutputState state;
+	private final Deque<LocalDateTime> requests = new ArrayDeque<>();
 
 	private final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyyMMdd");
 	private final DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("HH:mm");
 	private static final int INTERVAL = 5;
+	// A reading older than this is part of a catch up so its status waits to fill a batch
+	private static final Duration LIVE = Duration.ofMinutes(INTERVAL * 2L);
+	private static final Duration RATE_PERIOD = Duration.ofHours(1);
 
 	private static final int UPDATE_DATE = 0;
 	private static final int UPDATE_TIME = 1;
 	private static final int GENERATED_TOTAL = 2;
 	private static final int CONSUMED_TOTAL = 4;
 
-	// pvoutput has a min of 5 minutes
 	@EventListener(ApplicationReadyEvent.class)
 	public void applicationReady() {
+		state();
+	}
+
+	// The state left by the last run, or a new one from PvOutput's last status when there is none
+	private synchronized PvOutputState state() {
+		if (state == null) {
+			state = pvOutputStateRepository.findById(getStateId()).orElseGet(this::readStatus);
+			log.info("PvOutput next update will be {} with G:{} and C:{}", state.getNextUpdate(), state.getEnergyGenerated(), state.getEnergyConsumed());
+		}
+		return state;
+	}
+
+	private String getStateId() {
+		String systemId = properties.getPvOutputResource().getSystemId();
+		return systemId == null || systemId.isEmpty() ? getOutputName() : systemId;
+	}
+
+	// pvoutput has a min of 5 minutes
+	private PvOutputState readStatus() {
 		// Roll forward nextUpdate to nearest 5 min in future
 		LocalDateTime now = LocalDateTime.now();
+		LocalDateTime nextUpdate = now.toLocalDate().atStartOfDay();
 		while (now.isAfter(nextUpdate)) {
 			nextUpdate = nextUpdate.plusMinutes(INTERVAL);
 		}
+		PvOutputState result = new PvOutputState(getStateId(), nextUpdate);
 		try {
 			String results = this.pvRestTemplate.getForObject(properties.getPvOutputResource().getUrl() + PvOutputClientConfig.GET_STATUS, String.class);
 			if (results != null) {
@@ -70,10 +102,10 @@ public class PvOutputService {
 				log.info("PvOutput was last updated at {} {}", lastUpdateDate, lastUpdateTime);
 				if (lastUpdateDate.isEqual(LocalDate.now())) {
 					// Today so we can set accumulators
-					this.energyGeneratedAccumulator = BigDecimal.valueOf(Integer.parseInt(elements[GENERATED_TOTAL]));
-					this.energyConsumedAccumulator = BigDecimal.valueOf(Integer.parseInt(elements[CONSUMED_TOTAL]));
+					result.setEnergyGenerated(BigDecimal.valueOf(Integer.parseInt(elements[GENERATED_TOTAL])));
+					result.setEnergyConsumed(BigDecimal.valueOf(Integer.parseInt(elements[CONSUMED_TOTAL])));
 
-					log.warn("Setting Accumulators to G:{} and C:{} some updates may be missing.  Next update will be {}", this.energyGeneratedAccumulator, this.energyConsumedAccumulator, nextUpdate);
+					log.warn("Setting Accumulators to G:{} and C:{} some updates may be missing.  Next update will be {}", result.getEnergyGenerated(), result.getEnergyConsumed(), nextUpdate);
 				}
 			} else {
 				log.error("Error reading PvOutput. GET {} was null", properties.getPvOutputResource().getUrl() + PvOutputClientConfig.GET_STATUS);
@@ -83,84 +115,131 @@ public class PvOutputService {
 		} catch (Exception e) {
 			log.error("Error parsing PvOutput Status: {} {}", e.getMessage(), e);
 		}
+		return result;
 	}
 
-	@EventListener
-	public void metricListener(MetricCollectionEvent metricCollectionEvent) {
-		log.debug("Writing metric stats at {} with {} items to pvOutput", metricCollectionEvent.getCollectionTime(), metricCollectionEvent.getMetrics().size());
-		this.sendMetrics(metricCollectionEvent.getMetrics(), metricCollectionEvent.getCollectionTime());
+	@Override
+	public String getOutputName() {
+		return "pvoutput";
 	}
 
-	private void sendMetrics(List<Metric> metrics, LocalDateTime readTime) {
-		BigDecimal production = getMetric(metrics, "solar.production.current").map(metric -> BigDecimal.valueOf(metric.getValue())).orElse(BigDecimal.ZERO);
-		BigDecimal consumption = getMetric(metrics, "solar.consumption.current").map(metric -> BigDecimal.valueOf(metric.getValue())).orElse(BigDecimal.ZERO);
-		BigDecimal voltage = getMetric(metrics, "solar.production.voltage").map(metric -> BigDecimal.valueOf(metric.getValue())).orElse(BigDecimal.ZERO);
+	@Override
+	public void deliver(MetricCollectionEvent metricCollectionEvent) {
+		if (metricCollectionEvent.isPrimary() == false) {
+			return;
+		}
+		LocalDateTime lastReading = state().getLastReading();
+		if (lastReading != null && metricCollectionEvent.getCollectionTime().isAfter(lastReading) == false) {
+			log.debug("PvOutput already has the collection at {}", metricCollectionEvent.getCollectionTime());
+			return;
+		}
+		log.debug("Writing metric stats at {} with {} items to pvOutput", metricCollectionEvent.getCollectionTime(), metricCollectionEvent.getMetrics().size());
+		this.sendMetrics(metricCollectionEvent.getSnapshot(), metricCollectionEvent.getCollectionTime());
+	}
 
-		this.updateAccumulators(Convertors.convertToWattHours(production,properties.getRefreshAsMinutes()), Convertors.convertToWattHours(consumption, properties.getRefreshAsMinutes()));
-		this.updatePower(production.intValue(), consumption.intValue());
+	// Nothing is kept until the statuses have been sent, or are not due, so a reading retried after PvOutput was
+	// unavailable is only counted once
+	private void sendMetrics(MetricSnapshot metrics, LocalDateTime readTime) {
+		BigDecimal production = BigDecimal.valueOf(metrics.get(MetricSnapshot.Core.PRODUCTION_CURRENT));
+		BigDecimal consumption = BigDecimal.valueOf(metrics.get(MetricSnapshot.Core.CONSUMPTION_CURRENT));
+		BigDecimal voltage = BigDecimal.valueOf(metrics.get(MetricSnapshot.Core.PRODUCTION_VOLTAGE));
+
+		PvOutputState current = state();
+		BigDecimal energyGenerated = current.getEnergyGenerated().add(Convertors.convertToWattHours(production, properties.getRefreshAsMinutes()));
+		BigDecimal energyConsumed = current.getEnergyConsumed().add(Convertors.convertToWattHours(consumption, properties.getRefreshAsMinutes()));
+		int peakGenerated = Math.max(current.getPowerGenerated(), production.intValue());
+		int peakConsumed = Math.max(current.getPowerConsumed(), consumption.intValue());
+		LocalDateTime nextUpdate = current.getNextUpdate();
+		List<String> pending = current.getPendingStatuses();
 
 		if (readTime.isAfter(nextUpdate)) {
-			log.info("dt={} v1={} v2={} v3={} v4={} v6={}", nextUpdate, energyGeneratedAccumulator, powerGenerated, energyConsumedAccumulator, powerConsumed, voltage);
-
-			HttpHeaders headers = new HttpHeaders();
-			headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
-
-			MultiValueMap<String, String> map = new LinkedMultiValueMap<>();
-			map.add("d", dateFormatter.format(nextUpdate));
-			map.add("t", timeFormatter.format(nextUpdate));
-			map.add("v1", energyGeneratedAccumulator.toString());
-			map.add("v2", String.valueOf(powerGenerated));
-			map.add("v3", energyConsumedAccumulator.toString());
-			map.add("v4", String.valueOf(powerConsumed));
-			map.add("v6", String.valueOf(voltage));
-
-			HttpEntity<MultiValueMap<String, String>> requestEntity = new HttpEntity<>(map, headers);
-
-			try {
-				final ResponseEntity<String> stringResponseEntity = this.pvRestTemplate.postForEntity(properties.getPvOutputResource().getUrl() + PvOutputClientConfig.ADD_STATUS, requestEntity, String.class);
-				if (stringResponseEntity.getStatusCode().value() != 200) {
-					log.error("Error updating PvOutput: Request {} -> {}", requestEntity.getBody(), stringResponseEntity.hasBody() ? stringResponseEntity.getBody() : "NO BODY");		// NOSONAR
-				}
-			} catch (HttpClientErrorException e) {
-				log.error("Error updating PvOutput: {} {}", e.getMessage(), e.getResponseBodyAsString());
+			log.info("dt={} v1={} v2={} v3={} v4={} v6={}", nextUpdate, energyGenerated, peakGenerated, energyConsumed, peakConsumed, voltage);
+			pending.add(String.join(",", dateFormatter.format(nextUpdate), timeFormatter.format(nextUpdate),
+					energyGenerated.toString(), String.valueOf(peakGenerated), energyConsumed.toString(), String.valueOf(peakConsumed), "", String.valueOf(voltage)));
+
+			if (pending.size() >= properties.getPvOutputResource().getBatchSize() || readTime.isAfter(LocalDateTime.now().minus(LIVE))) {
+				send(pending);
+				pending.clear();
 			}
 
-			int day = nextUpdate.getDayOfMonth();
-			nextUpdate = nextUpdate.plusMinutes(5);
-			if (day != nextUpdate.getDayOfMonth()) {
-				clearAccumulators();
+			// Slots without a reading, while the collector was down, are skipped rather than given this one
+			LocalDateTime following = nextUpdate.plusMinutes(INTERVAL);
+			while (readTime.isAfter(following)) {
+				following = following.plusMinutes(INTERVAL);
 			}
-			clearPower();
+			if (following.toLocalDate().isEqual(nextUpdate.toLocalDate()) == false) {
+				energyGenerated = BigDecimal.ZERO;
+				energyConsumed = BigDecimal.ZERO;
+			}
+			nextUpdate = following;
+			peakGenerated = 0;
+			peakConsumed = 0;
 		}
-	}
 
-	private Optional<Metric> getMetric(List<Metric> metrics, String name) {
-		return metrics.stream().filter(metric -> metric.getName().equalsIgnoreCase(name)).findFirst();
+		current.setEnergyGenerated(energyGenerated);
+		current.setEnergyConsumed(energyConsumed);
+		current.setPowerGenerated(peakGenerated);
+		current.setPowerConsumed(peakConsumed);
+		current.setNextUpdate(nextUpdate);
+		current.setPendingStatuses(pending);
+		current.setLastReading(readTime);
+		pvOutputStateRepository.save(current);
 	}
 
-	private void clearAccumulators() {
-		this.energyConsumedAccumulator = BigDecimal.ZERO;
-		this.energyGeneratedAccumulator = BigDecimal.ZERO;
-		this.powerConsumed = 0;
-		this.powerGenerated = 0;
-	}
+	// A rejected status is logged and skipped.  Failing to reach PvOutput, or reaching its request limit, throws so the
+	// reading is retried
+	private void send(List<String> statuses) {
+		takeRequest();
+
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+
+		MultiValueMap<String, String> map = new LinkedMultiValueMap<>();
+		String endpoint;
+		if (statuses.size() == 1) {
+			String[] status = statuses.get(0).split(",", -1);
+			map.add("d", status[0]);
+			map.add("t", status[1]);
+			map.add("v1", status[2]);
+			map.add("v2", status[3]);
+			map.add("v3", status[4]);
+			map.add("v4", status[5]);
+			map.add("v6", status[7]);
+			endpoint = PvOutputClientConfig.ADD_STATUS;
+		} else {
+			log.info("Sending {} statuses from {} to PvOutput", statuses.size(), statuses.get(0).substring(0, statuses.get(0).indexOf(',', 9)));
+			map.add("data", String.join(";", statuses));
+			endpoint = PvOutputClientConfig.ADD_BATCH_STATUS;
+		}
 
-	private void clearPower() {
-		this.powerGenerated = 0;
-		this.powerConsumed = 0;
-	}
+		HttpEntity<MultiValueMap<String, String>> requestEntity = new HttpEntity<>(map, headers);
 
-	private void updatePower(int powerGenerated, int powerConsumed) {
-		if (powerGenerated > this.powerGenerated) {
-			this.powerGenerated = powerGenerated;
-		}
-		if (powerConsumed > this.powerConsumed) {
-			this.powerConsumed = powerConsumed;
+		try {
+			final ResponseEntity<String> stringResponseEntity = this.pvRestTemplate.postForEntity(properties.getPvOutputResource().getUrl() + endpoint, requestEntity, String.class);
+			if (stringResponseEntity.getStatusCode().value() != 200) {
+				log.error("Error updating PvOutput: Request {} -> {}", requestEntity.getBody(), stringResponseEntity.hasBody() ? stringResponseEntity.getBody() : "NO BODY");		// NOSONAR
+			} else if (statuses.size() > 1 && stringResponseEntity.hasBody()) {
+				long rejected = Arrays.stream(stringResponseEntity.getBody().split(";")).filter(added -> added.endsWith(",0")).count();
+				if (rejected > 0) {
+					log.warn("PvOutput did not add {} of {} statuses - {}", rejected, statuses.size(), stringResponseEntity.getBody());
+				}
+			}
+		} catch (HttpClientErrorException e) {
+			if (e.getStatusCode().value() == 403 && e.getResponseBodyAsString().contains("Exceeded")) {
+				throw new IllegalStateException("PvOutput request limit reached - " + e.getResponseBodyAsString(), e);
+			}
+			log.error("Error updating PvOutput: {} {}", e.getMessage(), e.getResponseBodyAsString());
 		}
 	}
 
-	private void updateAccumulators(BigDecimal energyGenerated, BigDecimal energyConsumed) {
-		this.energyGeneratedAccumulator = this.energyGeneratedAccumulator.add(energyGenerated);
-		this.energyConsumedAccumulator = this.energyConsumedAccumulator.add(energyConsumed);
+	private void takeRequest() {
+		LocalDateTime now = LocalDateTime.now();
+		while (requests.isEmpty() == false && requests.peekFirst().isBefore(now.minus(RATE_PERIOD))) {
+			requests.removeFirst();
+		}
+		if (requests.size() >= properties.getPvOutputResource().getRequestsPerHour()) {
+			throw new IllegalStateException("PvOutput request limit of " + properties.getPvOutputResource().getRequestsPerHour() + " an hour reached, resuming after " + requests.peekFirst().plus(RATE_PERIOD));
+		}
+		requests.addLast(now);
 	}
 }
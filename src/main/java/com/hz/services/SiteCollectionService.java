@@ -0,0 +1,198 @@
+package com.hz.services;
+
+import com.hz.components.CollectionScheduler;
+import com.hz.components.EnvoyCaptureInterceptor;
+import com.hz.configuration.EnphaseCollectorProperties;
+import com.hz.configuration.EnphaseSystemInfoConfig;
+import com.hz.interfaces.MetricCalculator;
+import com.hz.metrics.Metric;
+import com.hz.models.envoy.xml.EnvoyInfo;
+import com.hz.models.events.MetricCollectionEvent;
+import jakarta.annotation.PreDestroy;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.apache.hc.client5.http.io.HttpClientConnectionManager;
+import org.apache.hc.core5.io.CloseMode;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collects the additional envoys configured under envoy.sites.  Each site has its own connection pool, token, EnvoyService
+ * and CollectionScheduler and runs its own collection loop on a shared scheduler with one thread per site, so a slow
+ * gateway only delays itself.  Site metrics are published tagged with the site name and are only picked up by the
+ * outputs that can tell sites apart.  The local database, UI and PvOutput stay with envoy.controller.
+ */
+@Service
+@RequiredArgsConstructor
+@Log4j2
+@Profile("!testing")
+public class SiteCollectionService {
+	public static final String AGGREGATE_SITE = "total";
+	private static final Set<String> SUMMED_METRICS = Set.of(Metric.METRIC_PRODUCTION_CURRENT, Metric.METRIC_CONSUMPTION_CURRENT,
+			Metric.METRIC_PRODUCTION_TOTAL, Metric.METRIC_CONSUMPTION_TOTAL, Metric.METRIC_SOLAR_EXCESS, Metric.METRIC_SOLAR_SAVINGS,
+			Metric.METRIC_GRID_IMPORT, Metric.METRIC_SOLAR_DIFFERENCE);
+	private static final int EXPIRY_PERIODS = 3;
+
+	private final EnphaseCollectorProperties properties;
+	private final EnphaseSystemInfoConfig systemInfoConfig;
+	private final RestTemplateBuilder restTemplateBuilder;
+	private final EnvoyCaptureInterceptor captureInterceptor;
+	private final MetricCalculator metricCalculator;
+	private final ApplicationEventPublisher applicationEventPublisher;
+	private final MeterRegistry meterRegistry;
+	private final EndpointSupportService endpointSupportService;
+	private final Clock clock;
+
+	private final List<SiteCollector> collectors = new ArrayList<>();
+	private final Map<String, SiteMetrics> latestMetrics = new ConcurrentHashMap<>();
+	private ThreadPoolTaskScheduler siteScheduler;
+
+	private record SiteMetrics(Instant received, List<Metric> metrics) { }
+
+	private class SiteCollector {
+		private final EnphaseCollectorProperties.Site site;
+		private final EnphaseCollectorProperties siteProperties;
+		private final CollectionScheduler collectionScheduler;
+		private HttpClientConnectionManager connectionManager;
+		private EnvoyConnectionProxy proxy;
+		private EnvoyService envoyService;
+
+		SiteCollector(EnphaseCollectorProperties.Site site) {
+			this.site = site;
+			this.siteProperties = properties.forSite(site);
+			this.collectionScheduler = new CollectionScheduler(siteProperties);
+		}
+
+		// Reading info.xml and fetching a token can be slow so it is done on the site thread rather than at startup
+		private void connect() throws Exception {
+			connectionManager = systemInfoConfig.createConnectionManager();
+			EnvoyInfo envoyInfo = systemInfoConfig.readEnvoyInfo(siteProperties, restTemplateBuilder, connectionManager, captureInterceptor);
+			proxy = new EnvoyConnectionProxy(systemInfoConfig.makeAuthorisation(siteProperties, envoyInfo),
+					siteProperties, restTemplateBuilder, captureInterceptor, connectionManager, meterRegistry);
+			envoyService = new EnvoyService(proxy, siteProperties, Optional.empty(), envoyInfo, endpointSupportService);
+			log.info("Collecting site {} from envoy {} at {}", site.getName(), envoyInfo.getSerialNumber(), site.getUrl());
+		}
+
+		void gather() {
+			Instant started = Instant.now();
+			try {
+				if (envoyService == null) {
+					connect();
+				}
+				envoyService.collectEnphaseData().ifPresent(s -> {
+					envoyService.getPolledReadingTime(s).ifPresent(readingTime -> collectionScheduler.recordReading(readingTime, started));
+					applicationEventPublisher.publishEvent(new MetricCollectionEvent(SiteCollectionService.this, site.getName(), false,
+							envoyService.getCollectionTime(s), metricCalculator.calculateMetrics(s)));
+				});
+			} catch (Exception e) {
+				log.error("Failed to collect data from site {} - {}", site.getName(), e.getMessage(), e);
+			} finally {
+				boolean awaiting = envoyService != null && envoyService.isAwaitingUpdate();
+				Instant next = awaiting ? collectionScheduler.nextRetry(Instant.now()) : collectionScheduler.nextCollection(started);
+				if (siteScheduler.getScheduledExecutor().isShutdown() == false) {
+					siteScheduler.schedule(this::gather, next);
+				}
+			}
+		}
+
+		void close() {
+			if (envoyService != null) {
+				envoyService.shutdown();
+			}
+			if (proxy != null) {
+				proxy.shutdown();
+			}
+			if (connectionManager != null) {
+				connectionManager.close(CloseMode.GRACEFUL);
+			}
+		}
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public synchronized void start() {
+		if (properties.getSites().isEmpty()) {
+			return;
+		}
+
+		siteScheduler = new ThreadPoolTaskScheduler();
+		siteScheduler.setPoolSize(properties.getSites().size());
+		siteScheduler.setThreadNamePrefix("envoy-site-");
+		siteScheduler.setDaemon(true);
+		siteScheduler.initialize();
+
+		properties.getSites().forEach(site -> {
+			SiteCollector collector = new SiteCollector(site);
+			collectors.add(collector);
+			siteScheduler.schedule(collector::gather, Instant.now());
+		});
+		log.info("Collecting {} additional sites", collectors.size());
+	}
+
+	@PreDestroy
+	public synchronized void stop() {
+		if (siteScheduler != null) {
+			siteScheduler.shutdown();
+		}
+		collectors.forEach(SiteCollector::close);
+	}
+
+	/**
+	 * With envoy.aggregate-sites the latest power and energy metrics of every site are summed, and the voltage averaged,
+	 * and published as the total site each time the primary envoy reports, so the totals keep the primary collection period.
+	 * A site that has not reported for a few collection periods is left out until it reports again
+	 */
+	@EventListener
+	public void metricListener(MetricCollectionEvent metricCollectionEvent) {
+		if (properties.isAggregateSites() == false || properties.getSites().isEmpty() || AGGREGATE_SITE.equals(metricCollectionEvent.getSite())) {
+			return;
+		}
+
+		latestMetrics.put(metricCollectionEvent.isPrimary() ? properties.getSiteName() : metricCollectionEvent.getSite(),
+				new SiteMetrics(clock.instant(), metricCollectionEvent.getMetrics()));
+		if (metricCollectionEvent.isPrimary()) {
+			applicationEventPublisher.publishEvent(new MetricCollectionEvent(this, AGGREGATE_SITE, false, metricCollectionEvent.getCollectionTime(), aggregate()));
+		}
+	}
+
+	private List<Metric> aggregate() {
+		Instant expired = clock.instant().minusMillis((long) properties.getRefreshSeconds() * EXPIRY_PERIODS);
+		latestMetrics.values().removeIf(site -> site.received().isBefore(expired));
+
+		Map<String, Float> totals = new LinkedHashMap<>();
+		float voltage = 0;
+		int voltageCount = 0;
+		for (SiteMetrics site : latestMetrics.values()) {
+			for (Metric metric : site.metrics()) {
+				if (SUMMED_METRICS.contains(metric.getName())) {
+					totals.merge(metric.getName(), metric.getValue(), Float::sum);
+				} else if (Metric.METRIC_PRODUCTION_VOLTAGE.equals(metric.getName())) {
+					voltage += metric.getValue();
+					voltageCount++;
+				}
+			}
+		}
+
+		List<Metric> result = new ArrayList<>();
+		totals.forEach((name, value) -> result.add(new Metric(name, value)));
+		if (voltageCount > 0) {
+			result.add(new Metric(Metric.METRIC_PRODUCTION_VOLTAGE, voltage / voltageCount));
+		}
+		return result;
+	}
+}
@@ -3,11 +3,11 @@ package com.hz.utils;
 import com.hz.interfaces.MetricCalculator;
 import com.hz.metrics.Metric;
 import com.hz.models.envoy.json.EimType;
+import com.hz.models.envoy.json.Inverter;
 import com.hz.models.envoy.json.InvertersType;
 import com.hz.models.envoy.json.System;
 import lombok.extern.log4j.Log4j2;
 
-import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -62,16 +62,16 @@ public class MetricCalculatorStandard implements MetricCalculator {
 		return serial;
 	}
 
-	private void calculateSavings(ArrayList<Metric> metricList, BigDecimal production, BigDecimal consumption) {
-		if (consumption.compareTo(BigDecimal.ZERO) > 0) {
-			if (production.compareTo(consumption) > 0) {
-				metricList.add(new Metric(Metric.METRIC_SOLAR_EXCESS, production, consumption));
-				metricList.add(new Metric(Metric.METRIC_SOLAR_SAVINGS, consumption));
+	private void calculateSavings(ArrayList<Metric> metricList, double production, double consumption) {
+		if (consumption > 0) {
+			if (production > consumption) {
+				metricList.add(new Metric(Metric.METRIC_SOLAR_EXCESS, (float) (production - consumption)));
+				metricList.add(new Metric(Metric.METRIC_SOLAR_SAVINGS, (float) consumption));
 				metricList.add(new Metric(Metric.METRIC_GRID_IMPORT, 0));
 			} else {
 				metricList.add(new Metric(Metric.METRIC_SOLAR_EXCESS, 0));
-				metricList.add(new Metric(Metric.METRIC_SOLAR_SAVINGS, production));
-				metricList.add(new Metric(Metric.METRIC_GRID_IMPORT, consumption, production));
+				metricList.add(new Metric(Metric.METRIC_SOLAR_SAVINGS, (float) production));
+				metricList.add(new Metric(Metric.METRIC_GRID_IMPORT, (float) (consumption - production)));
 			}
 		} else {
 			// No consumption available so zero these metrics as we cannot calculate them
@@ -79,35 +79,39 @@ public class MetricCalculatorStandard implements MetricCalculator {
 			metricList.add(new Metric(Metric.METRIC_SOLAR_EXCESS, 0));
 			metricList.add(new Metric(Metric.METRIC_SOLAR_SAVINGS, 0));
 		}
-		metricList.add(new Metric( Metric.METRIC_SOLAR_DIFFERENCE, production, consumption));
+		metricList.add(new Metric( Metric.METRIC_SOLAR_DIFFERENCE, (float) (production - consumption)));
 	}
 
 	public List<Metric> calculateMetrics(System system) {
 		ArrayList<Metric> metricList = new ArrayList<>();
 
-		BigDecimal production = system.getProduction().getProductionWatts();
-		BigDecimal consumption = system.getProduction().getConsumptionWatts();
+		double production = system.getProduction().getProductionWattsValue();
+		double consumption = system.getProduction().getConsumptionWattsValue();
 
-		metricList.add(new Metric(Metric.METRIC_PRODUCTION_CURRENT, production, 5));
-		metricList.add(new Metric(Metric.METRIC_CONSUMPTION_CURRENT, consumption));
-		metricList.add(new Metric(Metric.METRIC_PRODUCTION_VOLTAGE, system.getProduction().getProductionVoltage().floatValue()));
+		metricList.add(new Metric(Metric.METRIC_PRODUCTION_CURRENT, (float) production, 5));
+		metricList.add(new Metric(Metric.METRIC_CONSUMPTION_CURRENT, (float) consumption));
+		metricList.add(new Metric(Metric.METRIC_PRODUCTION_VOLTAGE, (float) system.getProduction().getProductionVoltageValue()));
 
 		Optional<EimType> productionEim = system.getProduction().getProductionEim();
 		Optional<InvertersType> inverter = system.getProduction().getInverter();
 		if (productionEim.isPresent() && inverter.isPresent()) {
 			log.debug("production: eim time {} eim {} inverter time {} inverter {} calculated {}", Convertors.convertToLocalDateTime(productionEim.get().getReadingTime()), productionEim.get().getWattsNow(), Convertors.convertToLocalDateTime(inverter.get().getReadingTime()), inverter.get().getWattsNow(), production);
-			metricList.add(new Metric(Metric.METRIC_PRODUCTION_TOTAL, inverter.get().getWattsLifetime()));
+			metricList.add(new Metric(Metric.METRIC_PRODUCTION_TOTAL, inverter.get().getWattsLifetime().floatValue()));
 		}
 
 		Optional<EimType> consumptionEim = system.getProduction().getTotalConsumptionEim();
 		if (consumptionEim.isPresent()) {
 			log.debug("consumption: eim time {} eim {} calculated {}", Convertors.convertToLocalDateTime(consumptionEim.get().getReadingTime()), consumptionEim.get().getWattsNow(), consumption);
-			metricList.add(new Metric(Metric.METRIC_CONSUMPTION_TOTAL, consumptionEim.get().getWattsLifetime()));
+			metricList.add(new Metric(Metric.METRIC_CONSUMPTION_TOTAL, consumptionEim.get().getWattsLifetime().floatValue()));
 		}
 
 		calculateSavings(metricList, production, consumption);
 
-		system.getProduction().getMicroInvertersList().forEach(micro -> metricList.add(Metric.createPanelMetric(map(micro.getSerialNumber()), micro.getLastReportWatts(), 5)));
+		for (Inverter micro : system.getProduction().getMicroInvertersList()) {
+			if (micro.isUpdated()) {
+				metricList.add(Metric.createPanelMetric(map(micro.getSerialNumber()), micro.getLastReportWatts(), 5));
+			}
+		}
 
 		return metricList;
 	}
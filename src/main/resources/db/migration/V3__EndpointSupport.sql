@@ -0,0 +1,9 @@
+CREATE CACHED TABLE "PUBLIC"."ENDPOINT_SUPPORT"(
+                                                   "ID" CHARACTER VARYING(255) NOT NULL,
+                                                   "ENVOY_SERIAL" CHARACTER VARYING(255),
+                                                   "ENVOY_VERSION" CHARACTER VARYING(255),
+                                                   "ENDPOINT" CHARACTER VARYING(255),
+                                                   "SUPPORTED" BOOLEAN NOT NULL,
+                                                   "PROBED" TIMESTAMP
+);
+ALTER TABLE "PUBLIC"."ENDPOINT_SUPPORT" ADD CONSTRAINT "PUBLIC"."endpoint_support_pk" PRIMARY KEY("ID");
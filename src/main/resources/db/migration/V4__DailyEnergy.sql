@@ -0,0 +1,9 @@
+CREATE CACHED TABLE "PUBLIC"."DAILY_ENERGY"(
+                                               "DATE" DATE NOT NULL,
+                                               "PRODUCTION_START" DECIMAL(19, 3),
+                                               "PRODUCTION_END" DECIMAL(19, 3),
+                                               "CONSUMPTION_START" DECIMAL(19, 3),
+                                               "CONSUMPTION_END" DECIMAL(19, 3),
+                                               "LAST_READING" TIMESTAMP
+);
+ALTER TABLE "PUBLIC"."DAILY_ENERGY" ADD CONSTRAINT "PUBLIC"."daily_energy_pk" PRIMARY KEY("DATE");
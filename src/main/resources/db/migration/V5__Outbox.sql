@@ -0,0 +1,16 @@
+CREATE CACHED TABLE "PUBLIC"."OUTBOX_ENTRY"(
+                                               "ID" BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+                                               "SITE" CHARACTER VARYING(255),
+                                               "PRIMARY_SITE" BOOLEAN NOT NULL,
+                                               "COLLECTION_TIME" TIMESTAMP,
+                                               "METRICS" CHARACTER VARYING(65535),
+                                               "CREATED" TIMESTAMP
+);
+ALTER TABLE "PUBLIC"."OUTBOX_ENTRY" ADD CONSTRAINT "PUBLIC"."outbox_entry_pk" PRIMARY KEY("ID");
+CREATE INDEX "PUBLIC"."outbox_entry_created_idx" ON "PUBLIC"."OUTBOX_ENTRY"("CREATED");
+
+CREATE CACHED TABLE "PUBLIC"."OUTBOX_CURSOR"(
+                                                "OUTPUT" CHARACTER VARYING(255) NOT NULL,
+                                                "LAST_ID" BIGINT NOT NULL
+);
+ALTER TABLE "PUBLIC"."OUTBOX_CURSOR" ADD CONSTRAINT "PUBLIC"."outbox_cursor_pk" PRIMARY KEY("OUTPUT");
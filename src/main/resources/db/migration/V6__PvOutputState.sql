@@ -0,0 +1,11 @@
+CREATE CACHED TABLE "PUBLIC"."PV_OUTPUT_STATE"(
+                                                  "SYSTEM_ID" CHARACTER VARYING(255) NOT NULL,
+                                                  "NEXT_UPDATE" TIMESTAMP,
+                                                  "LAST_READING" TIMESTAMP,
+                                                  "ENERGY_GENERATED" DECIMAL(19, 4),
+                                                  "ENERGY_CONSUMED" DECIMAL(19, 4),
+                                                  "POWER_GENERATED" INTEGER NOT NULL,
+                                                  "POWER_CONSUMED" INTEGER NOT NULL,
+                                                  "PENDING" CHARACTER VARYING(65535)
+);
+ALTER TABLE "PUBLIC"."PV_OUTPUT_STATE" ADD CONSTRAINT "PUBLIC"."pv_output_state_pk" PRIMARY KEY("SYSTEM_ID");
@@ -0,0 +1,12 @@
+CREATE CACHED TABLE "PUBLIC"."EVENT_ROLLUP"(
+                                               "ID" BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+                                               "RESOLUTION" INTEGER NOT NULL,
+                                               "START" TIMESTAMP NOT NULL,
+                                               "COUNT" INTEGER NOT NULL,
+                                               "PRODUCTION" DECIMAL(19, 2),
+                                               "CONSUMPTION" DECIMAL(19, 2),
+                                               "GRID_IMPORT" DECIMAL(19, 2),
+                                               "EXCESS" DECIMAL(19, 2)
+);
+ALTER TABLE "PUBLIC"."EVENT_ROLLUP" ADD CONSTRAINT "PUBLIC"."event_rollup_pk" PRIMARY KEY("ID");
+CREATE UNIQUE INDEX "PUBLIC"."event_rollup_start_idx" ON "PUBLIC"."EVENT_ROLLUP"("RESOLUTION", "START");
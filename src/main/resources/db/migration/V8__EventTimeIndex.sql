@@ -0,0 +1 @@
+CREATE INDEX "PUBLIC"."event_time_idx" ON "PUBLIC"."EVENT"("TIME");
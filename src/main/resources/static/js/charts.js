@@ -205,6 +205,87 @@ function makeRefreshChart(target, properties, refreshUrl, interval, updateFuncti
     return chart;
 }
 
+function makeLiveChart(target, properties, refreshUrl, updateFunction) {
+    "use strict";
+
+    const chart = makeChart(target, properties);
+
+    // Set initial values, later values arrive from connectLive
+    refreshTarget(target, refreshUrl, "json", updateFunction);
+
+    return chart;
+}
+
+function updatePvcPeriod(target, period) {
+    "use strict";
+
+    const chart = getChart(target);
+    const values = [period.production, -period.consumption, period.gridImport, period.excess];
+
+    // Each collection is added into its rollup period, so the last point moves until the next period starts
+    values.forEach(function (value, index) {
+        if (value === null) {
+            return;
+        }
+        const series = chart.series[index];
+        const last = series.data.length > 0 ? series.data[series.data.length - 1] : null;
+        if (last !== null && last.x === period.time) {
+            last.update(value, false);
+        } else {
+            series.addPoint([period.time, value], false);
+        }
+    });
+    chart.redraw();
+}
+
+function reloadLive(contextPath) {
+    "use strict";
+
+    refreshTarget("production", contextPath + "/production", "json", updateGauge);
+    refreshTarget("consumption", contextPath + "/consumption", "json", updateGauge);
+    refreshTarget("pvc", contextPath + "/pvc", "json", updatePvc);
+}
+
+function connectLive(contextPath) {
+    "use strict";
+
+    const source = new EventSource(contextPath + "/live");
+    let day = new Date().getDate();
+    let interrupted = false;
+
+    source.addEventListener("collection", function (event) {
+        const reading = JSON.parse(event.data);
+
+        updateGauge("production", reading.production);
+        updateGauge("consumption", reading.consumption);
+    });
+
+    source.addEventListener("period", function (event) {
+        const period = JSON.parse(event.data);
+
+        // The chart only shows today so it starts again at midnight
+        const periodDay = new Date(period.time).getDate();
+        if (periodDay !== day) {
+            day = periodDay;
+            refreshTarget("pvc", contextPath + "/pvc", "json", updatePvc);
+        } else {
+            updatePvcPeriod("pvc", period);
+        }
+    });
+
+    // The browser reconnects by itself, anything collected in between is picked up from the full series
+    source.onerror = function () {
+        interrupted = true;
+        console.log("Live updates interrupted");
+    };
+    source.onopen = function () {
+        if (interrupted) {
+            interrupted = false;
+            reloadLive(contextPath);
+        }
+    };
+}
+
 function makeStatusList(target, refreshUrl, interval) {
     "use strict";
 
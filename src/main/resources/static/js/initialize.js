@@ -273,9 +273,18 @@ function initLiveCharts(contextPath, refreshInterval, exportLimit) {
         ]
     };
 
-    makeRefreshChart("production", productionProperties, contextPath + "/production", refreshInterval, updateGauge);
-    makeRefreshChart("consumption", consumptionProperties, contextPath + "/consumption", refreshInterval, updateGauge);
-    const pvcChart = makeRefreshChart("pvc", pvcProperties, contextPath + "/pvc", refreshInterval, updatePvc);
+    let pvcChart;
+    if (typeof EventSource === "undefined") {
+        makeRefreshChart("production", productionProperties, contextPath + "/production", refreshInterval, updateGauge);
+        makeRefreshChart("consumption", consumptionProperties, contextPath + "/consumption", refreshInterval, updateGauge);
+        pvcChart = makeRefreshChart("pvc", pvcProperties, contextPath + "/pvc", refreshInterval, updatePvc);
+    } else {
+        // Loaded once then each collection, and the chart period it was added to, is pushed from /live
+        makeLiveChart("production", productionProperties, contextPath + "/production", updateGauge);
+        makeLiveChart("consumption", consumptionProperties, contextPath + "/consumption", updateGauge);
+        pvcChart = makeLiveChart("pvc", pvcProperties, contextPath + "/pvc", updatePvc);
+        connectLive(contextPath);
+    }
     if (exportLimit > 0) {
         pvcChart.update({
             yAxis: {
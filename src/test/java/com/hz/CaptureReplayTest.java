@@ -0,0 +1,82 @@
+package com.hz;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hz.components.EnvoyCaptureInterceptor;
+import com.hz.configuration.EnphaseCollectorProperties;
+import com.hz.configuration.EnphaseURLS;
+import com.hz.models.dto.EnvoyCapture;
+import com.hz.services.EnvoyReplayServer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.client.BufferingClientHttpRequestFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+class CaptureReplayTest {
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	@TempDir
+	Path folder;
+
+	private void writeCapture(String file, EnvoyCapture capture) throws IOException {
+		try (OutputStream out = new GZIPOutputStream(new FileOutputStream(file, true))) {
+			out.write(mapper.writeValueAsBytes(capture));
+			out.write('\n');
+		}
+	}
+
+	private List<String> readLines(String file) throws IOException {
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(file)), StandardCharsets.UTF_8))) {
+			return reader.lines().toList();
+		}
+	}
+
+	@Test
+	void replayAndCaptureRoundTrip() throws IOException {
+		String replayFile = folder.resolve("replay.gz").toString();
+		String captureFile = folder.resolve("capture.gz").toString();
+
+		writeCapture(replayFile, new EnvoyCapture(1000L, 5L, EnphaseURLS.PRODUCTION, 200, "application/json", "{\"first\":1}"));
+		writeCapture(replayFile, new EnvoyCapture(61000L, 5L, EnphaseURLS.PRODUCTION, 200, "application/json", "{\"second\":2}"));
+		Assertions.assertEquals(2, readLines(replayFile).size());
+
+		EnphaseCollectorProperties properties = new EnphaseCollectorProperties();
+		properties.setReplayFile(replayFile);
+		properties.setReplaySpeed(1000.0);
+		properties.setReplayPort(0);
+		properties.setCaptureFile(captureFile);
+
+		EnvoyReplayServer server = new EnvoyReplayServer(properties);
+		server.start();
+		try {
+			RestTemplate template = new RestTemplate(new BufferingClientHttpRequestFactory(new SimpleClientHttpRequestFactory()));
+			template.getInterceptors().add(new EnvoyCaptureInterceptor(properties));
+
+			String body = template.getForObject("http://localhost:" + server.getPort() + EnphaseURLS.PRODUCTION, String.class);
+			Assertions.assertNotNull(body);
+
+			List<String> captured = readLines(captureFile);
+			Assertions.assertEquals(1, captured.size());
+			EnvoyCapture capture = mapper.readValue(captured.get(0), EnvoyCapture.class);
+			Assertions.assertEquals(EnphaseURLS.PRODUCTION, capture.getPath());
+			Assertions.assertEquals(200, capture.getStatus());
+			Assertions.assertEquals(body, capture.getBody());
+		} finally {
+			server.stop();
+		}
+	}
+}
@@ -0,0 +1,129 @@
+package com.hz;
+
+import com.hz.components.EnvoyCircuitBreaker;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class CircuitBreakerTest {
+
+	private final AtomicInteger calls = new AtomicInteger();
+
+	private static class TestClock extends Clock {
+		private long millis = 0L;
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return Instant.ofEpochMilli(millis);
+		}
+	}
+
+	private MockClientHttpRequest request(String path) {
+		return new MockClientHttpRequest(HttpMethod.GET, URI.create("http://envoy.local" + path));
+	}
+
+	private ClientHttpRequestExecution respond(HttpStatus status) {
+		return (request, body) -> {
+			calls.incrementAndGet();
+			return new MockClientHttpResponse(new byte[0], status);
+		};
+	}
+
+	private ClientHttpRequestExecution refuse() {
+		return (request, body) -> {
+			calls.incrementAndGet();
+			throw new ConnectException("Connection refused");
+		};
+	}
+
+	@Test
+	void unreachableGatewayFailsFast() {
+		EnvoyCircuitBreaker breaker = new EnvoyCircuitBreaker();
+
+		for (int i = 0; i < 3; i++) {
+			Assertions.assertThrows(ConnectException.class, () -> breaker.intercept(request("/production.json"), new byte[0], refuse()));
+		}
+		Assertions.assertTrue(breaker.isGatewayOpen());
+
+		// Every endpoint now fails without a request being made
+		Assertions.assertThrows(EnvoyCircuitBreaker.CircuitOpenException.class, () -> breaker.intercept(request("/home.json"), new byte[0], respond(HttpStatus.OK)));
+		Assertions.assertEquals(3, calls.get());
+		Assertions.assertTrue(breaker.getOpenCircuits().containsKey(EnvoyCircuitBreaker.GATEWAY));
+	}
+
+	@Test
+	void failingEndpointOnlyOpensItself() throws IOException {
+		EnvoyCircuitBreaker breaker = new EnvoyCircuitBreaker();
+
+		for (int i = 0; i < 3; i++) {
+			breaker.intercept(request("/ivp/meters"), new byte[0], respond(HttpStatus.INTERNAL_SERVER_ERROR));
+		}
+		Assertions.assertEquals(EnvoyCircuitBreaker.State.OPEN, breaker.getState("/ivp/meters"));
+		Assertions.assertFalse(breaker.isGatewayOpen());
+
+		Assertions.assertThrows(EnvoyCircuitBreaker.CircuitOpenException.class, () -> breaker.intercept(request("/ivp/meters"), new byte[0], respond(HttpStatus.OK)));
+		Assertions.assertEquals(HttpStatus.OK, breaker.intercept(request("/home.json"), new byte[0], respond(HttpStatus.OK)).getStatusCode());
+		Assertions.assertEquals(4, calls.get());
+	}
+
+	@Test
+	void hungGatewayFailsFast() {
+		EnvoyCircuitBreaker breaker = new EnvoyCircuitBreaker();
+		ClientHttpRequestExecution hang = (request, body) -> {
+			calls.incrementAndGet();
+			throw new SocketTimeoutException("Read timed out");
+		};
+
+		for (int i = 0; i < 3; i++) {
+			Assertions.assertThrows(SocketTimeoutException.class, () -> breaker.intercept(request("/production.json"), new byte[0], hang));
+		}
+		Assertions.assertTrue(breaker.isGatewayOpen());
+		Assertions.assertEquals(EnvoyCircuitBreaker.State.CLOSED, breaker.getState("/production.json"));
+	}
+
+	@Test
+	void probeReleasedAfterUnexpectedFailure() throws IOException {
+		TestClock clock = new TestClock();
+		EnvoyCircuitBreaker breaker = new EnvoyCircuitBreaker(clock);
+
+		for (int i = 0; i < 3; i++) {
+			breaker.intercept(request("/ivp/meters"), new byte[0], respond(HttpStatus.INTERNAL_SERVER_ERROR));
+		}
+		Assertions.assertEquals(EnvoyCircuitBreaker.State.OPEN, breaker.getState("/ivp/meters"));
+
+		// The probe fails with something other than an IOException
+		clock.millis += 600_000L;
+		Assertions.assertThrows(IllegalStateException.class, () -> breaker.intercept(request("/ivp/meters"), new byte[0], (request, body) -> {
+			throw new IllegalStateException("Connection pool shut down");
+		}));
+		Assertions.assertEquals(EnvoyCircuitBreaker.State.OPEN, breaker.getState("/ivp/meters"));
+
+		// So the next request probes again rather than the endpoint staying half open
+		Assertions.assertEquals(HttpStatus.OK, breaker.intercept(request("/ivp/meters"), new byte[0], respond(HttpStatus.OK)).getStatusCode());
+		Assertions.assertEquals(EnvoyCircuitBreaker.State.CLOSED, breaker.getState("/ivp/meters"));
+	}
+}
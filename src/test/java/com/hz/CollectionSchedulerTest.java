@@ -0,0 +1,52 @@
+package com.hz;
+
+import com.hz.components.CollectionScheduler;
+import com.hz.configuration.EnphaseCollectorProperties;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+class CollectionSchedulerTest {
+
+	private CollectionScheduler makeScheduler() {
+		EnphaseCollectorProperties properties = new EnphaseCollectorProperties();
+		properties.setRefreshSeconds(60000);
+		return new CollectionScheduler(properties);
+	}
+
+	@Test
+	void noHistoryUsesRefreshPeriod() {
+		CollectionScheduler scheduler = makeScheduler();
+		Instant start = Instant.ofEpochSecond(1_000_000);
+
+		Assertions.assertEquals(0L, scheduler.getCadenceMillis());
+		Assertions.assertEquals(start.plusSeconds(60), scheduler.nextCollection(start));
+	}
+
+	@Test
+	void cadenceLearntFromReadingTimes() {
+		CollectionScheduler scheduler = makeScheduler();
+
+		// Envoy updates every 15 seconds, observed 2 seconds after each update
+		scheduler.recordReading(1_000_000, Instant.ofEpochSecond(1_000_002));
+		scheduler.recordReading(1_000_060, Instant.ofEpochSecond(1_000_062));
+		scheduler.recordReading(1_000_105, Instant.ofEpochSecond(1_000_107));
+
+		Assertions.assertEquals(15000L, scheduler.getCadenceMillis());
+
+		// Target of 1_000_167 is 1_000_165 on the envoy clock so the next update is at 1_000_165, seen at 1_000_167 plus the margin
+		Instant next = scheduler.nextCollection(Instant.ofEpochSecond(1_000_107));
+		Assertions.assertEquals(Instant.ofEpochSecond(1_000_167).plusMillis(250), next);
+	}
+
+	@Test
+	void retryWidensMargin() {
+		CollectionScheduler scheduler = makeScheduler();
+		Instant now = Instant.ofEpochSecond(1_000_000);
+
+		Assertions.assertEquals(now.plusMillis(1000), scheduler.nextRetry(now));
+		Assertions.assertEquals(now.plusMillis(1000), scheduler.nextRetry(now));
+		Assertions.assertEquals(now.plusMillis(2000), scheduler.nextRetry(now));
+	}
+}
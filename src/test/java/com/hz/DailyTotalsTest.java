@@ -0,0 +1,98 @@
+package com.hz;
+
+import com.hz.configuration.TestEnphaseSystemInfoConfig;
+import com.hz.interfaces.EventRepository;
+import com.hz.metrics.DailyTotals;
+import com.hz.metrics.Metric;
+import com.hz.models.database.Panel;
+import com.hz.models.events.MetricCollectionEvent;
+import com.hz.services.LocalDBService;
+import com.hz.utils.Convertors;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@SpringBootTest
+@ActiveProfiles("testing")
+@Import(TestEnphaseSystemInfoConfig.class)
+class DailyTotalsTest {
+
+	@Autowired
+	private LocalDBService localDBService;
+
+	@Autowired
+	private EventRepository eventRepository;
+
+	@Test
+	void totalsFollowEachEvent() {
+		DailyTotals totals = new DailyTotals(LocalDate.of(2021, 6, 1));
+		totals.add(BigDecimal.valueOf(500.555), BigDecimal.valueOf(200));
+		totals.add(BigDecimal.valueOf(100), BigDecimal.valueOf(300.25));
+
+		Assertions.assertEquals(600, totals.getProduction());
+		Assertions.assertEquals(500, totals.getConsumption());
+		Assertions.assertEquals(300, totals.getExcessProduction());
+		Assertions.assertEquals(200, totals.getExcessConsumption());
+		Assertions.assertEquals(500, totals.getMaxProduction());
+	}
+
+	@Test
+	void tilesMatchTheEventTable() {
+		localDBService.rebuildToday();
+
+		LocalDateTime midnight = LocalDate.now().atStartOfDay();
+		float[][] readings = { {1200.4f, 300.2f}, {150f, 700.75f}, {2500.5f, 2500.5f} };
+		for (int reading = 0; reading < readings.length; reading++) {
+			localDBService.metricListener(new MetricCollectionEvent(this, midnight.plusMinutes(reading + 1L), List.of(
+					new Metric(Metric.METRIC_PRODUCTION_CURRENT, readings[reading][0]),
+					new Metric(Metric.METRIC_CONSUMPTION_CURRENT, readings[reading][1]))));
+		}
+
+		BigDecimal minutes = new BigDecimal("1.0000");
+		Assertions.assertEquals(eventRepository.findMaxProductionAfter(midnight), localDBService.calculateMaxProduction());
+		Assertions.assertEquals(Convertors.convertToKiloWattHours(eventRepository.findTotalProductionAfter(midnight), minutes), localDBService.calculateTotalProduction());
+		Assertions.assertEquals(Convertors.convertToKiloWattHours(eventRepository.findTotalConsumptionAfter(midnight), minutes), localDBService.calculateTotalConsumption());
+		Assertions.assertEquals(Convertors.convertToKiloWattHours(eventRepository.findExcessConsumptionAfter(midnight), minutes), localDBService.calculateGridImport());
+
+		// The same after starting again from the table
+		BigDecimal production = localDBService.calculateTotalProduction();
+		localDBService.rebuildToday();
+		Assertions.assertEquals(production, localDBService.calculateTotalProduction());
+	}
+
+	@Test
+	void panelTilesFollowLatestReadings() {
+		LocalDateTime now = LocalDateTime.now().withNano(0);
+		localDBService.metricListener(new MetricCollectionEvent(this, now.minusSeconds(2), List.of(
+				new Metric(Metric.METRIC_PRODUCTION_CURRENT, 400f),
+				Metric.createPanelMetric("tiles-1", 210f, 5),
+				Metric.createPanelMetric("tiles-2", 190f, 5))));
+		// Only panels that have reported again are in the next event
+		localDBService.metricListener(new MetricCollectionEvent(this, now.minusSeconds(1), List.of(
+				new Metric(Metric.METRIC_PRODUCTION_CURRENT, 420f),
+				Metric.createPanelMetric("tiles-1", 230f, 5))));
+
+		Assertions.assertEquals(Map.of("tiles-1", 230f, "tiles-2", 190f), tilePanels());
+
+		// The same after starting again from the table
+		localDBService.rebuildRollups();
+		Assertions.assertEquals(Map.of("tiles-1", 230f, "tiles-2", 190f), tilePanels());
+	}
+
+	private Map<String, Float> tilePanels() {
+		return localDBService.getPanelSummaries().values().stream()
+				.flatMap(List::stream)
+				.filter(panel -> panel.getIdentifier().startsWith(Metric.METRIC_PANEL_NAME_PREFIX + "tiles-"))
+				.collect(Collectors.toMap(panel -> panel.getIdentifier().substring(Metric.METRIC_PANEL_NAME_PREFIX.length()), Panel::getPanelValue));
+	}
+}
@@ -0,0 +1,64 @@
+package com.hz;
+
+import com.hz.metrics.Downsampler;
+import com.hz.metrics.Metric;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+class DownsamplerTest {
+	private static final LocalDateTime START = LocalDateTime.of(2021, 6, 1, 23, 50);
+
+	private static List<Metric> production(float watts) {
+		return List.of(new Metric(Metric.METRIC_PRODUCTION_CURRENT, watts));
+	}
+
+	@Test
+	void windowsCloseOnTheFirstCollectionAfterThem() {
+		Downsampler downsampler = new Downsampler();
+		// 600W then 1200W each minute from 23:50 to 23:54
+		for (int minute = 0; minute < 5; minute++) {
+			downsampler.add("main", START.plusMinutes(minute), production(minute < 2 ? 600f : 1200f));
+		}
+		Assertions.assertTrue(downsampler.getClosed().isEmpty());
+
+		// Delivered again after a failed write so not counted
+		downsampler.add("main", START.plusMinutes(4), production(1200f));
+		downsampler.add("main", START.plusMinutes(5), production(0f));
+
+		List<Downsampler.Aggregate> closed = downsampler.getClosed();
+		Assertions.assertEquals(1, closed.size());
+		Downsampler.Aggregate aggregate = closed.get(0);
+		Assertions.assertEquals(Downsampler.Window.FIVE_MINUTES, aggregate.window());
+		Assertions.assertEquals(START, aggregate.start());
+		Assertions.assertEquals(960.0, aggregate.mean(), 0.001);
+		Assertions.assertEquals(1200.0, aggregate.max(), 0.001);
+		// Four minutes integrated after the first reading, 600 + 1200 * 3 over 60
+		Assertions.assertEquals(70.0, aggregate.integral(), 0.001);
+
+		downsampler.clearClosed();
+		downsampler.add("main", START.plusMinutes(10), production(0f));
+
+		// Crossing midnight closes the five minutes, the hour and the day
+		Assertions.assertEquals(List.of(Downsampler.Window.FIVE_MINUTES, Downsampler.Window.HOURLY, Downsampler.Window.DAILY),
+				downsampler.getClosed().stream().map(Downsampler.Aggregate::window).toList());
+		Downsampler.Aggregate daily = downsampler.getClosed().get(2);
+		Assertions.assertEquals(START.toLocalDate().atStartOfDay(), daily.start());
+		Assertions.assertEquals(70.0, daily.integral(), 0.001);
+	}
+
+	@Test
+	void panelsIntegrateFromTheirOwnReports() {
+		Downsampler downsampler = new Downsampler();
+		LocalDateTime start = LocalDateTime.of(2021, 6, 1, 12, 0);
+		downsampler.add("main", start, List.of(Metric.createPanelMetric("121", 300f, 0)));
+		downsampler.add("main", start.plusMinutes(1), production(0f));
+		downsampler.add("main", start.plusMinutes(4), List.of(Metric.createPanelMetric("121", 300f, 0)));
+		downsampler.add("main", start.plusMinutes(5), production(0f));
+
+		Downsampler.Aggregate panel = downsampler.getClosed().stream().filter(Downsampler.Aggregate::isSolarPanel).findFirst().orElseThrow();
+		Assertions.assertEquals(20.0, panel.integral(), 0.001);
+	}
+}
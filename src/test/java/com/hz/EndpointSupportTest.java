@@ -0,0 +1,48 @@
+package com.hz;
+
+import com.hz.configuration.EnphaseURLS;
+import com.hz.interfaces.EndpointSupportRepository;
+import com.hz.models.database.EndpointSupport;
+import com.hz.models.envoy.xml.EnvoyInfo;
+import com.hz.services.EndpointSupportService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.Set;
+
+class EndpointSupportTest {
+	private final EndpointSupportRepository repository = Mockito.mock(EndpointSupportRepository.class);
+	private final EndpointSupportService service = new EndpointSupportService(repository);
+	private final EnvoyInfo envoyInfo = new EnvoyInfo("D7.3.75", "121617000001");
+
+	private static RestTemplate respondWith(HttpStatus status) {
+		return new RestTemplate((uri, method) -> {
+			MockClientHttpRequest request = new MockClientHttpRequest(method, uri);
+			request.setResponse(new MockClientHttpResponse(new byte[0], status));
+			return request;
+		});
+	}
+
+	@Test
+	void missingEndpointsUnsupportedTest() {
+		Set<String> unsupported = service.findUnsupported(envoyInfo, respondWith(HttpStatus.NOT_FOUND));
+
+		Assertions.assertEquals(Set.of(EnphaseURLS.DEVICE_METERS, EnphaseURLS.POWER_METERS), unsupported);
+		Mockito.verify(repository, Mockito.times(2)).save(ArgumentMatchers.any(EndpointSupport.class));
+	}
+
+	@Test
+	void refusedTokenSaysNothingTest() {
+		Set<String> unsupported = service.findUnsupported(envoyInfo, respondWith(HttpStatus.UNAUTHORIZED));
+
+		// Assumed supported and probed again next time rather than stored
+		Assertions.assertTrue(unsupported.isEmpty());
+		Mockito.verify(repository, Mockito.never()).save(ArgumentMatchers.any(EndpointSupport.class));
+	}
+}
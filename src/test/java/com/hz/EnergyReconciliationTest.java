@@ -0,0 +1,65 @@
+package com.hz;
+
+import com.hz.configuration.TestEnphaseSystemInfoConfig;
+import com.hz.interfaces.SummaryRepository;
+import com.hz.models.database.Summary;
+import com.hz.models.dto.EnergyReading;
+import com.hz.models.events.EnergyReadingEvent;
+import com.hz.services.EnergyReconciliationService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Optional;
+
+@SpringBootTest
+@ActiveProfiles("testing")
+@Import(TestEnphaseSystemInfoConfig.class)
+class EnergyReconciliationTest {
+
+	@Autowired
+	private EnergyReconciliationService energyReconciliationService;
+
+	@Autowired
+	private SummaryRepository summaryRepository;
+
+	private void read(LocalDate date, int hour, long production, Long productionToday, long consumption, Long consumptionToday) {
+		energyReconciliationService.energyListener(new EnergyReadingEvent(this, new EnergyReading(date.atTime(hour, 0),
+				BigDecimal.valueOf(production), productionToday == null ? null : BigDecimal.valueOf(productionToday),
+				BigDecimal.valueOf(consumption), consumptionToday == null ? null : BigDecimal.valueOf(consumptionToday))));
+	}
+
+	@Test
+	void countersReconcileAndBackfill() {
+		LocalDate firstDay = LocalDate.of(2020, 3, 1);
+
+		read(firstDay, 10, 1000, 400L, 2000, 800L);
+		read(firstDay, 20, 1500, 900L, 2600, 1400L);
+		// Nothing collected for two days
+		read(firstDay.plusDays(3), 9, 5000, 300L, 6000, 200L);
+
+		for (int day = 1; day <= 2; day++) {
+			Optional<Summary> summary = summaryRepository.findById(firstDay.plusDays(day));
+			Assertions.assertTrue(summary.isPresent());
+			Assertions.assertEquals(0, BigDecimal.valueOf(1600).compareTo(summary.get().getProduction()));
+			Assertions.assertEquals(0, BigDecimal.valueOf(1600).compareTo(summary.get().getConsumption()));
+			Assertions.assertEquals(0, EnergyReconciliationService.WATT_HOURS.compareTo(summary.get().getConversionRate()));
+		}
+
+		// Summing watts every minute missed most of the first day, the counters did not
+		Summary summary = new Summary(firstDay, BigDecimal.valueOf(60), BigDecimal.valueOf(120), BigDecimal.valueOf(600), BigDecimal.valueOf(300));
+		summary.setConversionRate(BigDecimal.ONE);
+		summary = energyReconciliationService.reconcile(summary);
+
+		Assertions.assertEquals(0, BigDecimal.valueOf(900).compareTo(summary.getProduction()));
+		Assertions.assertEquals(0, BigDecimal.valueOf(1400).compareTo(summary.getConsumption()));
+		Assertions.assertEquals(0, BigDecimal.ONE.compareTo(summary.getGridImport()));
+		Assertions.assertEquals(0, BigDecimal.valueOf(2).compareTo(summary.getGridExport()));
+		Assertions.assertEquals(0, EnergyReconciliationService.WATT_HOURS.compareTo(summary.getConversionRate()));
+	}
+}
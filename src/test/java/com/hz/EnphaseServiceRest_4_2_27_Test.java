@@ -1,9 +1,12 @@
 package com.hz;
 
 import com.hz.components.EnphaseRequestRetryStrategy;
+import com.hz.configuration.EnphaseURLS;
 import com.hz.configuration.TestEnphaseSystemInfoConfig;
+import com.hz.interfaces.EndpointSupportRepository;
 import com.hz.interfaces.MetricCalculator;
 import com.hz.metrics.Metric;
+import com.hz.models.database.EndpointSupport;
 import com.hz.models.envoy.json.System;
 import com.hz.models.envoy.xml.EnvoyInfo;
 import com.hz.services.EnvoyConnectionProxy;
@@ -105,6 +108,9 @@ class EnphaseServiceRest_4_2_27_Test {
 	@Autowired
 	private EnvoyInfo envoyInfo;
 
+	@Autowired
+	private EndpointSupportRepository endpointSupportRepository;
+
 	@Autowired
 	private RestTemplate enphaseRestTemplate;
 
@@ -131,7 +137,17 @@ class EnphaseServiceRest_4_2_27_Test {
 
 		Assertions.assertEquals(25, metrics.size());
 
+		// Microinverters that have not reported again since the last collection are not passed on as panel readings
+		system.get().getProduction().getMicroInvertersList().forEach(micro -> micro.setUpdated(false));
+		Assertions.assertTrue(metricCalculator.calculateMetrics(system.get()).stream().noneMatch(Metric::isSolarPanel));
+
 		Assertions.assertFalse(envoyInfo.isV7orAbove());
+
+		// This firmware has no meters so they are probed once and then skipped
+		List<EndpointSupport> support = endpointSupportRepository.findAllByEnvoySerialAndEnvoyVersion("121617XXXXXX", "D4.2.27");
+		Assertions.assertEquals(2, support.size());
+		Assertions.assertTrue(support.stream().noneMatch(EndpointSupport::isSupported));
+		Assertions.assertTrue(support.stream().anyMatch(endpoint -> endpoint.getEndpoint().equals(EnphaseURLS.DEVICE_METERS)));
 	}
 
 }
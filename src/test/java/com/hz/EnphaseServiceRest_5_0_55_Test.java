@@ -125,6 +125,10 @@ class EnphaseServiceRest_5_0_55_Test {
 		Assertions.assertEquals(BigDecimal.valueOf(1288.056), system.get().getProduction().getProductionWatts());
 		Assertions.assertEquals(BigDecimal.valueOf(-266.115), system.get().getProduction().getConsumptionWatts());
 		Assertions.assertEquals(BigDecimal.valueOf(-1554.171), system.get().getProduction().getNetConsumptionWatts());
+		Assertions.assertEquals(1288.056, system.get().getProduction().getProductionWattsValue());
+		Assertions.assertEquals(-266.115, system.get().getProduction().getConsumptionWattsValue());
+		Assertions.assertEquals(-1554.171, system.get().getProduction().getNetConsumptionWattsValue());
+		Assertions.assertEquals(system.get().getProduction().getProductionVoltage().doubleValue(), system.get().getProduction().getProductionVoltageValue());
 		Assertions.assertEquals(0, system.get().getProduction().getBatteryList().size());
 		Assertions.assertTrue(this.enphaseService.isOk());
 
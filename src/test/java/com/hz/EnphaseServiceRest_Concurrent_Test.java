@@ -0,0 +1,117 @@
+package com.hz;
+
+import com.hz.components.EnphaseRequestRetryStrategy;
+import com.hz.configuration.TestEnphaseSystemInfoConfig;
+import com.hz.interfaces.MetricCalculator;
+import com.hz.metrics.Metric;
+import com.hz.models.envoy.json.System;
+import com.hz.services.EnvoyConnectionProxy;
+import com.hz.services.EnvoyService;
+import com.hz.utils.MetricCalculatorStandard;
+import org.apache.hc.client5.http.classic.HttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.BufferingClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URISyntaxException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+@SpringBootTest(properties = {"envoy.concurrent-collection=true", "envoy.endpoint-timeout-seconds=10"})
+@AutoConfigureWireMock(port = 0,stubs="classpath:/stubs/ThreePhase")
+@Import(TestEnphaseSystemInfoConfig.class)
+@ActiveProfiles("testing")
+class EnphaseServiceRest_Concurrent_Test {
+
+	@TestConfiguration
+	static class EnphaseServiceTestContextConfiguration {
+
+		@Autowired
+		private Environment environment;
+
+		@Autowired
+		private RestTemplateBuilder restTemplateBuilder;
+
+		@Bean
+		public HttpClient createDefaultHttpClient() {
+			return HttpClients
+					.custom()
+					.useSystemProperties()
+					.setRetryStrategy(new EnphaseRequestRetryStrategy())
+					.build();
+		}
+
+		@Bean
+		public RestTemplate enphaseRestTemplate(HttpClient httpClient) {
+			RestTemplate result = restTemplateBuilder
+					.rootUri("http://localhost:" + this.environment.getProperty("wiremock.server.port"))
+					.setConnectTimeout(Duration.ofSeconds(5))
+					.requestFactory(() -> new BufferingClientHttpRequestFactory(new HttpComponentsClientHttpRequestFactory(httpClient)))
+					.build();
+			result.setMessageConverters(List.of(new MappingJackson2HttpMessageConverter()));
+			return result;
+		}
+
+		@Bean
+		public RestTemplate enphaseSecureRestTemplate(HttpClient httpClient) {
+			RestTemplate result = restTemplateBuilder
+					.rootUri("http://localhost:" + this.environment.getProperty("wiremock.server.port"))
+					.setConnectTimeout(Duration.ofSeconds(5))
+					.requestFactory(() -> new BufferingClientHttpRequestFactory(new HttpComponentsClientHttpRequestFactory(httpClient)))
+					.build();
+			result.setMessageConverters(List.of(new MappingJackson2HttpMessageConverter()));
+			return result;
+		}
+	}
+
+	@MockBean
+	private EnvoyConnectionProxy envoyConnectionProxy;
+
+	@Autowired
+	private EnvoyService enphaseService;
+
+	@Autowired
+	private RestTemplate enphaseRestTemplate;
+
+	@Autowired
+	private RestTemplate enphaseSecureRestTemplate;
+
+	@Test
+	void enphase_concurrent_ServiceTest() throws IOException, URISyntaxException {
+		Mockito.when(this.envoyConnectionProxy.getSecureTemplate()).thenReturn(enphaseSecureRestTemplate);
+		Mockito.when(this.envoyConnectionProxy.getDefaultTemplate()).thenReturn(enphaseRestTemplate);
+
+		Optional<System> system = this.enphaseService.collectEnphaseData();
+		Assertions.assertTrue(system.isPresent());
+		Assertions.assertEquals(BigDecimal.valueOf(3), system.get().getProduction().getPhaseCount());
+		Assertions.assertEquals(BigDecimal.valueOf(242.635), system.get().getProduction().getProductionVoltage());
+		Assertions.assertEquals(0, system.get().getProduction().getBatteryList().size());
+		Assertions.assertEquals(BigDecimal.valueOf(16112904.995), system.get().getProduction().getProductionEim().get().getWattsLifetime());
+		Assertions.assertEquals(BigDecimal.valueOf(8447165, 3), system.get().getProduction().getProductionWatts());
+		Assertions.assertTrue(this.enphaseService.isOk());
+
+		MetricCalculator metricCalculator = new MetricCalculatorStandard();
+		List<Metric> metrics = metricCalculator.calculateMetrics(system.get());
+
+		Assertions.assertEquals(50, metrics.size());
+	}
+
+}
@@ -104,6 +104,8 @@ class EnphaseServiceRest_Envoy_S_Test {
 		Assertions.assertTrue(this.enphaseService.isOk());
 		Assertions.assertEquals(BigDecimal.ZERO, system.get().getProduction().getConsumptionWatts());
 		Assertions.assertEquals(BigDecimal.valueOf(41), system.get().getProduction().getProductionWatts());
+		Assertions.assertEquals(41.0, system.get().getProduction().getProductionWattsValue());
+		Assertions.assertEquals(0.0, system.get().getProduction().getConsumptionWattsValue());
 
 		MetricCalculator metricCalculator = new MetricCalculatorStandard();
 		List<Metric> metrics = metricCalculator.calculateMetrics(system.get());
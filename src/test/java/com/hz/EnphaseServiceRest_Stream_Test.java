@@ -0,0 +1,133 @@
+package com.hz;
+
+import com.hz.components.EnphaseRequestRetryStrategy;
+import com.hz.configuration.TestEnphaseSystemInfoConfig;
+import com.hz.models.dto.MeterStreamReading;
+import com.hz.models.envoy.json.EimType;
+import com.hz.models.envoy.json.System;
+import com.hz.services.EnvoyConnectionProxy;
+import com.hz.services.EnvoyService;
+import com.hz.services.EnvoyStreamService;
+import org.apache.hc.client5.http.classic.HttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.BufferingClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URISyntaxException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@SpringBootTest
+@AutoConfigureWireMock(port = 0,stubs="classpath:/stubs/ThreePhase")
+@Import(TestEnphaseSystemInfoConfig.class)
+@ActiveProfiles("testing")
+class EnphaseServiceRest_Stream_Test {
+
+	@TestConfiguration
+	static class EnphaseServiceTestContextConfiguration {
+
+		@Autowired
+		private Environment environment;
+
+		@Autowired
+		private RestTemplateBuilder restTemplateBuilder;
+
+		@Bean
+		public HttpClient createDefaultHttpClient() {
+			return HttpClients
+					.custom()
+					.useSystemProperties()
+					.setRetryStrategy(new EnphaseRequestRetryStrategy())
+					.build();
+		}
+
+		@Bean
+		public RestTemplate enphaseSecureRestTemplate(HttpClient httpClient) {
+			RestTemplate result = restTemplateBuilder
+					.rootUri("http://localhost:" + this.environment.getProperty("wiremock.server.port"))
+					.setConnectTimeout(Duration.ofSeconds(5))
+					.requestFactory(() -> new BufferingClientHttpRequestFactory(new HttpComponentsClientHttpRequestFactory(httpClient)))
+					.build();
+			result.setMessageConverters(List.of(new MappingJackson2HttpMessageConverter()));
+			return result;
+		}
+	}
+
+	@MockBean
+	private EnvoyConnectionProxy envoyConnectionProxy;
+
+	@MockBean
+	private EnvoyStreamService envoyStreamService;
+
+	@Autowired
+	private EnvoyService enphaseService;
+
+	@Autowired
+	private RestTemplate enphaseSecureRestTemplate;
+
+	@Test
+	void enphase_stream_ServiceTest() throws IOException, URISyntaxException {
+		Mockito.when(this.envoyConnectionProxy.getSecureTemplate()).thenReturn(enphaseSecureRestTemplate);
+
+		// The first collection polls production.json
+		System polled = this.enphaseService.collectEnphaseData().orElseThrow();
+		EimType polledEim = polled.getProduction().getProductionEim().orElseThrow();
+		long polledTime = polledEim.getReadingTime();
+		BigDecimal polledWatts = polledEim.getWattsNow();
+		Assertions.assertEquals(Optional.of(polledTime), this.enphaseService.getPolledReadingTime(polled));
+
+		long frameTime = Instant.now().getEpochSecond() + 60;
+		Mockito.when(this.envoyStreamService.takeReading()).thenReturn(Optional.of(new MeterStreamReading(frameTime, 3,
+				BigDecimal.valueOf(500), BigDecimal.valueOf(240), BigDecimal.valueOf(300), BigDecimal.valueOf(-200))));
+
+		// The next uses the stream for the instantaneous values
+		System streamed = this.enphaseService.collectEnphaseData().orElseThrow();
+		EimType streamedEim = streamed.getProduction().getProductionEim().orElseThrow();
+		Assertions.assertEquals(0, BigDecimal.valueOf(500).compareTo(streamed.getProduction().getProductionWatts()));
+		Assertions.assertEquals(0, BigDecimal.valueOf(-200).compareTo(streamed.getProduction().getNetConsumptionWatts()));
+		Assertions.assertEquals(polledEim.getWattsLifetime(), streamedEim.getWattsLifetime());
+		Assertions.assertEquals(polled.getProduction().getMicroInvertersList().size(), streamed.getProduction().getMicroInvertersList().size());
+
+		// Reading time stays on the Envoy clock and is not reported as an Envoy reading
+		Assertions.assertTrue(streamedEim.getReadingTime() >= polledTime + 59);
+		Assertions.assertTrue(this.enphaseService.getPolledReadingTime(streamed).isEmpty());
+
+		// The polled production already handed to outputs is left alone
+		Assertions.assertNotSame(polled.getProduction(), streamed.getProduction());
+		Assertions.assertEquals(polledTime, polledEim.getReadingTime());
+		Assertions.assertEquals(polledWatts, polledEim.getWattsNow());
+		Assertions.assertFalse(polled.getProduction().getPowerMeterList().isEmpty());
+
+		// production.json is polled again every 10th collection
+		for (int collection = 0; collection < 8; collection++) {
+			Assertions.assertTrue(this.enphaseService.collectEnphaseData().isPresent());
+			Assertions.assertTrue(this.enphaseService.getPolledReadingTime(streamed).isEmpty());
+		}
+
+		// The stub reading time never changes so the poll is abandoned, which does not count as a collection
+		Assertions.assertTrue(this.enphaseService.collectEnphaseData().isEmpty());
+		Assertions.assertTrue(this.enphaseService.isAwaitingUpdate());
+		Assertions.assertTrue(this.enphaseService.collectEnphaseData().isEmpty());
+		Assertions.assertTrue(this.enphaseService.isAwaitingUpdate());
+	}
+
+}
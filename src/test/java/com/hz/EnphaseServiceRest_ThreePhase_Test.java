@@ -32,6 +32,7 @@ import java.io.IOException;
 import java.math.BigDecimal;
 import java.net.URISyntaxException;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -106,6 +107,13 @@ class EnphaseServiceRest_ThreePhase_Test {
 		Assertions.assertEquals(0, system.get().getProduction().getBatteryList().size());
 		Assertions.assertEquals(BigDecimal.valueOf(16112904.995), system.get().getProduction().getProductionEim().get().getWattsLifetime());
 		Assertions.assertEquals(BigDecimal.valueOf(8447165, 3), system.get().getProduction().getProductionWatts());
+		Assertions.assertEquals(242.635, system.get().getProduction().getProductionVoltageValue());
+		Assertions.assertEquals(8447.165, system.get().getProduction().getProductionWattsValue());
+		Assertions.assertEquals(system.get().getProduction().getConsumptionWatts().doubleValue(), system.get().getProduction().getConsumptionWattsValue());
+
+		// Replacing the meters, as the meter stream does, is picked up by the accessors
+		system.get().getProduction().setPowerMeterList(new ArrayList<>());
+		Assertions.assertEquals(system.get().getProduction().getProductionEimWatts(), system.get().getProduction().getProductionWatts());
 		Assertions.assertTrue(this.enphaseService.isOk());
 
 		MetricCalculator metricCalculator = new MetricCalculatorStandard();
@@ -0,0 +1,167 @@
+package com.hz;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hz.configuration.EnphaseCollectorProperties;
+import com.hz.configuration.EnphaseURLS;
+import com.hz.models.envoy.json.System;
+import com.hz.models.envoy.xml.EnvoyInfo;
+import com.hz.services.EndpointSupportService;
+import com.hz.services.EnvoyConnectionProxy;
+import com.hz.services.EnvoyService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.DefaultUriBuilderFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collections from an envoy answering with the R4.10.35 stubs, with individual endpoints failing
+ */
+class EnvoyCollectionTest {
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+	private static final Map<String, String> STUBS = Map.of(
+			EnphaseURLS.SYSTEM, "system.json",
+			EnphaseURLS.PRODUCTION, "production.json",
+			EnphaseURLS.INVENTORY, "inventory.json",
+			EnphaseURLS.INVERTERS, "inverters.json",
+			EnphaseURLS.DEVICE_METERS, "ivp_meters.json",
+			EnphaseURLS.POWER_METERS, "ivp_meters_readings.json",
+			EnphaseURLS.WIFI_INFO, "wireless_display.json");
+
+	private final EnphaseCollectorProperties properties = new EnphaseCollectorProperties();
+	private final EndpointSupportService endpointSupportService = Mockito.mock(EndpointSupportService.class);
+	private final EnvoyInfo envoyInfo = new EnvoyInfo("R4.10.35", "121617000001");
+	private final Map<String, HttpStatus> failures = new ConcurrentHashMap<>();
+	private final List<String> requested = new CopyOnWriteArrayList<>();
+	private final Set<String> hanging = ConcurrentHashMap.newKeySet();
+	private final CountDownLatch interrupted = new CountDownLatch(1);
+
+	private static String body(String stub) {
+		try (InputStream in = EnvoyCollectionTest.class.getResourceAsStream("/stubs/R4.10.35/" + stub)) {
+			JsonNode body = MAPPER.readTree(in).path("response").path("body");
+			return body.isMissingNode() ? "" : body.asText();
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private RestTemplate envoy() {
+		return new RestTemplate((uri, method) -> {
+			String endpoint = uri.getRawPath() + (uri.getRawQuery() == null ? "" : "?" + uri.getRawQuery());
+			requested.add(endpoint);
+			if (hanging.contains(endpoint)) {
+				try {
+					Thread.sleep(60_000L);
+				} catch (InterruptedException e) {
+					interrupted.countDown();
+					Thread.currentThread().interrupt();
+				}
+				throw new IOException("Read of " + endpoint + " interrupted");
+			}
+			MockClientHttpRequest request = new MockClientHttpRequest(method, uri);
+			HttpStatus failure = failures.get(endpoint);
+			// A failure waits for the hanging reads to be under way, so cancelling them has something to interrupt
+			for (int attempt = 0; failure != null && attempt < 100 && requested.containsAll(hanging) == false; attempt++) {
+				sleep(50);
+			}
+			MockClientHttpResponse response = failure != null ? new MockClientHttpResponse(new byte[0], failure)
+					: new MockClientHttpResponse(body(STUBS.get(endpoint)).getBytes(StandardCharsets.UTF_8), HttpStatus.OK);
+			response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+			request.setResponse(response);
+			return request;
+		});
+	}
+
+	private EnvoyService makeService() throws IOException, URISyntaxException {
+		EnvoyConnectionProxy proxy = Mockito.mock(EnvoyConnectionProxy.class);
+		RestTemplate template = envoy();
+		template.setUriTemplateHandler(new DefaultUriBuilderFactory("http://envoy.local"));
+		Mockito.when(proxy.getSecureTemplate()).thenReturn(template);
+		Mockito.when(endpointSupportService.findUnsupported(ArgumentMatchers.any(), ArgumentMatchers.any())).thenReturn(Set.of());
+		return new EnvoyService(proxy, properties, Optional.empty(), envoyInfo, endpointSupportService);
+	}
+
+	@Test
+	void meterServerErrorFailsCollection() throws Exception {
+		EnvoyService envoyService = makeService();
+		failures.put(EnphaseURLS.POWER_METERS, HttpStatus.INTERNAL_SERVER_ERROR);
+
+		// Not taken as the endpoint being unsupported, so the meters are not silently dropped
+		Assertions.assertTrue(envoyService.collectEnphaseData().isEmpty());
+		Assertions.assertFalse(envoyService.isOk());
+		Mockito.verify(endpointSupportService, Mockito.never()).markUnsupported(ArgumentMatchers.any(), ArgumentMatchers.anyString());
+	}
+
+	@Test
+	void meterNotFoundMarksUnsupported() throws Exception {
+		EnvoyService envoyService = makeService();
+		failures.put(EnphaseURLS.POWER_METERS, HttpStatus.NOT_FOUND);
+
+		Optional<System> system = envoyService.collectEnphaseData();
+		Assertions.assertTrue(system.isPresent());
+		Assertions.assertTrue(system.get().getProduction().getPowerMeterList().isEmpty());
+		Assertions.assertFalse(system.get().getProduction().getDeviceMeterList().isEmpty());
+		Mockito.verify(endpointSupportService).markUnsupported(envoyInfo, EnphaseURLS.POWER_METERS);
+	}
+
+	@Test
+	void notReadyReadsOnlyProduction() throws Exception {
+		for (boolean concurrent : new boolean[] {false, true}) {
+			properties.setConcurrentCollection(concurrent);
+			EnvoyService envoyService = makeService();
+			Assertions.assertTrue(envoyService.collectEnphaseData().isPresent());
+
+			// The stubbed production.json never moves on, so each retry is the one read
+			requested.clear();
+			Assertions.assertTrue(envoyService.collectEnphaseData().isEmpty());
+			Assertions.assertTrue(envoyService.isAwaitingUpdate());
+			Assertions.assertEquals(List.of(EnphaseURLS.PRODUCTION), requested);
+		}
+	}
+
+	@Test
+	void failedReadCancelsTheOthers() throws Exception {
+		properties.setConcurrentCollection(true);
+		EnvoyService envoyService = makeService();
+		failures.put(EnphaseURLS.SYSTEM, HttpStatus.INTERNAL_SERVER_ERROR);
+		hanging.add(EnphaseURLS.INVERTERS);
+
+		Assertions.assertTrue(envoyService.collectEnphaseData().isEmpty());
+		Assertions.assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+
+		// The inventory read by the abandoned collection is not kept, so the next collection reads it again
+		failures.clear();
+		hanging.clear();
+		requested.clear();
+		Assertions.assertTrue(envoyService.collectEnphaseData().isPresent());
+		Assertions.assertTrue(requested.contains(EnphaseURLS.INVENTORY));
+		envoyService.shutdown();
+	}
+}
@@ -0,0 +1,72 @@
+package com.hz;
+
+import com.hz.configuration.TestEnphaseSystemInfoConfig;
+import com.hz.metrics.Metric;
+import com.hz.models.database.EventRollup;
+import com.hz.models.events.MetricCollectionEvent;
+import com.hz.services.LocalDBService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@SpringBootTest
+@ActiveProfiles("testing")
+@Import(TestEnphaseSystemInfoConfig.class)
+class EventRollupTest {
+	// Late in the day, clear of the events other tests store
+	private static final LocalDateTime START = LocalDate.now().atStartOfDay().plusHours(21);
+
+	@Autowired
+	private LocalDBService localDBService;
+
+	private List<EventRollup> rollups(Integer minutes) {
+		return localDBService.getRollupsForToday(minutes).stream().filter(rollup -> rollup.getStart().isBefore(START) == false).toList();
+	}
+
+	@Test
+	void periodStart() {
+		LocalDateTime time = LocalDateTime.of(2021, 6, 1, 12, 59, 30);
+		Assertions.assertEquals(LocalDateTime.of(2021, 6, 1, 12, 59), EventRollup.periodStart(time, 1));
+		Assertions.assertEquals(LocalDateTime.of(2021, 6, 1, 12, 55), EventRollup.periodStart(time, 5));
+		Assertions.assertEquals(LocalDateTime.of(2021, 6, 1, 12, 45), EventRollup.periodStart(time, 15));
+	}
+
+	@Test
+	void rollupsAreWrittenAsEventsArrive() {
+		localDBService.rebuildRollups();
+
+		// Production rises by 100 W a minute with consumption steady at 500 W
+		for (int minute = 0; minute < 12; minute++) {
+			localDBService.metricListener(new MetricCollectionEvent(this, START.plusMinutes(minute), List.of(
+					new Metric(Metric.METRIC_PRODUCTION_CURRENT, 100f * minute),
+					new Metric(Metric.METRIC_CONSUMPTION_CURRENT, 500f))));
+		}
+
+		Assertions.assertEquals(12, rollups(1).size());
+		List<EventRollup> fiveMinutes = rollups(5);
+		Assertions.assertEquals(List.of(START, START.plusMinutes(5), START.plusMinutes(10)), fiveMinutes.stream().map(EventRollup::getStart).toList());
+		Assertions.assertEquals(List.of(5, 5, 2), fiveMinutes.stream().map(EventRollup::getCount).toList());
+		Assertions.assertEquals(0, new BigDecimal("200").compareTo(fiveMinutes.get(0).getMeanProduction()));
+		// 500, 400, 300, 200 and 100 W imported in the first five minutes
+		Assertions.assertEquals(0, new BigDecimal("300").compareTo(fiveMinutes.get(0).getMeanGridImport()));
+		Assertions.assertEquals(0, BigDecimal.ZERO.compareTo(fiveMinutes.get(2).getMeanGridImport()));
+
+		// A resolution that is not kept falls back to envoy.pvc-minutes
+		Assertions.assertEquals(3, rollups(7).size());
+		Assertions.assertEquals(1, rollups(15).size());
+
+		// Rebuilt in memory and saved once a period, the closed periods as well as the current one
+		localDBService.rebuildRollups();
+		Assertions.assertEquals(List.of(5, 5, 2), rollups(null).stream().map(EventRollup::getCount).toList());
+		Assertions.assertEquals(12, rollups(1).size());
+		Assertions.assertEquals(0, new BigDecimal("300").compareTo(rollups(5).get(0).getMeanGridImport()));
+	}
+}
@@ -0,0 +1,96 @@
+package com.hz;
+
+import com.hz.configuration.EnphaseCollectorProperties;
+import com.hz.configuration.InfluxDBConfig;
+import com.hz.metrics.Downsampler;
+import com.hz.metrics.Metric;
+import com.hz.models.events.MetricCollectionEvent;
+import com.hz.services.InfluxService;
+import org.influxdb.InfluxDB;
+import org.influxdb.InfluxDBException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+class InfluxServiceTest {
+	private static final LocalDateTime COLLECTION_TIME = LocalDateTime.of(2021, 6, 1, 12, 0);
+	private static final long NANOS = COLLECTION_TIME.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() * 1_000_000L;
+
+	private final MetricCollectionEvent event = new MetricCollectionEvent(this, COLLECTION_TIME, List.of(
+			new Metric(Metric.METRIC_PRODUCTION_CURRENT, 250f),
+			new Metric(Metric.METRIC_CONSUMPTION_CURRENT, 400f),
+			Metric.createPanelMetric("121", 20f, 0),
+			Metric.createPanelMetric("122", 21f, 0)));
+
+	private InfluxService makeService(EnphaseCollectorProperties.InfluxSchema schema, InfluxDB influxDB) {
+		EnphaseCollectorProperties properties = new EnphaseCollectorProperties();
+		properties.setInfluxSchema(schema);
+		return new InfluxService(influxDB, properties);
+	}
+
+	@Test
+	void taggedSchema() {
+		List<String> records = makeService(EnphaseCollectorProperties.InfluxSchema.TAGGED, Mockito.mock(InfluxDB.class)).createRecords(event);
+
+		Assertions.assertEquals(List.of(
+				"panel,id=121,site=main value=20.0 " + NANOS,
+				"panel,id=122,site=main value=21.0 " + NANOS,
+				"solar,site=main consumption.current=400.0,production.current=250.0 " + NANOS), records);
+	}
+
+	@Test
+	void legacyAndBothSchemas() {
+		Assertions.assertEquals(4, makeService(EnphaseCollectorProperties.InfluxSchema.LEGACY, Mockito.mock(InfluxDB.class)).createRecords(event).size());
+		Assertions.assertTrue(makeService(EnphaseCollectorProperties.InfluxSchema.LEGACY, Mockito.mock(InfluxDB.class)).createRecords(event)
+				.contains("solar.panel-121,site=main value=20.0 " + NANOS));
+
+		InfluxDB influxDB = Mockito.mock(InfluxDB.class);
+		makeService(EnphaseCollectorProperties.InfluxSchema.BOTH, influxDB).deliver(event);
+
+		@SuppressWarnings("unchecked")
+		ArgumentCaptor<List<String>> written = ArgumentCaptor.forClass(List.class);
+		Mockito.verify(influxDB, Mockito.times(1)).write(written.capture());
+		Assertions.assertEquals(7, written.getValue().size());
+	}
+
+	@Test
+	void aggregateRecords() {
+		List<Downsampler.Aggregate> aggregates = List.of(
+				new Downsampler.Aggregate(Downsampler.Window.HOURLY, "main", COLLECTION_TIME, Metric.METRIC_PRODUCTION_CURRENT, 200.0, 300.0, 200.0),
+				new Downsampler.Aggregate(Downsampler.Window.HOURLY, "main", COLLECTION_TIME, Metric.METRIC_PANEL_NAME_PREFIX + "121", 20.0, 30.0, 20.0),
+				new Downsampler.Aggregate(Downsampler.Window.DAILY, "main", COLLECTION_TIME, Metric.METRIC_PRODUCTION_CURRENT, 100.0, 300.0, 2400.0));
+
+		List<String> records = makeService(EnphaseCollectorProperties.InfluxSchema.LEGACY, Mockito.mock(InfluxDB.class)).createAggregateRecords(Downsampler.Window.HOURLY, aggregates);
+
+		Assertions.assertEquals(List.of(
+				"panel_1h,id=121,site=main integral=20.0,max=30.0,mean=20.0 " + NANOS,
+				"solar_1h,site=main production.current.integral=200.0,production.current.max=300.0,production.current.mean=200.0 " + NANOS), records);
+	}
+
+	@Test
+	void failedAggregatesAreKept() {
+		InfluxDB influxDB = Mockito.mock(InfluxDB.class);
+		Mockito.doThrow(new InfluxDBException("Aggregates unavailable")).doNothing()
+				.when(influxDB).write(Mockito.anyString(), Mockito.anyString(), Mockito.any(InfluxDB.ConsistencyLevel.class), Mockito.<List<String>>any());
+		EnphaseCollectorProperties properties = new EnphaseCollectorProperties();
+		properties.setInfluxDownsample(true);
+		InfluxService influxService = new InfluxService(influxDB, properties);
+
+		influxService.deliver(event);
+		// Closes the five minute window, whose aggregates fail to write without failing the delivery
+		influxService.deliver(new MetricCollectionEvent(this, COLLECTION_TIME.plusMinutes(5), event.getMetrics()));
+		influxService.deliver(new MetricCollectionEvent(this, COLLECTION_TIME.plusMinutes(6), event.getMetrics()));
+
+		Mockito.verify(influxDB, Mockito.times(3)).write(Mockito.<List<String>>any());
+		@SuppressWarnings("unchecked")
+		ArgumentCaptor<List<String>> written = ArgumentCaptor.forClass(List.class);
+		Mockito.verify(influxDB, Mockito.times(2)).write(Mockito.eq(InfluxDBConfig.SOLAR_DATABASE_NAME), Mockito.eq(Downsampler.Window.FIVE_MINUTES.getRetentionPolicy()),
+				Mockito.eq(InfluxDB.ConsistencyLevel.ONE), written.capture());
+		Assertions.assertEquals(written.getAllValues().get(0), written.getAllValues().get(1));
+	}
+}
@@ -0,0 +1,128 @@
+package com.hz;
+
+import com.hz.configuration.TestEnphaseSystemInfoConfig;
+import com.hz.metrics.Metric;
+import com.hz.models.dto.LiveReading;
+import com.hz.models.events.MetricCollectionEvent;
+import com.hz.services.LiveService;
+import com.hz.services.LocalDBService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("testing")
+@Import(TestEnphaseSystemInfoConfig.class)
+class LiveTest {
+	private static final LocalDateTime COLLECTION_TIME = LocalDateTime.of(2021, 6, 1, 12, 0);
+
+	@LocalServerPort
+	int appPort;
+
+	@Autowired
+	private LiveService liveService;
+
+	@Autowired
+	private LocalDBService localDBService;
+
+	private static MetricCollectionEvent collection() {
+		return new MetricCollectionEvent(LiveTest.class, COLLECTION_TIME, List.of(
+				new Metric(Metric.METRIC_PRODUCTION_CURRENT, 250f),
+				new Metric(Metric.METRIC_CONSUMPTION_CURRENT, 400f),
+				new Metric(Metric.METRIC_PRODUCTION_VOLTAGE, 240.5f)));
+	}
+
+	private BufferedReader subscribe(HttpClient client) throws Exception {
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + appPort + "/solar/live")).header("Accept", "text/event-stream").build();
+		HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+		Assertions.assertEquals(200, response.statusCode());
+		return new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8));
+	}
+
+	private void waitForSubscribers(int count) throws InterruptedException {
+		for (int attempt = 0; attempt < 100 && liveService.getSubscriberCount() < count; attempt++) {
+			Thread.sleep(50);
+		}
+	}
+
+	@Test
+	void readingCarriesTheGauges() {
+		LiveReading reading = liveService.createReading(collection());
+
+		Assertions.assertEquals(COLLECTION_TIME.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(), reading.time());
+		Assertions.assertEquals(250, reading.production());
+		Assertions.assertEquals(400, reading.consumption());
+		Assertions.assertEquals(240.5f, reading.voltage());
+	}
+
+	@Test
+	void chartFollowsTheRollupPeriod() throws Exception {
+		// Late in the day, clear of the events other tests store
+		LocalDateTime start = LocalDate.now().atStartOfDay().plusHours(22).plusMinutes(30);
+		long periodTime = start.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+		BufferedReader page = subscribe(HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build());
+		waitForSubscribers(1);
+
+		Assertions.assertEquals(":connected", page.readLine());
+		Assertions.assertEquals("", page.readLine());
+
+		// Both collections are in the one period, so the second moves its point to the mean of the two.  Each frame is read
+		// before the next collection as the live queue keeps only the latest of a period that is waiting
+		for (int minute = 0; minute < 2; minute++) {
+			localDBService.metricListener(new MetricCollectionEvent(this, start.plusMinutes(minute), List.of(
+					new Metric(Metric.METRIC_PRODUCTION_CURRENT, 1000f * (minute + 1)),
+					new Metric(Metric.METRIC_CONSUMPTION_CURRENT, 400f))));
+
+			Assertions.assertEquals("event:" + LiveService.PERIOD_EVENT_NAME, page.readLine());
+			Assertions.assertEquals("data:{\"time\":" + periodTime + ",\"production\":" + (minute == 0 ? 1000 : 1500) + ",\"consumption\":400,\"gridImport\":0,\"excess\":null}", page.readLine());
+			Assertions.assertEquals("", page.readLine());
+		}
+		page.close();
+	}
+
+	@Test
+	void collectionsArePushedToEverySubscriber() throws Exception {
+		HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+		List<BufferedReader> pages = new ArrayList<>();
+		for (int page = 0; page < 2; page++) {
+			pages.add(subscribe(client));
+		}
+		waitForSubscribers(2);
+
+		liveService.metricListener(collection());
+		liveService.metricListener(collection());
+
+		for (BufferedReader page : pages) {
+			Assertions.assertEquals(":connected", page.readLine());
+			Assertions.assertEquals("", page.readLine());
+			// Every page gets each collection as a frame of its own, without extra blank lines
+			for (int frame = 0; frame < 2; frame++) {
+				Assertions.assertEquals("event:" + LiveService.EVENT_NAME, page.readLine());
+				String data = page.readLine();
+				Assertions.assertTrue(data.startsWith("data:{\"time\":"), data);
+				Assertions.assertTrue(data.contains("\"production\":250,\"consumption\":400,\"voltage\":240.5"), data);
+				Assertions.assertEquals("", page.readLine());
+			}
+			page.close();
+		}
+	}
+}
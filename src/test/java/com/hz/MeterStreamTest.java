@@ -0,0 +1,78 @@
+package com.hz;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hz.models.dto.MeterStreamReading;
+import com.hz.models.envoy.json.MeterStreamFrame;
+import com.hz.services.EnvoyConnectionProxy;
+import com.hz.services.EnvoyStreamService;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MeterStreamTest {
+
+	private static final String FRAME = "{\"production\":{\"ph-a\":{\"p\":1200.5,\"q\":10.1,\"s\":1210.2,\"v\":242.6,\"i\":5.01,\"pf\":0.99,\"f\":50.0},\"ph-b\":{\"p\":0.0,\"q\":0.0,\"s\":0.0,\"v\":0.0,\"i\":0.0,\"pf\":0.0,\"f\":50.0}}," +
+			"\"net-consumption\":{\"ph-a\":{\"p\":-700.25,\"q\":1.0,\"s\":720.0,\"v\":242.6,\"i\":3.0,\"pf\":-0.97,\"f\":50.0},\"ph-b\":{\"p\":0.0,\"q\":0.0,\"s\":0.0,\"v\":0.0,\"i\":0.0,\"pf\":0.0,\"f\":50.0}}," +
+			"\"total-consumption\":{\"ph-a\":{\"p\":500.25,\"q\":11.1,\"s\":510.0,\"v\":242.6,\"i\":2.0,\"pf\":0.98,\"f\":50.0},\"ph-b\":{\"p\":0.0,\"q\":0.0,\"s\":0.0,\"v\":0.0,\"i\":0.0,\"pf\":0.0,\"f\":50.0}}}";
+
+	@Test
+	void parseFrameTest() throws IOException {
+		MeterStreamFrame frame = new ObjectMapper().readValue(FRAME, MeterStreamFrame.class);
+
+		assertThat(frame.getProductionWatts()).isEqualByComparingTo(BigDecimal.valueOf(1200.5));
+		assertThat(frame.getProductionVoltage()).isEqualByComparingTo(BigDecimal.valueOf(242.6));
+		assertThat(frame.getNetConsumptionWatts()).isEqualByComparingTo(BigDecimal.valueOf(-700.25));
+		assertThat(frame.getTotalConsumptionWatts()).isEqualByComparingTo(BigDecimal.valueOf(500.25));
+	}
+
+	@Test
+	void emptyFrameTest() throws IOException {
+		MeterStreamFrame frame = new ObjectMapper().readValue("{}", MeterStreamFrame.class);
+
+		assertThat(frame.getProductionWatts()).isEqualByComparingTo(BigDecimal.ZERO);
+		assertThat(frame.getTotalConsumptionWatts()).isEqualByComparingTo(BigDecimal.ZERO);
+	}
+
+	@Test
+	void takeReadingTest() throws IOException, URISyntaxException, InterruptedException {
+		String frames = "data: " + FRAME + "\n\n" + "data: " + FRAME.replace("1200.5", "1000.5") + "\n\n";
+		RestTemplate streamTemplate = new RestTemplate((uri, method) -> {
+			MockClientHttpRequest request = new MockClientHttpRequest(method, uri);
+			request.setResponse(new MockClientHttpResponse(frames.getBytes(StandardCharsets.UTF_8), HttpStatus.OK));
+			return request;
+		});
+		EnvoyConnectionProxy proxy = Mockito.mock(EnvoyConnectionProxy.class);
+		Mockito.when(proxy.getStreamTemplate()).thenReturn(streamTemplate);
+
+		EnvoyStreamService streamService = new EnvoyStreamService(proxy);
+		streamService.start();
+		try {
+			Optional<MeterStreamReading> reading = Optional.empty();
+			for (int attempt = 0; attempt < 50 && reading.isEmpty(); attempt++) {
+				Thread.sleep(100);
+				reading = streamService.takeReading();
+			}
+
+			assertThat(reading).isPresent();
+			assertThat(reading.get().getFrameCount()).isEqualTo(2);
+			assertThat(reading.get().getProductionWatts()).isEqualByComparingTo(BigDecimal.valueOf(1100.5));
+			assertThat(reading.get().getNetConsumptionWatts()).isEqualByComparingTo(BigDecimal.valueOf(-700.25));
+			assertThat(reading.get().getReadingTime()).isPositive();
+			// The window is cleared once taken
+			assertThat(streamService.takeReading()).isEmpty();
+		} finally {
+			streamService.stop();
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package com.hz;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hz.metrics.Metric;
+import com.hz.models.envoy.json.DeviceMeter;
+import com.hz.models.envoy.json.Inverter;
+import com.hz.models.envoy.json.PowerMeter;
+import com.hz.models.envoy.json.Production;
+import com.hz.models.envoy.json.System;
+import com.hz.utils.MetricCalculatorNegativeConsumption;
+import com.hz.utils.MetricCalculatorStandard;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The primitive calculators give the same metrics as the BigDecimal accessors did, for every firmware stub
+ */
+class MetricCalculatorEquivalenceTest {
+	private static final ObjectMapper MAPPER = Jackson2ObjectMapperBuilder.json().build();
+
+	private static String body(String firmware, String stub) throws IOException {
+		try (InputStream in = MetricCalculatorEquivalenceTest.class.getResourceAsStream("/stubs/" + firmware + "/" + stub)) {
+			if (in == null) {
+				return null;
+			}
+			JsonNode body = MAPPER.readTree(in).path("response").path("body");
+			return body.isMissingNode() ? null : body.asText();
+		}
+	}
+
+	private static <T> List<T> readList(String json, Class<T> type) throws IOException {
+		if (json == null) {
+			return new ArrayList<>();
+		}
+		return MAPPER.readValue(json, MAPPER.getTypeFactory().constructCollectionType(List.class, type));
+	}
+
+	private static System system(String firmware) throws IOException {
+		Production production = MAPPER.readValue(body(firmware, "production.json"), Production.class);
+		production.setDeviceMeterList(readList(body(firmware, "ivp_meters.json"), DeviceMeter.class));
+		production.setPowerMeterList(readList(body(firmware, "ivp_meters_readings.json"), PowerMeter.class));
+		production.setInverterList(readList(body(firmware, "inverters.json"), Inverter.class));
+
+		System system = new System();
+		system.setProduction(production);
+		return system;
+	}
+
+	private static Map<String, Float> toMap(List<Metric> metrics) {
+		Map<String, Float> result = new LinkedHashMap<>();
+		metrics.forEach(metric -> result.put(metric.getName(), metric.getValue()));
+		return result;
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"D4.2.27", "D4.5.79", "D5.0.55", "R4.10.35", "ThreePhase", "envoy-s"})
+	void primitiveAccessorsMatchBigDecimal(String firmware) throws IOException {
+		Production production = system(firmware).getProduction();
+
+		Assertions.assertEquals(production.getProductionWatts().doubleValue(), production.getProductionWattsValue());
+		Assertions.assertEquals(production.getConsumptionWatts().doubleValue(), production.getConsumptionWattsValue());
+		Assertions.assertEquals(production.getNetConsumptionWatts().doubleValue(), production.getNetConsumptionWattsValue());
+		// Rounded to 3 places in double rather than BigDecimal, so at most a unit of the last place apart
+		Assertions.assertEquals(production.getProductionVoltage().doubleValue(), production.getProductionVoltageValue(), 0.001);
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"D4.2.27", "D4.5.79", "D5.0.55", "R4.10.35", "ThreePhase", "envoy-s"})
+	void standardCalculatorMatchesBigDecimal(String firmware) throws IOException {
+		System system = system(firmware);
+		Production production = system.getProduction();
+		BigDecimal produced = production.getProductionWatts();
+		BigDecimal consumed = production.getConsumptionWatts();
+
+		Map<String, Float> metrics = toMap(new MetricCalculatorStandard().calculateMetrics(system));
+
+		Assertions.assertEquals(new Metric(Metric.METRIC_PRODUCTION_CURRENT, produced, 5).getValue(), metrics.get(Metric.METRIC_PRODUCTION_CURRENT));
+		Assertions.assertEquals(consumed.floatValue(), metrics.get(Metric.METRIC_CONSUMPTION_CURRENT));
+		Assertions.assertEquals(production.getProductionVoltage().floatValue(), metrics.get(Metric.METRIC_PRODUCTION_VOLTAGE), 0.001f);
+		Assertions.assertEquals(new Metric(Metric.METRIC_SOLAR_DIFFERENCE, produced, consumed).getValue(), metrics.get(Metric.METRIC_SOLAR_DIFFERENCE));
+		if (consumed.signum() > 0 && produced.compareTo(consumed) > 0) {
+			Assertions.assertEquals(new Metric(Metric.METRIC_SOLAR_EXCESS, produced, consumed).getValue(), metrics.get(Metric.METRIC_SOLAR_EXCESS));
+			Assertions.assertEquals(consumed.floatValue(), metrics.get(Metric.METRIC_SOLAR_SAVINGS));
+		} else if (consumed.signum() > 0) {
+			Assertions.assertEquals(produced.floatValue(), metrics.get(Metric.METRIC_SOLAR_SAVINGS));
+			Assertions.assertEquals(new Metric(Metric.METRIC_GRID_IMPORT, consumed, produced).getValue(), metrics.get(Metric.METRIC_GRID_IMPORT));
+		}
+		production.getTotalConsumptionEim().ifPresent(eim -> Assertions.assertEquals(eim.getWattsLifetime().floatValue(), metrics.get(Metric.METRIC_CONSUMPTION_TOTAL)));
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"D4.2.27", "D4.5.79", "D5.0.55", "R4.10.35", "ThreePhase", "envoy-s"})
+	void negativeConsumptionCalculatorMatchesBigDecimal(String firmware) throws IOException {
+		System system = system(firmware);
+		Production production = system.getProduction();
+		BigDecimal produced = production.getProductionWatts();
+		BigDecimal consumed = production.getNetConsumptionWatts();
+
+		Map<String, Float> metrics = toMap(new MetricCalculatorNegativeConsumption().calculateMetrics(system));
+
+		Assertions.assertEquals(new Metric(Metric.METRIC_PRODUCTION_CURRENT, produced, 5).getValue(), metrics.get(Metric.METRIC_PRODUCTION_CURRENT));
+		Assertions.assertEquals(production.getProductionVoltage().floatValue(), metrics.get(Metric.METRIC_PRODUCTION_VOLTAGE), 0.001f);
+		Assertions.assertEquals(consumed.floatValue(), metrics.get(Metric.METRIC_SOLAR_DIFFERENCE));
+		if (consumed.signum() < 0) {
+			Assertions.assertEquals(new Metric(Metric.METRIC_SOLAR_EXCESS, consumed.negate(), 0).getValue(), metrics.get(Metric.METRIC_SOLAR_EXCESS));
+			Assertions.assertEquals(new Metric(Metric.METRIC_SOLAR_SAVINGS, produced, consumed.negate()).getValue(), metrics.get(Metric.METRIC_SOLAR_SAVINGS));
+			Assertions.assertEquals(new Metric(Metric.METRIC_CONSUMPTION_CURRENT, produced, consumed.negate()).getValue(), metrics.get(Metric.METRIC_CONSUMPTION_CURRENT));
+		} else {
+			Assertions.assertEquals(consumed.floatValue(), metrics.get(Metric.METRIC_GRID_IMPORT));
+			Assertions.assertEquals(produced.add(consumed).floatValue(), metrics.get(Metric.METRIC_CONSUMPTION_CURRENT));
+		}
+	}
+}
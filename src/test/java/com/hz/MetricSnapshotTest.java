@@ -0,0 +1,32 @@
+package com.hz;
+
+import com.hz.metrics.Metric;
+import com.hz.metrics.MetricSnapshot;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+class MetricSnapshotTest {
+
+	@Test
+	void snapshotIndexesMetrics() {
+		MetricSnapshot snapshot = new MetricSnapshot(List.of(
+				new Metric(Metric.METRIC_PRODUCTION_CURRENT, 1500f),
+				new Metric(Metric.METRIC_CONSUMPTION_CURRENT, 600f),
+				new Metric(Metric.METRIC_PRODUCTION_CURRENT, 99f),
+				Metric.createPanelMetric("1", 200f, 5),
+				Metric.createPanelMetric("2", 3f, 5)));
+
+		Assertions.assertEquals(1500f, snapshot.get(MetricSnapshot.Core.PRODUCTION_CURRENT));
+		Assertions.assertEquals(600f, snapshot.get(MetricSnapshot.Core.CONSUMPTION_CURRENT));
+		Assertions.assertFalse(snapshot.has(MetricSnapshot.Core.GRID_IMPORT));
+		Assertions.assertEquals(0f, snapshot.get(MetricSnapshot.Core.GRID_IMPORT));
+
+		Assertions.assertEquals(2, snapshot.getPanelCount());
+		int panel = snapshot.indexOfPanel(Metric.METRIC_PANEL_NAME_PREFIX + "1");
+		Assertions.assertEquals(200f, snapshot.getPanelValue(panel));
+		Assertions.assertEquals(0f, snapshot.getPanelValue(snapshot.indexOfPanel(Metric.METRIC_PANEL_NAME_PREFIX + "2")));
+		Assertions.assertEquals(-1, snapshot.indexOfPanel(Metric.METRIC_PANEL_NAME_PREFIX + "3"));
+	}
+}
@@ -0,0 +1,71 @@
+package com.hz;
+
+import com.hz.configuration.EnphaseCollectorProperties;
+import com.hz.metrics.Metric;
+import com.hz.models.events.MetricCollectionEvent;
+import com.hz.services.MqttService;
+import org.eclipse.paho.client.mqttv3.IMqttClient;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+class MqttTopicsTest {
+	private static final LocalDateTime COLLECTION_TIME = LocalDateTime.of(2021, 6, 1, 12, 0);
+
+	private final IMqttClient mqttClient = Mockito.mock(IMqttClient.class);
+	private final Map<String, String> messages = new TreeMap<>();
+
+	private MqttService makeService(EnphaseCollectorProperties.MqttFormat format) throws MqttException {
+		EnphaseCollectorProperties properties = new EnphaseCollectorProperties();
+		properties.setMqqtResource(new EnphaseCollectorProperties.MqqtResource());
+		properties.getMqqtResource().setTopic("solar");
+		properties.getMqqtResource().setMode(EnphaseCollectorProperties.MqttMode.TOPICS);
+		properties.getMqqtResource().setFormat(format);
+		properties.getMqqtResource().setDeadband(5);
+
+		Mockito.when(mqttClient.isConnected()).thenReturn(true);
+		Mockito.doAnswer(invocation -> messages.put(invocation.getArgument(0), new String(invocation.getArgument(1, MqttMessage.class).getPayload(), StandardCharsets.UTF_8)))
+				.when(mqttClient).publish(Mockito.anyString(), Mockito.any(MqttMessage.class));
+		return new MqttService(mqttClient, properties);
+	}
+
+	private static MetricCollectionEvent collection(int minute, float production, float panel) {
+		return new MetricCollectionEvent(MqttTopicsTest.class, COLLECTION_TIME.plusMinutes(minute), List.of(
+				new Metric(Metric.METRIC_PRODUCTION_CURRENT, production),
+				Metric.createPanelMetric("121", panel, 0)));
+	}
+
+	@Test
+	void onlyChangesBeyondTheDeadbandArePublished() throws MqttException {
+		MqttService mqttService = makeService(EnphaseCollectorProperties.MqttFormat.TEXT);
+
+		mqttService.deliver(collection(0, 250f, 20f));
+		Assertions.assertEquals(Map.of("solar/meter/production", "250.0", "solar/panel/121", "20.0"), messages);
+
+		messages.clear();
+		mqttService.deliver(collection(1, 254f, 30f));
+		Assertions.assertEquals(Map.of("solar/panel/121", "30.0"), messages);
+
+		messages.clear();
+		mqttService.deliver(collection(2, 256f, 31f));
+		Assertions.assertEquals(Map.of("solar/meter/production", "256.0"), messages);
+	}
+
+	@Test
+	void jsonPayloadHasTheCollectionTime() throws MqttException {
+		MqttService mqttService = makeService(EnphaseCollectorProperties.MqttFormat.JSON);
+		mqttService.deliver(collection(0, 250f, 20f));
+
+		long time = COLLECTION_TIME.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+		Assertions.assertEquals("{\"value\":250.0,\"time\":" + time + "}", messages.get("solar/meter/production"));
+	}
+}
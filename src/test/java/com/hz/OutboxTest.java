@@ -0,0 +1,129 @@
+package com.hz;
+
+import com.hz.configuration.TestEnphaseSystemInfoConfig;
+import com.hz.interfaces.OutboxRepository;
+import com.hz.interfaces.OutboxSink;
+import com.hz.metrics.Metric;
+import com.hz.metrics.MetricSnapshot;
+import com.hz.models.events.MetricCollectionEvent;
+import com.hz.services.OutboxService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+@SpringBootTest
+@ActiveProfiles("testing")
+@Import(TestEnphaseSystemInfoConfig.class)
+class OutboxTest {
+
+	static class TestSink implements OutboxSink {
+		private final List<LocalDateTime> delivered = new CopyOnWriteArrayList<>();
+		private final Set<LocalDateTime> refused = ConcurrentHashMap.newKeySet();
+		private volatile boolean available = false;
+
+		@Override
+		public String getOutputName() {
+			return "test";
+		}
+
+		@Override
+		public void deliver(MetricCollectionEvent metricCollectionEvent) {
+			if (available == false) {
+				throw new IllegalStateException("Test sink unavailable");
+			}
+			if (refused.contains(metricCollectionEvent.getCollectionTime())) {
+				throw new IllegalArgumentException("Test sink refused " + metricCollectionEvent.getCollectionTime());
+			}
+			Assertions.assertEquals(250f, metricCollectionEvent.getSnapshot().get(MetricSnapshot.Core.PRODUCTION_CURRENT));
+			Assertions.assertEquals(1, metricCollectionEvent.getSnapshot().getPanelCount());
+			delivered.add(metricCollectionEvent.getCollectionTime());
+		}
+
+		@Override
+		public boolean isRejected(RuntimeException e) {
+			return e instanceof IllegalArgumentException;
+		}
+	}
+
+	@TestConfiguration
+	static class SinkConfig {
+		@Bean
+		TestSink testSink() {
+			return new TestSink();
+		}
+	}
+
+	@Autowired
+	private OutboxService outboxService;
+
+	@Autowired
+	private OutboxRepository outboxRepository;
+
+	@Autowired
+	private TestSink testSink;
+
+	@BeforeEach
+	void resetSink() {
+		testSink.delivered.clear();
+		testSink.refused.clear();
+		testSink.available = false;
+	}
+
+	private void collect(LocalDateTime time) {
+		outboxService.metricListener(new MetricCollectionEvent(this, time,
+				List.of(new Metric(Metric.METRIC_PRODUCTION_CURRENT, 250f), Metric.createPanelMetric("1234", 25f, 0))));
+	}
+
+	private void waitFor(int count) throws InterruptedException {
+		for (int attempt = 0; attempt < 100 && testSink.delivered.size() < count; attempt++) {
+			Thread.sleep(50);
+		}
+	}
+
+	@Test
+	void outageIsCaughtUp() throws InterruptedException {
+		LocalDateTime start = LocalDateTime.of(2021, 6, 1, 12, 0);
+
+		for (int minute = 0; minute < 3; minute++) {
+			collect(start.plusMinutes(minute));
+		}
+		Thread.sleep(200);
+		Assertions.assertTrue(testSink.delivered.isEmpty());
+
+		testSink.available = true;
+		collect(start.plusMinutes(3));
+		waitFor(4);
+
+		Assertions.assertEquals(List.of(start, start.plusMinutes(1), start.plusMinutes(2), start.plusMinutes(3)), testSink.delivered);
+
+		outboxService.removeTaken();
+		Assertions.assertEquals(0, outboxRepository.count());
+	}
+
+	@Test
+	void rejectedCollectionIsSkipped() throws InterruptedException {
+		LocalDateTime start = LocalDateTime.of(2021, 6, 2, 12, 0);
+		testSink.available = true;
+		testSink.refused.add(start.plusMinutes(1));
+
+		for (int minute = 0; minute < 3; minute++) {
+			collect(start.plusMinutes(minute));
+		}
+		waitFor(2);
+
+		// The refused collection is not retried and does not hold back the ones after it
+		Assertions.assertEquals(List.of(start, start.plusMinutes(2)), testSink.delivered);
+	}
+}
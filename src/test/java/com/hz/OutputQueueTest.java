@@ -0,0 +1,106 @@
+package com.hz;
+
+import com.hz.components.OutputQueue;
+import com.hz.configuration.EnphaseCollectorProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+class OutputQueueTest {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final List<String> delivered = new CopyOnWriteArrayList<>();
+	private final CountDownLatch release = new CountDownLatch(1);
+	private final CountDownLatch busy = new CountDownLatch(1);
+
+	private OutputQueue makeQueue(EnphaseCollectorProperties.OverflowPolicy policy, int capacity) throws InterruptedException {
+		EnphaseCollectorProperties.Output settings = new EnphaseCollectorProperties.Output();
+		settings.setPolicy(policy);
+		settings.setCapacity(capacity);
+		OutputQueue queue = new OutputQueue("test", settings, registry);
+
+		// Hold the worker so later events wait in the queue
+		queue.offer(null, () -> {
+			busy.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		Assertions.assertTrue(busy.await(5, TimeUnit.SECONDS));
+		return queue;
+	}
+
+	private Runnable deliver(String value) {
+		return () -> delivered.add(value);
+	}
+
+	private void drain(OutputQueue queue) {
+		release.countDown();
+		queue.close();
+	}
+
+	@Test
+	void dropOldestKeepsNewest() throws InterruptedException {
+		OutputQueue queue = makeQueue(EnphaseCollectorProperties.OverflowPolicy.DROP_OLDEST, 2);
+		queue.offer(null, deliver("a"));
+		queue.offer(null, deliver("b"));
+		queue.offer(null, deliver("c"));
+		Assertions.assertEquals(2, queue.size());
+
+		drain(queue);
+		Assertions.assertEquals(List.of("b", "c"), delivered);
+		Assertions.assertEquals(1.0, registry.get("solar.output.dropped").counter().count());
+		Assertions.assertEquals(3L, registry.get("solar.output.latency").timer().count());
+	}
+
+	@Test
+	void coalesceReplacesInPlace() throws InterruptedException {
+		OutputQueue queue = makeQueue(EnphaseCollectorProperties.OverflowPolicy.COALESCE_LATEST, 10);
+		queue.offer("main", deliver("main 1"));
+		queue.offer("other", deliver("other 1"));
+		queue.offer("main", deliver("main 2"));
+		Assertions.assertEquals(2, queue.size());
+
+		drain(queue);
+		Assertions.assertEquals(List.of("main 2", "other 1"), delivered);
+		Assertions.assertEquals(1.0, registry.get("solar.output.dropped").counter().count());
+	}
+
+	@Test
+	void blockWaitsForRoom() throws InterruptedException {
+		OutputQueue queue = makeQueue(EnphaseCollectorProperties.OverflowPolicy.BLOCK, 1);
+		queue.offer(null, deliver("a"));
+
+		Thread publisher = new Thread(() -> queue.offer(null, deliver("b")));
+		publisher.start();
+		publisher.join(200);
+		Assertions.assertTrue(publisher.isAlive());
+
+		release.countDown();
+		publisher.join(5000);
+		Assertions.assertFalse(publisher.isAlive());
+
+		queue.close();
+		Assertions.assertEquals(List.of("a", "b"), delivered);
+		Assertions.assertEquals(0.0, registry.get("solar.output.dropped").counter().count());
+	}
+
+	@Test
+	void defaultPolicies() {
+		EnphaseCollectorProperties properties = new EnphaseCollectorProperties();
+		properties.getOutputs().put("prometheus", new EnphaseCollectorProperties.Output());
+		properties.getOutputs().get("prometheus").setCapacity(5);
+
+		Assertions.assertEquals(EnphaseCollectorProperties.OverflowPolicy.BLOCK, properties.getOutput("localdb").getPolicy());
+		Assertions.assertEquals(EnphaseCollectorProperties.OverflowPolicy.BLOCK, properties.getOutput("outbox").getPolicy());
+		Assertions.assertEquals(EnphaseCollectorProperties.OverflowPolicy.COALESCE_LATEST, properties.getOutput("prometheus").getPolicy());
+		Assertions.assertEquals(5, properties.getOutput("prometheus").getCapacity());
+	}
+}
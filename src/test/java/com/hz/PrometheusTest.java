@@ -0,0 +1,82 @@
+package com.hz;
+
+import com.hz.components.CachedPrometheusScrapeEndpoint;
+import com.hz.configuration.EnphaseCollectorProperties;
+import com.hz.configuration.TestEnphaseSystemInfoConfig;
+import com.hz.metrics.Metric;
+import com.hz.models.events.MetricCollectionEvent;
+import com.hz.services.PrometheusService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.metrics.export.prometheus.PrometheusScrapeEndpoint;
+import org.springframework.boot.actuate.metrics.export.prometheus.TextOutputFormat;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@SpringBootTest(properties = "management.endpoints.web.exposure.include=prometheus")
+@ActiveProfiles("testing")
+@Import(TestEnphaseSystemInfoConfig.class)
+@AutoConfigureObservability
+class PrometheusTest {
+	private static final LocalDateTime COLLECTION_TIME = LocalDateTime.of(2021, 6, 1, 12, 0);
+
+	@Autowired
+	private PrometheusScrapeEndpoint scrapeEndpoint;
+
+	@Autowired
+	private PrometheusService prometheusService;
+
+	@Autowired
+	private ObjectProvider<CachedPrometheusScrapeEndpoint> cachedEndpoint;
+
+	private static MetricCollectionEvent collection(LocalDateTime time, float production, Metric... panels) {
+		List<Metric> metrics = new ArrayList<>(List.of(new Metric(Metric.METRIC_PRODUCTION_CURRENT, production)));
+		metrics.addAll(List.of(panels));
+		return new MetricCollectionEvent(PrometheusTest.class, time, metrics);
+	}
+
+	@Test
+	void scrapeIsRenderedOncePerCollection() {
+		Assertions.assertInstanceOf(CachedPrometheusScrapeEndpoint.class, scrapeEndpoint);
+
+		prometheusService.metricListener(collection(COLLECTION_TIME, 250f, Metric.createPanelMetric("121", 20f, 0)));
+		WebEndpointResponse<String> first = scrapeEndpoint.scrape(TextOutputFormat.CONTENT_TYPE_004, null);
+		Assertions.assertTrue(first.getBody().contains("solar_meter_production_watts{site=\"main\",} 250.0"));
+		Assertions.assertTrue(first.getBody().contains("solar_panel_production_watts{panel_id=\"solar.panel-121\",site=\"main\",} 20.0"));
+		Assertions.assertSame(first, scrapeEndpoint.scrape(TextOutputFormat.CONTENT_TYPE_004, null));
+
+		prometheusService.metricListener(collection(COLLECTION_TIME.plusMinutes(1), 300f));
+		WebEndpointResponse<String> second = scrapeEndpoint.scrape(TextOutputFormat.CONTENT_TYPE_004, null);
+		Assertions.assertNotSame(first, second);
+		Assertions.assertTrue(second.getBody().contains("solar_meter_production_watts{site=\"main\",} 300.0"));
+	}
+
+	@Test
+	void panelsFollowTheInventory() {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		EnphaseCollectorProperties properties = new EnphaseCollectorProperties();
+		PrometheusService service = new PrometheusService(registry, properties, cachedEndpoint);
+
+		service.metricListener(collection(COLLECTION_TIME, 250f, Metric.createPanelMetric("121", 20f, 0), Metric.createPanelMetric("122", 21f, 0)));
+		Assertions.assertEquals(2, registry.find("solar.panel.production").gauges().size());
+		Assertions.assertEquals(21.0, registry.get("solar.panel.production").tag("panel.id", "solar.panel-122").gauge().value());
+
+		// 122 was replaced by 123 and has not reported since
+		service.metricListener(collection(COLLECTION_TIME.plusDays(1), 250f, Metric.createPanelMetric("121", 22f, 0), Metric.createPanelMetric("123", 23f, 0)));
+		service.metricListener(collection(COLLECTION_TIME.plusDays(2).plusMinutes(1), 250f, Metric.createPanelMetric("121", 24f, 0)));
+
+		Assertions.assertEquals(2, registry.find("solar.panel.production").gauges().size());
+		Assertions.assertNull(registry.find("solar.panel.production").tag("panel.id", "solar.panel-122").gauge());
+		Assertions.assertEquals(24.0, registry.get("solar.panel.production").tag("panel.id", "solar.panel-121").gauge().value());
+	}
+}
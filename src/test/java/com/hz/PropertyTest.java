@@ -30,4 +30,20 @@ class PropertyTest {
 		assertThat(BigDecimal.ONE).isEqualByComparingTo(properties.getRefreshAsMinutes(BigDecimal.valueOf(0)));
 		assertThat(BigDecimal.ONE).isEqualByComparingTo(properties.getRefreshAsMinutes(BigDecimal.ZERO));
 	}
+
+	@Test
+	void siteTest() {
+		EnphaseCollectorProperties.Site site = new EnphaseCollectorProperties.Site();
+		site.setHost("garage.local");
+		site.setPort(80);
+		site.setToken("token");
+
+		EnphaseCollectorProperties siteProperties = properties.forSite(site);
+
+		assertThat(siteProperties.getController().getUrl()).isEqualTo("http://garage.local");
+		assertThat(siteProperties.getSiteName()).isEqualTo("garage.local");
+		assertThat(siteProperties.getBearerToken()).isEqualTo("token");
+		assertThat(siteProperties.getRefreshSeconds()).isEqualTo(properties.getRefreshSeconds());
+		assertThat(properties.getController().getUrl()).isEqualTo("http://envoy.local");
+	}
 }
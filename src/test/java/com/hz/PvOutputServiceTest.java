@@ -0,0 +1,107 @@
+package com.hz;
+
+import com.hz.configuration.EnphaseCollectorProperties;
+import com.hz.configuration.PvOutputClientConfig;
+import com.hz.interfaces.PvOutputStateRepository;
+import com.hz.metrics.Metric;
+import com.hz.models.database.PvOutputState;
+import com.hz.models.events.MetricCollectionEvent;
+import com.hz.services.PvOutputService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+
+class PvOutputServiceTest {
+	private final EnphaseCollectorProperties properties = new EnphaseCollectorProperties();
+	private final RestTemplate restTemplate = Mockito.mock(RestTemplate.class);
+	private final PvOutputStateRepository repository = Mockito.mock(PvOutputStateRepository.class);
+	// Left by a run that stopped two hours ago
+	private final PvOutputState saved = new PvOutputState("1234", LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).minusHours(2));
+
+	PvOutputServiceTest() {
+		properties.setRefreshSeconds(60);
+		properties.setPvOutputResource(new EnphaseCollectorProperties.PvOutputResource());
+	}
+
+	private PvOutputService makeService() {
+		properties.getPvOutputResource().setSystemId("1234");
+		properties.getPvOutputResource().setHost("pvoutput.org");
+		Mockito.when(repository.findById("1234")).thenReturn(Optional.of(saved));
+		Mockito.when(restTemplate.postForEntity(ArgumentMatchers.anyString(), ArgumentMatchers.any(), ArgumentMatchers.eq(String.class)))
+				.thenReturn(ResponseEntity.ok(""));
+		return new PvOutputService(properties, restTemplate, repository);
+	}
+
+	private static MetricCollectionEvent collection(LocalDateTime time) {
+		return new MetricCollectionEvent(PvOutputServiceTest.class, time, List.of(
+				new Metric(Metric.METRIC_PRODUCTION_CURRENT, 600f),
+				new Metric(Metric.METRIC_CONSUMPTION_CURRENT, 300f)));
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<MultiValueMap<String, String>> posted(String endpoint, int times) {
+		ArgumentCaptor<HttpEntity<MultiValueMap<String, String>>> requests = ArgumentCaptor.forClass(HttpEntity.class);
+		Mockito.verify(restTemplate, Mockito.times(times)).postForEntity(ArgumentMatchers.endsWith(endpoint), requests.capture(), ArgumentMatchers.eq(String.class));
+		return requests.getAllValues().stream().map(HttpEntity::getBody).toList();
+	}
+
+	@Test
+	void backlogIsSentInBatches() {
+		properties.getPvOutputResource().setBatchSize(10);
+		PvOutputService service = makeService();
+
+		// An hour of the outage replayed from the outbox, a reading a minute, then the live reading
+		LocalDateTime start = saved.getNextUpdate();
+		for (int minute = 1; minute <= 60; minute++) {
+			service.deliver(collection(start.plusMinutes(minute)));
+		}
+		service.deliver(collection(LocalDateTime.now()));
+
+		List<MultiValueMap<String, String>> batches = posted(PvOutputClientConfig.ADD_BATCH_STATUS, 2);
+		Assertions.assertEquals(10, batches.get(0).getFirst("data").split(";").length);
+		Assertions.assertTrue(batches.get(0).getFirst("data").startsWith(start.format(DateTimeFormatter.ofPattern("yyyyMMdd,HH:mm")) + ",10.0000,600,5.0000,300,,"));
+		// The last of the replay with the gap up to now as one status
+		Assertions.assertEquals(3, batches.get(1).getFirst("data").split(";").length);
+		Mockito.verify(restTemplate, Mockito.never()).postForEntity(ArgumentMatchers.endsWith(PvOutputClientConfig.ADD_STATUS), ArgumentMatchers.any(), ArgumentMatchers.eq(String.class));
+
+		Assertions.assertNull(saved.getPending());
+		Assertions.assertTrue(saved.getNextUpdate().isAfter(LocalDateTime.now()));
+
+		// Delivered again after a failure it is not counted twice
+		service.deliver(collection(start.plusMinutes(30)));
+		posted(PvOutputClientConfig.ADD_BATCH_STATUS, 2);
+	}
+
+	@Test
+	void requestLimitHoldsTheReading() {
+		properties.getPvOutputResource().setBatchSize(2);
+		properties.getPvOutputResource().setRequestsPerHour(1);
+		PvOutputService service = makeService();
+
+		LocalDateTime start = saved.getNextUpdate();
+		for (int slot = 1; slot <= 2; slot++) {
+			service.deliver(collection(start.plusMinutes(slot * 5L + 1)));
+		}
+		posted(PvOutputClientConfig.ADD_BATCH_STATUS, 1);
+
+		LocalDateTime held = start.plusMinutes(16);
+		service.deliver(collection(held));
+		LocalDateTime third = start.plusMinutes(21);
+		MetricCollectionEvent limited = collection(third);
+		Assertions.assertThrows(IllegalStateException.class, () -> service.deliver(limited));
+		Assertions.assertEquals(held, saved.getLastReading());
+		Assertions.assertEquals(1, saved.getPendingStatuses().size());
+	}
+}
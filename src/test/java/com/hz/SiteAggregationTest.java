@@ -0,0 +1,98 @@
+package com.hz;
+
+import com.hz.configuration.EnphaseCollectorProperties;
+import com.hz.metrics.Metric;
+import com.hz.models.events.MetricCollectionEvent;
+import com.hz.services.SiteCollectionService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+class SiteAggregationTest {
+	private static class TestClock extends Clock {
+		private long millis = 0L;
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return Instant.ofEpochMilli(millis);
+		}
+	}
+
+	private final TestClock clock = new TestClock();
+	private final EnphaseCollectorProperties properties = new EnphaseCollectorProperties();
+	private final ApplicationEventPublisher publisher = Mockito.mock(ApplicationEventPublisher.class);
+	private final SiteCollectionService service;
+
+	SiteAggregationTest() {
+		EnphaseCollectorProperties.Site site = new EnphaseCollectorProperties.Site();
+		site.setName("garage");
+		properties.getSites().add(site);
+		properties.setAggregateSites(true);
+		properties.setRefreshSeconds(60);      // A minute, so a site expires after three
+		service = new SiteCollectionService(properties, null, null, null, null, publisher, null, null, clock);
+	}
+
+	private static MetricCollectionEvent collection(String site, boolean primary, float production, float voltage) {
+		return new MetricCollectionEvent(SiteAggregationTest.class, site, primary, LocalDateTime.now(), List.of(
+				new Metric(Metric.METRIC_PRODUCTION_CURRENT, production),
+				new Metric(Metric.METRIC_PRODUCTION_VOLTAGE, voltage),
+				Metric.createPanelMetric("1", 250f, 5)));
+	}
+
+	private List<Metric> lastTotal(int published) {
+		ArgumentCaptor<MetricCollectionEvent> events = ArgumentCaptor.forClass(MetricCollectionEvent.class);
+		Mockito.verify(publisher, Mockito.times(published)).publishEvent(events.capture());
+		MetricCollectionEvent total = events.getValue();
+		Assertions.assertEquals(SiteCollectionService.AGGREGATE_SITE, total.getSite());
+		return total.getMetrics();
+	}
+
+	private static float value(List<Metric> metrics, String name) {
+		return metrics.stream().filter(metric -> metric.getName().equals(name)).findFirst().orElseThrow().getValue();
+	}
+
+	@Test
+	void sumsPowerAndAveragesVoltageTest() {
+		service.metricListener(collection("garage", false, 1000f, 240f));
+		service.metricListener(collection(null, true, 3000f, 250f));
+
+		List<Metric> total = lastTotal(1);
+		Assertions.assertEquals(4000f, value(total, Metric.METRIC_PRODUCTION_CURRENT), 0.001f);
+		Assertions.assertEquals(245f, value(total, Metric.METRIC_PRODUCTION_VOLTAGE), 0.001f);
+		Assertions.assertEquals(2, total.size());
+	}
+
+	@Test
+	void expiresSilentSitesTest() {
+		service.metricListener(collection("garage", false, 1000f, 240f));
+		clock.millis += 180_000L;
+		service.metricListener(collection(null, true, 3000f, 250f));
+		Assertions.assertEquals(4000f, value(lastTotal(1), Metric.METRIC_PRODUCTION_CURRENT), 0.001f);
+
+		clock.millis += 1L;
+		service.metricListener(collection(null, true, 3000f, 250f));
+
+		List<Metric> total = lastTotal(2);
+		Assertions.assertEquals(3000f, value(total, Metric.METRIC_PRODUCTION_CURRENT), 0.001f);
+		Assertions.assertEquals(250f, value(total, Metric.METRIC_PRODUCTION_VOLTAGE), 0.001f);
+	}
+}
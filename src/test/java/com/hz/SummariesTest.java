@@ -0,0 +1,88 @@
+package com.hz;
+
+import com.hz.configuration.TestEnphaseSystemInfoConfig;
+import com.hz.interfaces.EventRepository;
+import com.hz.interfaces.PanelRepository;
+import com.hz.interfaces.SummaryRepository;
+import com.hz.models.database.Event;
+import com.hz.models.database.Summary;
+import com.hz.services.LocalDBService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@SpringBootTest
+@ActiveProfiles("testing")
+@Import(TestEnphaseSystemInfoConfig.class)
+class SummariesTest {
+	private static final LocalDate FIRST_DAY = LocalDate.of(2019, 3, 1);
+
+	@Autowired
+	private LocalDBService localDBService;
+
+	@Autowired
+	private EventRepository eventRepository;
+
+	@Autowired
+	private PanelRepository panelRepository;
+
+	@Autowired
+	private SummaryRepository summaryRepository;
+
+	private static Event event(LocalDateTime time, long production, long consumption) {
+		Event event = new Event();
+		event.setTime(time);
+		event.setProduction(BigDecimal.valueOf(production));
+		event.setConsumption(BigDecimal.valueOf(consumption));
+		return event;
+	}
+
+	@Test
+	void eachDayIsSummarisedAndRemoved() {
+		Event withPanel = event(FIRST_DAY.atTime(12, 0), 1000, 400);
+		withPanel.addSolarPanel("solar.panel-121", 250f);
+		withPanel = eventRepository.save(withPanel);
+		long panel = withPanel.getPanels().get(0).getId();
+		eventRepository.save(event(FIRST_DAY.atTime(18, 0), 200, 700));
+
+		// More than one chunk of events on the second day
+		List<Event> secondDay = new ArrayList<>();
+		for (int minute = 0; minute < 600; minute++) {
+			secondDay.add(event(FIRST_DAY.plusDays(1).atTime(8, 0).plusMinutes(minute), 500, 500));
+		}
+		eventRepository.saveAll(secondDay);
+
+		// A run that stopped after summarising the third day but before removing its events
+		Summary saved = new Summary(FIRST_DAY.plusDays(2), BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.valueOf(42));
+		summaryRepository.save(saved);
+		eventRepository.save(event(FIRST_DAY.plusDays(2).atTime(12, 0), 900, 100));
+
+		localDBService.createSummaries();
+
+		Summary first = summaryRepository.findById(FIRST_DAY).orElseThrow();
+		Assertions.assertEquals(0, BigDecimal.valueOf(1200).compareTo(first.getProduction()));
+		Assertions.assertEquals(0, BigDecimal.valueOf(1100).compareTo(first.getConsumption()));
+		Assertions.assertEquals(0, BigDecimal.valueOf(500).compareTo(first.getGridImport()));
+		Assertions.assertEquals(0, BigDecimal.valueOf(600).compareTo(first.getGridExport()));
+		Assertions.assertEquals(1000L, first.getHighestOutput());
+
+		Summary second = summaryRepository.findById(FIRST_DAY.plusDays(1)).orElseThrow();
+		Assertions.assertEquals(0, BigDecimal.valueOf(300000).compareTo(second.getProduction()));
+		Assertions.assertEquals(0, BigDecimal.ZERO.compareTo(second.getGridImport()));
+		Assertions.assertEquals(500L, second.getHighestOutput());
+
+		Assertions.assertEquals(0, BigDecimal.valueOf(42).compareTo(summaryRepository.findById(FIRST_DAY.plusDays(2)).orElseThrow().getProduction()));
+
+		Assertions.assertTrue(eventRepository.findFirstByTimeBeforeOrderByTimeAsc(LocalDate.now().atStartOfDay()).isEmpty());
+		Assertions.assertFalse(panelRepository.existsById(panel));
+	}
+}
@@ -0,0 +1,50 @@
+package com.hz;
+
+import com.hz.components.EnvoyCaptureInterceptor;
+import com.hz.configuration.EnphaseCollectorProperties;
+import com.hz.models.envoy.AuthorisationToken;
+import com.hz.services.EnvoyConnectionProxy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+class TokenRefreshTest {
+	private static final LocalDateTime NOW = LocalDateTime.of(2023, 5, 1, 12, 0);
+
+	@Test
+	void refreshDelayTest() {
+		// A year long token is refreshed a day ahead
+		Assertions.assertEquals(Duration.ofDays(364), EnvoyConnectionProxy.getRefreshDelay(NOW, NOW.plusDays(365)));
+		// A tenth of the way before expiry
+		Assertions.assertEquals(Duration.ofMinutes(90), EnvoyConnectionProxy.getRefreshDelay(NOW, NOW.plusMinutes(100)));
+		// At least 5 minutes ahead
+		Assertions.assertEquals(Duration.ofMinutes(15), EnvoyConnectionProxy.getRefreshDelay(NOW, NOW.plusMinutes(20)));
+		// Straight away when that is already past
+		Assertions.assertEquals(Duration.ZERO, EnvoyConnectionProxy.getRefreshDelay(NOW, NOW.plusMinutes(3)));
+		Assertions.assertEquals(Duration.ZERO, EnvoyConnectionProxy.getRefreshDelay(NOW, NOW.minusMinutes(3)));
+	}
+
+	@Test
+	void defaultTemplateNotBlockedByRefreshTest() throws Exception {
+		EnphaseCollectorProperties properties = new EnphaseCollectorProperties();
+		properties.setController(new EnphaseCollectorProperties.ProtectedHTTPResource());
+		properties.getController().setHost("envoy.local");
+		properties.getController().setPort(80);
+		EnvoyConnectionProxy proxy = new EnvoyConnectionProxy(new AuthorisationToken("user", "password", "1234", NOW),
+				properties, new RestTemplateBuilder(), new EnvoyCaptureInterceptor(properties), null, new SimpleMeterRegistry());
+
+		// A background token refresh holds the proxy while it logs in to Enphase
+		RestTemplate template;
+		synchronized (proxy) {
+			template = CompletableFuture.supplyAsync(proxy::getDefaultTemplate).get(10, TimeUnit.SECONDS);
+		}
+		Assertions.assertSame(template, proxy.getDefaultTemplate());
+	}
+}